@@ -0,0 +1,184 @@
+package org.mariotaku.multivalueswitch.benchmark;
+
+import org.mariotaku.multivalueswitch.core.SwitchGeometry;
+import org.mariotaku.multivalueswitch.core.SwitchTouchTracker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-event math of a switch for different numbers of positions. Inputs are
+ * precomputed and cycled through so results can't be folded to constants. Run with the GC
+ * profiler ({@code -prof gc}), every path here is expected to report zero allocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SwitchGeometryBenchmark {
+
+    private static final int INPUTS = 1024;
+    private static final int INPUTS_MASK = INPUTS - 1;
+
+    private static final int SWITCH_LEFT = 16;
+    private static final int SWITCH_TOP = 8;
+    private static final int SWITCH_RIGHT = 1096;
+    private static final int SWITCH_BOTTOM = 56;
+    private static final int THUMB_WIDTH = 48;
+    private static final int THUMB_SCROLL_RANGE = SWITCH_RIGHT - SWITCH_LEFT - THUMB_WIDTH;
+    private static final int TOUCH_SLOP = 16;
+    private static final float MIN_FLING_VELOCITY = 100;
+    private static final int GESTURE_MOVES = 16;
+
+    @Param({"2", "3", "10", "100", "1000"})
+    public int max;
+
+    @Param({"false", "true"})
+    public boolean rtl;
+
+    private final float[] mThumbPositions = new float[INPUTS];
+    private final float[] mTouchXs = new float[INPUTS];
+    private final float[] mTouchYs = new float[INPUTS];
+    private final float[] mDragDeltas = new float[INPUTS];
+    private final float[] mVelocities = new float[INPUTS];
+    private final int[] mCheckedPositions = new int[INPUTS];
+    private int[] mHighlightPositions;
+    private SwitchTouchTracker mTouchTracker;
+
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        final Random random = new Random(42);
+        for (int i = 0; i < INPUTS; i++) {
+            // Mostly between stops, as during animation and dragging
+            mThumbPositions[i] = random.nextFloat();
+            mTouchXs[i] = SWITCH_LEFT + random.nextFloat() * (SWITCH_RIGHT - SWITCH_LEFT);
+            mTouchYs[i] = SWITCH_TOP + random.nextFloat() * (SWITCH_BOTTOM - SWITCH_TOP);
+            mDragDeltas[i] = random.nextFloat() * 40 - 20;
+            mVelocities[i] = random.nextFloat() * 4000 - 2000;
+            mCheckedPositions[i] = random.nextInt(max);
+        }
+        // Every third position highlighted, membership cost grows with max
+        mHighlightPositions = new int[(max + 2) / 3];
+        for (int i = 0; i < mHighlightPositions.length; i++) {
+            mHighlightPositions[i] = i * 3;
+        }
+        mTouchTracker = new SwitchTouchTracker(TOUCH_SLOP);
+        mTouchTracker.setDragIntentSlop(TOUCH_SLOP / 2);
+        mTouchTracker.setDragIntentAngle(30);
+        mIndex = 0;
+    }
+
+    /**
+     * Thumb offset computed for every animation frame and draw.
+     */
+    @Benchmark
+    public int thumbOffset() {
+        final float thumbPosition = mThumbPositions[mIndex++ & INPUTS_MASK];
+        return SwitchGeometry.getThumbOffset(thumbPosition, rtl, THUMB_SCROLL_RANGE);
+    }
+
+    /**
+     * Thumb position following a single drag move event.
+     */
+    @Benchmark
+    public float dragBy() {
+        final int index = mIndex++ & INPUTS_MASK;
+        return SwitchGeometry.dragBy(mThumbPositions[index], mDragDeltas[index],
+                THUMB_SCROLL_RANGE, rtl);
+    }
+
+    /**
+     * Tap mapped to the position it selects.
+     */
+    @Benchmark
+    public int snapTouch() {
+        final float x = mTouchXs[mIndex++ & INPUTS_MASK];
+        return SwitchGeometry.snapTouch(x, SWITCH_LEFT, SWITCH_RIGHT, THUMB_WIDTH, rtl, max);
+    }
+
+    /**
+     * Position a drag ends at after release.
+     */
+    @Benchmark
+    public int resolveFling() {
+        final int index = mIndex++ & INPUTS_MASK;
+        return SwitchGeometry.resolveFling(mCheckedPositions[index], max, mVelocities[index],
+                MIN_FLING_VELOCITY, rtl);
+    }
+
+    /**
+     * Down event hit test against the thumb, then the track.
+     */
+    @Benchmark
+    public boolean hitTest() {
+        final int index = mIndex++ & INPUTS_MASK;
+        final float x = mTouchXs[index], y = mTouchYs[index];
+        final int thumbOffset = SwitchGeometry.getThumbOffset(mThumbPositions[index], rtl,
+                THUMB_SCROLL_RANGE);
+        return SwitchGeometry.hitThumb(x, y, SWITCH_LEFT, SWITCH_TOP, SWITCH_BOTTOM, thumbOffset,
+                THUMB_WIDTH, 0, TOUCH_SLOP)
+                || SwitchGeometry.hitTrack(x, y, SWITCH_LEFT, SWITCH_TOP, SWITCH_RIGHT,
+                SWITCH_BOTTOM, TOUCH_SLOP);
+    }
+
+    /**
+     * Highlight check done for the checked position on every drawable state change.
+     */
+    @Benchmark
+    public boolean isHighlighted() {
+        final int position = mCheckedPositions[mIndex++ & INPUTS_MASK];
+        return SwitchGeometry.isHighlighted(mHighlightPositions, position);
+    }
+
+    /**
+     * Tick coordinates of all stops, as computed by one draw pass.
+     */
+    @Benchmark
+    public int tickCoordinates() {
+        int sum = 0;
+        for (int i = 0; i < max; i++) {
+            sum += SwitchGeometry.getTickX(i, max, SWITCH_LEFT, SWITCH_RIGHT, THUMB_WIDTH);
+        }
+        return sum;
+    }
+
+    /**
+     * A whole drag: down on the thumb, a run of move events, then release and fling.
+     */
+    @Benchmark
+    public int dragGesture() {
+        final int index = mIndex++ & INPUTS_MASK;
+        final SwitchTouchTracker tracker = mTouchTracker;
+        float thumbPosition = mThumbPositions[index];
+        final float y = mTouchYs[index];
+        float x = SWITCH_LEFT + SwitchGeometry.getThumbOffset(thumbPosition, rtl,
+                THUMB_SCROLL_RANGE) + THUMB_WIDTH / 2;
+        tracker.onDown(x, y, true, true);
+        for (int i = 0; i < GESTURE_MOVES; i++) {
+            x += mDragDeltas[(index + i) & INPUTS_MASK];
+            if (tracker.onMove(x, y) != SwitchTouchTracker.MOVE_IGNORED) {
+                thumbPosition = SwitchGeometry.dragBy(thumbPosition, x - tracker.getTouchX(),
+                        THUMB_SCROLL_RANGE, rtl);
+                tracker.setTouchX(x);
+            }
+        }
+        tracker.onUp();
+        return SwitchGeometry.resolveFling(SwitchGeometry.getCheckedPosition(thumbPosition, max),
+                max, mVelocities[index], MIN_FLING_VELOCITY, rtl);
+    }
+}
@@ -0,0 +1,154 @@
+package org.mariotaku.multivalueswitch.core;
+
+/**
+ * Position math of a multi-value switch, free of Android dependencies.
+ * <p/>
+ * A switch with {@code max} positions has stops at thumb positions {@code 0},
+ * {@code 1 / (max - 1)} ... {@code 1}. Thumb positions are in layout direction, they're
+ * mirrored to screen coordinates when {@code rtl} is true. Coordinates are in pixels,
+ * relative to the view.
+ */
+public final class SwitchGeometry {
+
+    private SwitchGeometry() {
+    }
+
+    /**
+     * Taken from android.util.MathUtils
+     */
+    public static float constrain(float amount, float low, float high) {
+        return amount < low ? low : (amount > high ? high : amount);
+    }
+
+    /**
+     * @return thumb position, from 0 to 1, of the stop at checkedPosition
+     */
+    public static float getThumbPosition(int checkedPosition, int max) {
+        return constrain(checkedPosition / (float) (max - 1), 0, 1);
+    }
+
+    /**
+     * @return position of the stop nearest to thumbPosition
+     */
+    public static int getCheckedPosition(float thumbPosition, int max) {
+        return Math.round(constrain(thumbPosition, 0, 1) * (max - 1));
+    }
+
+    /**
+     * Translates thumb position to offset from the start of the scroll range, mirrored for
+     * RTL layout.
+     */
+    public static int getThumbOffset(float thumbPosition, boolean rtl, int thumbScrollRange) {
+        final float position = rtl ? 1 - thumbPosition : thumbPosition;
+        return (int) (position * thumbScrollRange + 0.5f);
+    }
+
+    /**
+     * @return thumb position, from 0 to 1, a tap at x selects
+     */
+    public static float getTouchPosition(float x, int switchLeft, int switchRight, int thumbWidth,
+                                         boolean rtl) {
+        final int thumbScrollStart = switchLeft + thumbWidth - thumbWidth / 2;
+        final int thumbScrollRange = switchRight - switchLeft - thumbWidth;
+        float thumbPos = 0;
+        if (thumbScrollRange != 0) {
+            thumbPos = constrain((x - thumbScrollStart) / thumbScrollRange, 0, 1);
+        }
+        return rtl ? 1 - thumbPos : thumbPos;
+    }
+
+    /**
+     * @return position of the stop a tap at x selects
+     */
+    public static int snapTouch(float x, int switchLeft, int switchRight, int thumbWidth,
+                                boolean rtl, int max) {
+        return getCheckedPosition(getTouchPosition(x, switchLeft, switchRight, thumbWidth, rtl), max);
+    }
+
+    /**
+     * @return horizontal center of the thumb when checked at given position
+     */
+    public static int getStopCenterX(int position, int max, int switchLeft, int switchRight,
+                                     int thumbWidth, boolean rtl) {
+        final int thumbScrollStart = switchLeft + thumbWidth - thumbWidth / 2;
+        final int thumbScrollRange = switchRight - switchLeft - thumbWidth;
+        final int index = rtl ? max - 1 - position : position;
+        return thumbScrollStart + index * thumbScrollRange / Math.max(1, max - 1);
+    }
+
+    /**
+     * @return horizontal center of the tick mark drawn at index, counted from the left
+     */
+    public static int getTickX(int index, int max, int switchLeft, int switchRight,
+                               int thumbWidth) {
+        final int thumbScrollStart = switchLeft + thumbWidth - thumbWidth / 2;
+        final int thumbScrollRange = switchRight - switchLeft - thumbWidth;
+        return thumbScrollStart + index * (thumbScrollRange / (max - 1));
+    }
+
+    /**
+     * Moves thumb by a horizontal distance on screen.
+     *
+     * @return new thumb position, from 0 to 1
+     */
+    public static float dragBy(float thumbPosition, float dx, int thumbScrollRange, boolean rtl) {
+        float dPos;
+        if (thumbScrollRange != 0) {
+            dPos = dx / thumbScrollRange;
+        } else {
+            // If the thumb scroll range is empty, just use the
+            // movement direction to snap on or off.
+            dPos = dx > 0 ? 1 : -1;
+        }
+        if (rtl) {
+            dPos = -dPos;
+        }
+        return constrain(thumbPosition + dPos, 0, 1);
+    }
+
+    /**
+     * Resolves the position a drag ends at. A fling moves one stop in its direction,
+     * otherwise the switch stays at checkedPosition.
+     *
+     * @param velocityX Horizontal velocity on screen, in pixels per second
+     */
+    public static int resolveFling(int checkedPosition, int max, float velocityX,
+                                   float minFlingVelocity, boolean rtl) {
+        if (Math.abs(velocityX) <= minFlingVelocity) return checkedPosition;
+        final int diff = (velocityX > 0) != rtl ? 1 : -1;
+        return Math.min(max - 1, Math.max(0, checkedPosition + diff));
+    }
+
+    /**
+     * @return true if (x, y) is within the thumb extended by slop
+     */
+    public static boolean hitThumb(float x, float y, int switchLeft, int switchTop,
+                                   int switchBottom, int thumbOffset, int thumbWidth,
+                                   int thumbPadding, int slop) {
+        final int thumbTop = switchTop - slop;
+        final int thumbLeft = switchLeft + thumbOffset - slop;
+        final int thumbRight = thumbLeft + thumbWidth + thumbPadding + slop;
+        final int thumbBottom = switchBottom + slop;
+        return x > thumbLeft && x < thumbRight && y > thumbTop && y < thumbBottom;
+    }
+
+    /**
+     * @return true if (x, y) is within the track extended by slop
+     */
+    public static boolean hitTrack(float x, float y, int switchLeft, int switchTop,
+                                   int switchRight, int switchBottom, int slop) {
+        return x > switchLeft - slop && x < switchRight + slop
+                && y > switchTop - slop && y < switchBottom + slop;
+    }
+
+    /**
+     * @return true if position is one of highlightPositions
+     */
+    public static boolean isHighlighted(int[] highlightPositions, int position) {
+        if (highlightPositions == null) return false;
+        for (final int highlightPosition : highlightPositions) {
+            if (position == highlightPosition) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,181 @@
+package org.mariotaku.multivalueswitch.core;
+
+/**
+ * Touch state of a multi-value switch: whether a gesture targets the thumb, and when it
+ * becomes a drag. Feed it down, move and up events with hit test results, and act on
+ * returned results.
+ */
+public final class SwitchTouchTracker {
+
+    public static final int TOUCH_MODE_IDLE = 0;
+    public static final int TOUCH_MODE_DOWN = 1;
+    public static final int TOUCH_MODE_DRAGGING = 2;
+
+    /**
+     * Movement doesn't concern the switch.
+     */
+    public static final int MOVE_IGNORED = 0;
+    /**
+     * Movement passed touch slop, the switch claims the gesture and tracks from here.
+     */
+    public static final int MOVE_CLAIMED = 1;
+    /**
+     * Movement showed horizontal intent, the switch claims the gesture and drags the thumb
+     * from the down point.
+     */
+    public static final int MOVE_CLAIMED_AND_DRAGGED = 2;
+    /**
+     * The thumb is being dragged.
+     */
+    public static final int MOVE_DRAGGED = 3;
+
+    private int mTouchSlop;
+    private int mDragIntentSlop;
+    private float mDragIntentAngle;
+    private float mDragIntentTangent;
+    private boolean mDragFromTrackEnabled;
+
+    private int mTouchMode;
+    private boolean mTouchDown;
+    private float mTouchX;
+    private float mTouchY;
+
+    public SwitchTouchTracker(int touchSlop) {
+        mTouchSlop = touchSlop;
+    }
+
+    public int getTouchSlop() {
+        return mTouchSlop;
+    }
+
+    public void setTouchSlop(int touchSlop) {
+        mTouchSlop = touchSlop;
+    }
+
+    public int getDragIntentSlop() {
+        return mDragIntentSlop;
+    }
+
+    public void setDragIntentSlop(int pixels) {
+        mDragIntentSlop = pixels;
+    }
+
+    public float getDragIntentAngle() {
+        return mDragIntentAngle;
+    }
+
+    /**
+     * @param degrees Angle from horizontal between 0 and 90, 0 disables drag intent
+     */
+    public void setDragIntentAngle(float degrees) {
+        mDragIntentAngle = SwitchGeometry.constrain(degrees, 0, 90);
+        mDragIntentTangent = (float) Math.tan(Math.toRadians(Math.min(mDragIntentAngle, 89.9f)));
+    }
+
+    public boolean isDragFromTrackEnabled() {
+        return mDragFromTrackEnabled;
+    }
+
+    public void setDragFromTrackEnabled(boolean enabled) {
+        mDragFromTrackEnabled = enabled;
+    }
+
+    public int getTouchMode() {
+        return mTouchMode;
+    }
+
+    public boolean isDragging() {
+        return mTouchMode == TOUCH_MODE_DRAGGING;
+    }
+
+    /**
+     * @return x of the last tracked touch point
+     */
+    public float getTouchX() {
+        return mTouchX;
+    }
+
+    /**
+     * Moves the tracked touch point after the thumb followed a drag to x.
+     */
+    public void setTouchX(float x) {
+        mTouchX = x;
+    }
+
+    /**
+     * @param hitThumb Whether the down point is on the thumb
+     * @param hitTrack Whether the down point is on the track
+     * @return true if the gesture targets the switch
+     */
+    public boolean onDown(float x, float y, boolean hitThumb, boolean hitTrack) {
+        mTouchDown = true;
+        if (hitThumb || (mDragFromTrackEnabled && hitTrack)) {
+            mTouchMode = TOUCH_MODE_DOWN;
+            mTouchX = x;
+            mTouchY = y;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return one of {@link #MOVE_IGNORED}, {@link #MOVE_CLAIMED},
+     * {@link #MOVE_CLAIMED_AND_DRAGGED} or {@link #MOVE_DRAGGED}
+     */
+    public int onMove(float x, float y) {
+        switch (mTouchMode) {
+            case TOUCH_MODE_DOWN: {
+                // Jitter within both thresholds is still a tap
+                if (hasDragIntent(x - mTouchX, y - mTouchY)) {
+                    // Keep tracking from the down point so no movement is lost.
+                    mTouchDown = false;
+                    mTouchMode = TOUCH_MODE_DRAGGING;
+                    return MOVE_CLAIMED_AND_DRAGGED;
+                } else if (Math.abs(x - mTouchX) > mTouchSlop || Math.abs(y - mTouchY) > mTouchSlop) {
+                    mTouchDown = false;
+                    mTouchMode = TOUCH_MODE_DRAGGING;
+                    mTouchX = x;
+                    mTouchY = y;
+                    return MOVE_CLAIMED;
+                }
+                return MOVE_IGNORED;
+            }
+            case TOUCH_MODE_DRAGGING: {
+                mTouchDown = false;
+                return MOVE_DRAGGED;
+            }
+        }
+        // Didn't target the thumb
+        return MOVE_IGNORED;
+    }
+
+    /**
+     * Ends the gesture, on up or cancel.
+     *
+     * @return true if the gesture was a tap that should select the position under it, only
+     * meaningful if {@link #isDragging()} was false
+     */
+    public boolean onUp() {
+        final boolean touchedDown = mTouchDown;
+        mTouchDown = false;
+        mTouchMode = TOUCH_MODE_IDLE;
+        return touchedDown;
+    }
+
+    /**
+     * Abandons the gesture, e.g. when the view is detached.
+     */
+    public void reset() {
+        mTouchMode = TOUCH_MODE_IDLE;
+        mTouchDown = false;
+    }
+
+    /**
+     * @return true if movement (dx, dy) from the down point clearly shows horizontal intent
+     */
+    public boolean hasDragIntent(float dx, float dy) {
+        final float absDx = Math.abs(dx);
+        return mDragIntentAngle > 0 && absDx > mDragIntentSlop
+                && Math.abs(dy) <= absDx * mDragIntentTangent;
+    }
+}
@@ -0,0 +1,136 @@
+package org.mariotaku.multivalueswitch.core;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fails when the per-event work behind drawing, dragging and animating a switch starts
+ * allocating. Each path is warmed up, then run repeatedly while the thread's allocated bytes
+ * are counted. The benchmark module measures the same paths with JMH's GC profiler.
+ */
+public class AllocationRegressionTest {
+
+    private static final int WARMUP_STEPS = 20000;
+    private static final int STEPS = 20000;
+
+    private static final int LEFT = 16, TOP = 8, RIGHT = 1096, BOTTOM = 56;
+    private static final int THUMB_WIDTH = 48;
+    private static final int THUMB_SCROLL_RANGE = RIGHT - LEFT - THUMB_WIDTH;
+    private static final int TOUCH_SLOP = 16;
+    private static final int MAX = 5;
+
+    private com.sun.management.ThreadMXBean mThreadMXBean;
+    private final int[] mHighlightPositions = {0, 3};
+    // Keeps results observable so nothing is optimized away
+    private long mSink;
+
+    @Before
+    public void setUp() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadMXBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(mThreadMXBean.isThreadAllocatedMemorySupported());
+        mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void drawFrame() {
+        assertNoAllocation("draw", new Step() {
+            @Override
+            public void run(int step) {
+                final float thumbPosition = SwitchGeometry.getThumbPosition(step % MAX, MAX);
+                mSink += SwitchGeometry.getThumbOffset(thumbPosition, false, THUMB_SCROLL_RANGE);
+                for (int i = 0; i < MAX; i++) {
+                    mSink += SwitchGeometry.getTickX(i, MAX, LEFT, RIGHT, THUMB_WIDTH);
+                    if (SwitchGeometry.isHighlighted(mHighlightPositions, i)) mSink++;
+                }
+            }
+        });
+    }
+
+    @Test
+    public void dragGesture() {
+        final SwitchTouchTracker tracker = new SwitchTouchTracker(TOUCH_SLOP);
+        tracker.setDragIntentSlop(TOUCH_SLOP / 2);
+        tracker.setDragIntentAngle(30);
+        final float y = (TOP + BOTTOM) / 2f;
+        final float[] thumbPosition = {0};
+        assertNoAllocation("drag", new Step() {
+            @Override
+            public void run(int step) {
+                // A gesture of 40 events sweeping across all stops and back
+                final int phase = step % 40;
+                final float x = LEFT + (RIGHT - LEFT) * (phase < 20 ? phase : 40 - phase) / 20f;
+                if (phase == 0) {
+                    final int thumbOffset = SwitchGeometry.getThumbOffset(thumbPosition[0],
+                            false, THUMB_SCROLL_RANGE);
+                    tracker.onDown(x, y, SwitchGeometry.hitThumb(x, y, LEFT, TOP, BOTTOM,
+                            thumbOffset, THUMB_WIDTH, 0, TOUCH_SLOP),
+                            SwitchGeometry.hitTrack(x, y, LEFT, TOP, RIGHT, BOTTOM, TOUCH_SLOP));
+                } else if (phase == 39) {
+                    tracker.onUp();
+                    mSink += SwitchGeometry.resolveFling(SwitchGeometry.getCheckedPosition(
+                            thumbPosition[0], MAX), MAX, step, 100, false);
+                } else if (tracker.onMove(x, y) != SwitchTouchTracker.MOVE_IGNORED) {
+                    thumbPosition[0] = SwitchGeometry.dragBy(thumbPosition[0],
+                            x - tracker.getTouchX(), THUMB_SCROLL_RANGE, false);
+                    tracker.setTouchX(x);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void tap() {
+        final SwitchTouchTracker tracker = new SwitchTouchTracker(TOUCH_SLOP);
+        tracker.setDragFromTrackEnabled(true);
+        final float y = (TOP + BOTTOM) / 2f;
+        assertNoAllocation("tap", new Step() {
+            @Override
+            public void run(int step) {
+                final float x = LEFT + step % (RIGHT - LEFT);
+                tracker.onDown(x, y, false, SwitchGeometry.hitTrack(x, y, LEFT, TOP, RIGHT,
+                        BOTTOM, TOUCH_SLOP));
+                if (tracker.onUp()) {
+                    mSink += SwitchGeometry.snapTouch(x, LEFT, RIGHT, THUMB_WIDTH, step % 2 == 0,
+                            MAX);
+                }
+            }
+        });
+    }
+
+    private void assertNoAllocation(String name, Step step) {
+        for (int i = 0; i < WARMUP_STEPS; i++) {
+            step.run(i);
+        }
+        final long baseline = measure(EMPTY_STEP);
+        final long allocated = measure(step) - baseline;
+        assertTrue(name + " allocated " + allocated + " bytes over " + STEPS + " steps",
+                allocated < STEPS);
+    }
+
+    private long measure(Step step) {
+        final long threadId = Thread.currentThread().getId();
+        final long start = mThreadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < STEPS; i++) {
+            step.run(WARMUP_STEPS + i);
+        }
+        return mThreadMXBean.getThreadAllocatedBytes(threadId) - start;
+    }
+
+    private static final Step EMPTY_STEP = new Step() {
+        @Override
+        public void run(int step) {
+        }
+    };
+
+    private interface Step {
+        void run(int step);
+    }
+}
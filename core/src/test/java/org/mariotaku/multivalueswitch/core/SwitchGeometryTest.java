@@ -0,0 +1,82 @@
+package org.mariotaku.multivalueswitch.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link SwitchGeometry} on the plain JVM.
+ */
+public class SwitchGeometryTest {
+
+    // Switch from x 10 to 110 with a 20 pixel thumb, stops are at 20, 60 and 100 for max 3
+    private static final int LEFT = 10, RIGHT = 110, THUMB_WIDTH = 20;
+
+    @Test
+    public void positionsRoundTrip() {
+        for (int max = 2; max <= 100; max++) {
+            for (int position = 0; position < max; position++) {
+                final float thumbPosition = SwitchGeometry.getThumbPosition(position, max);
+                assertEquals(position, SwitchGeometry.getCheckedPosition(thumbPosition, max));
+            }
+        }
+    }
+
+    @Test
+    public void offsetsMirroredForRtl() {
+        assertEquals(0, SwitchGeometry.getThumbOffset(0, false, 80));
+        assertEquals(80, SwitchGeometry.getThumbOffset(0, true, 80));
+        assertEquals(40, SwitchGeometry.getThumbOffset(0.5f, true, 80));
+    }
+
+    @Test
+    public void tapsSnapToNearestStop() {
+        assertEquals(0, SwitchGeometry.snapTouch(15, LEFT, RIGHT, THUMB_WIDTH, false, 3));
+        assertEquals(1, SwitchGeometry.snapTouch(65, LEFT, RIGHT, THUMB_WIDTH, false, 3));
+        assertEquals(2, SwitchGeometry.snapTouch(105, LEFT, RIGHT, THUMB_WIDTH, false, 3));
+        assertEquals(0, SwitchGeometry.snapTouch(105, LEFT, RIGHT, THUMB_WIDTH, true, 3));
+    }
+
+    @Test
+    public void stopsMatchTaps() {
+        for (int position = 0; position < 3; position++) {
+            final int x = SwitchGeometry.getStopCenterX(position, 3, LEFT, RIGHT, THUMB_WIDTH, false);
+            assertEquals(position, SwitchGeometry.snapTouch(x, LEFT, RIGHT, THUMB_WIDTH, false, 3));
+            final int rtlX = SwitchGeometry.getStopCenterX(position, 3, LEFT, RIGHT, THUMB_WIDTH, true);
+            assertEquals(position, SwitchGeometry.snapTouch(rtlX, LEFT, RIGHT, THUMB_WIDTH, true, 3));
+        }
+    }
+
+    @Test
+    public void flingMovesOneStop() {
+        assertEquals(2, SwitchGeometry.resolveFling(1, 3, 1000, 50, false));
+        assertEquals(0, SwitchGeometry.resolveFling(1, 3, 1000, 50, true));
+        assertEquals(0, SwitchGeometry.resolveFling(1, 3, -1000, 50, false));
+        assertEquals(1, SwitchGeometry.resolveFling(1, 3, 40, 50, false));
+        assertEquals(2, SwitchGeometry.resolveFling(2, 3, 1000, 50, false));
+    }
+
+    @Test
+    public void dragFollowsDirection() {
+        assertEquals(0.5f, SwitchGeometry.dragBy(0, 40, 80, false), 0);
+        assertEquals(0, SwitchGeometry.dragBy(0, 40, 80, true), 0);
+        assertEquals(1, SwitchGeometry.dragBy(0, 1, 0, false), 0);
+    }
+
+    @Test
+    public void hitTestsHonorSlop() {
+        assertTrue(SwitchGeometry.hitTrack(5, 5, LEFT, 10, RIGHT, 30, 8));
+        assertFalse(SwitchGeometry.hitTrack(1, 5, LEFT, 10, RIGHT, 30, 8));
+        assertTrue(SwitchGeometry.hitThumb(15, 20, LEFT, 10, 30, 0, THUMB_WIDTH, 0, 0));
+        assertFalse(SwitchGeometry.hitThumb(60, 20, LEFT, 10, 30, 0, THUMB_WIDTH, 0, 0));
+    }
+
+    @Test
+    public void highlightMembership() {
+        assertTrue(SwitchGeometry.isHighlighted(new int[]{1, 3}, 3));
+        assertFalse(SwitchGeometry.isHighlighted(new int[]{1, 3}, 2));
+        assertFalse(SwitchGeometry.isHighlighted(null, 0));
+    }
+}
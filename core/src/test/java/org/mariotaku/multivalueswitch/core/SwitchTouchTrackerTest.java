@@ -0,0 +1,125 @@
+package org.mariotaku.multivalueswitch.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks transitions of {@link SwitchTouchTracker}.
+ */
+public class SwitchTouchTrackerTest {
+
+    private SwitchTouchTracker mTracker;
+
+    @Before
+    public void setUp() {
+        mTracker = new SwitchTouchTracker(16);
+        mTracker.setDragIntentSlop(8);
+        mTracker.setDragIntentAngle(30);
+    }
+
+    @Test
+    public void tapWithoutMovement() {
+        assertTrue(mTracker.onDown(10, 10, true, true));
+        assertFalse(mTracker.isDragging());
+        assertTrue(mTracker.onUp());
+        assertEquals(SwitchTouchTracker.TOUCH_MODE_IDLE, mTracker.getTouchMode());
+    }
+
+    @Test
+    public void horizontalIntentClaimsBeforeSlop() {
+        mTracker.onDown(10, 10, true, true);
+        assertEquals(SwitchTouchTracker.MOVE_CLAIMED_AND_DRAGGED, mTracker.onMove(20, 12));
+        assertTrue(mTracker.isDragging());
+        // Tracking continues from the down point
+        assertEquals(10, mTracker.getTouchX(), 0);
+        assertEquals(SwitchTouchTracker.MOVE_DRAGGED, mTracker.onMove(30, 12));
+        assertFalse(mTracker.onUp());
+    }
+
+    @Test
+    public void steepMovementWaitsForSlop() {
+        mTracker.onDown(10, 10, true, true);
+        assertEquals(SwitchTouchTracker.MOVE_IGNORED, mTracker.onMove(19, 20));
+        assertEquals(SwitchTouchTracker.MOVE_CLAIMED, mTracker.onMove(19, 40));
+        assertEquals(19, mTracker.getTouchX(), 0);
+    }
+
+    @Test
+    public void intentNeedsMoreThanIntentSlop() {
+        assertFalse(mTracker.hasDragIntent(8, 0));
+        assertTrue(mTracker.hasDragIntent(9, 0));
+        assertTrue(mTracker.hasDragIntent(-9, 0));
+    }
+
+    @Test
+    public void intentStaysWithinAngle() {
+        // tan(30) * 10 is about 5.77
+        assertTrue(mTracker.hasDragIntent(10, 5.7f));
+        assertTrue(mTracker.hasDragIntent(-10, -5.7f));
+        assertFalse(mTracker.hasDragIntent(10, 5.8f));
+    }
+
+    @Test
+    public void zeroAngleDisablesIntent() {
+        mTracker.setDragIntentAngle(0);
+        assertFalse(mTracker.hasDragIntent(15, 0));
+        mTracker.onDown(10, 10, true, true);
+        assertEquals(SwitchTouchTracker.MOVE_IGNORED, mTracker.onMove(26, 10));
+        assertEquals(SwitchTouchTracker.MOVE_CLAIMED, mTracker.onMove(27, 10));
+    }
+
+    @Test
+    public void angleIsClamped() {
+        mTracker.setDragIntentAngle(120);
+        assertEquals(90, mTracker.getDragIntentAngle(), 0);
+        // Nearly vertical movements still count at 90 degrees
+        assertTrue(mTracker.hasDragIntent(9, 100));
+        mTracker.setDragIntentAngle(-10);
+        assertEquals(0, mTracker.getDragIntentAngle(), 0);
+    }
+
+    @Test
+    public void trackOnlyTargetsWhenEnabled() {
+        assertFalse(mTracker.onDown(10, 10, false, true));
+        assertEquals(SwitchTouchTracker.MOVE_IGNORED, mTracker.onMove(40, 10));
+        mTracker.reset();
+        mTracker.setDragFromTrackEnabled(true);
+        assertTrue(mTracker.onDown(10, 10, false, true));
+    }
+
+    @Test
+    public void jitteryTrackTapIsStillTap() {
+        mTracker.setDragFromTrackEnabled(true);
+        assertTrue(mTracker.onDown(100, 10, false, true));
+        assertEquals(SwitchTouchTracker.MOVE_IGNORED, mTracker.onMove(101, 11));
+        assertEquals(SwitchTouchTracker.MOVE_IGNORED, mTracker.onMove(98, 9));
+        assertEquals(SwitchTouchTracker.MOVE_IGNORED, mTracker.onMove(102, 10));
+        assertFalse(mTracker.isDragging());
+        assertTrue(mTracker.onUp());
+    }
+
+    @Test
+    public void trackTapEndsAtDragIntent() {
+        mTracker.setDragFromTrackEnabled(true);
+        mTracker.onDown(100, 10, false, true);
+        assertEquals(SwitchTouchTracker.MOVE_IGNORED, mTracker.onMove(102, 11));
+        assertEquals(SwitchTouchTracker.MOVE_CLAIMED_AND_DRAGGED, mTracker.onMove(109, 11));
+        // Moving back doesn't make it a tap again
+        assertEquals(SwitchTouchTracker.MOVE_DRAGGED, mTracker.onMove(100, 10));
+        assertFalse(mTracker.onUp());
+    }
+
+    @Test
+    public void trackTapEndsAtTouchSlop() {
+        mTracker.setDragFromTrackEnabled(true);
+        mTracker.onDown(100, 10, false, true);
+        // Steep, so only touch slop claims it
+        assertEquals(SwitchTouchTracker.MOVE_IGNORED, mTracker.onMove(101, 26));
+        assertEquals(SwitchTouchTracker.MOVE_CLAIMED, mTracker.onMove(101, 27));
+        assertFalse(mTracker.onUp());
+    }
+}
@@ -3,6 +3,8 @@ package android.support.v7.widget;
 import android.content.res.ColorStateList;
 import android.graphics.PorterDuff;
 import android.graphics.drawable.Drawable;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.appcompat.R;
 import android.util.AttributeSet;
 import android.view.View;
 
@@ -11,16 +13,74 @@ import android.view.View;
  */
 public class MVS_AppCompatBackgroundHelperAccessor {
     private final AppCompatBackgroundHelper mHelper;
+    private final View mView;
+    /**
+     * Background attributes read off the UI thread and not applied yet, null unless the
+     * view sets any.
+     */
+    private PendingAttributes mPending;
 
     public MVS_AppCompatBackgroundHelperAccessor(View view) {
         mHelper = new AppCompatBackgroundHelper(view);
+        mView = view;
     }
 
     public void loadFromAttributes(AttributeSet attrs, int defStyleAttr) {
         mHelper.loadFromAttributes(attrs, defStyleAttr);
     }
 
+    /**
+     * Reads the same attributes as {@link #loadFromAttributes(AttributeSet, int)} without
+     * touching the view, so it can be called on any thread. Call
+     * {@link #applyPendingAttributes()} on the UI thread to apply them.
+     */
+    public void readFromAttributes(AttributeSet attrs, int defStyleAttr) {
+        final TintTypedArray a = TintTypedArray.obtainStyledAttributes(mView.getContext(), attrs,
+                R.styleable.ViewBackgroundHelper, defStyleAttr, 0);
+        try {
+            if (a.hasValue(R.styleable.ViewBackgroundHelper_android_background)) {
+                obtainPending().backgroundResId = a.getResourceId(
+                        R.styleable.ViewBackgroundHelper_android_background, -1);
+            }
+            if (a.hasValue(R.styleable.ViewBackgroundHelper_backgroundTint)) {
+                final PendingAttributes pending = obtainPending();
+                pending.hasTintList = true;
+                pending.tintList = a.getColorStateList(R.styleable.ViewBackgroundHelper_backgroundTint);
+            }
+            if (a.hasValue(R.styleable.ViewBackgroundHelper_backgroundTintMode)) {
+                final PendingAttributes pending = obtainPending();
+                pending.hasTintMode = true;
+                pending.tintMode = DrawableUtils.parseTintMode(
+                        a.getInt(R.styleable.ViewBackgroundHelper_backgroundTintMode, -1), null);
+            }
+        } finally {
+            a.recycle();
+        }
+    }
+
+    /**
+     * Applies attributes read by {@link #readFromAttributes(AttributeSet, int)}, except ones
+     * set on the view since.
+     */
+    public void applyPendingAttributes() {
+        final PendingAttributes pending = mPending;
+        if (pending == null) return;
+        mPending = null;
+        if (pending.backgroundResId != -1) {
+            mHelper.onSetBackgroundResource(pending.backgroundResId);
+        }
+        if (pending.hasTintList) {
+            ViewCompat.setBackgroundTintList(mView, pending.tintList);
+        }
+        if (pending.hasTintMode) {
+            ViewCompat.setBackgroundTintMode(mView, pending.tintMode);
+        }
+    }
+
     public void setSupportBackgroundTintList(ColorStateList tint) {
+        if (mPending != null) {
+            mPending.hasTintList = false;
+        }
         mHelper.setSupportBackgroundTintList(tint);
     }
 
@@ -33,10 +93,16 @@ public class MVS_AppCompatBackgroundHelperAccessor {
     }
 
     public void onSetBackgroundResource(int resId) {
+        if (mPending != null) {
+            mPending.backgroundResId = -1;
+        }
         mHelper.onSetBackgroundResource(resId);
     }
 
     public void setSupportBackgroundTintMode(PorterDuff.Mode tintMode) {
+        if (mPending != null) {
+            mPending.hasTintMode = false;
+        }
         mHelper.setSupportBackgroundTintMode(tintMode);
     }
 
@@ -45,10 +111,28 @@ public class MVS_AppCompatBackgroundHelperAccessor {
     }
 
     public void onSetBackgroundDrawable(Drawable background) {
+        if (mPending != null) {
+            mPending.backgroundResId = -1;
+        }
         mHelper.onSetBackgroundDrawable(background);
     }
 
     public void setInternalBackgroundTint(ColorStateList tint) {
         mHelper.setInternalBackgroundTint(tint);
     }
+
+    private PendingAttributes obtainPending() {
+        if (mPending == null) {
+            mPending = new PendingAttributes();
+        }
+        return mPending;
+    }
+
+    private static class PendingAttributes {
+        int backgroundResId = -1;
+        boolean hasTintList;
+        ColorStateList tintList;
+        boolean hasTintMode;
+        PorterDuff.Mode tintMode;
+    }
 }
@@ -6,6 +6,10 @@ import android.content.Context;
  * Created by mariotaku on 16/4/30.
  */
 public class MVS_TintContextWrapperAccessor {
+    /**
+     * TintContextWrapper keeps an unsynchronized cache, callers constructing views on
+     * background threads must hold the lock they use for other appcompat lookups.
+     */
     public static Context wrap(Context context) {
         return TintContextWrapper.wrap(context);
     }
@@ -0,0 +1,78 @@
+package org.mariotaku.multivalueswitch.library;
+
+import java.util.ArrayDeque;
+
+/**
+ * Bounded buffer of values waiting for a slow consumer, applying one of the
+ * {@link MultiValueSwitchStreams} backpressure strategies when full. Not thread safe.
+ */
+final class BackpressureBuffer<T> {
+
+    private final int mStrategy;
+    private final int mCapacity;
+    private final ArrayDeque<T> mQueue;
+    private int mDroppedCount;
+
+    /**
+     * @param capacity Maximum number of values, ignored by
+     *                 {@link MultiValueSwitchStreams#BACKPRESSURE_LATEST}
+     */
+    BackpressureBuffer(int strategy, int capacity) {
+        mCapacity = getCapacity(strategy, capacity);
+        mStrategy = strategy;
+        mQueue = new ArrayDeque<>(mCapacity);
+    }
+
+    /**
+     * @return number of values a buffer with given strategy and requested capacity holds
+     * @throws IllegalArgumentException if strategy is unknown, or capacity isn't positive for
+     *                                  a strategy using it
+     */
+    static int getCapacity(int strategy, int capacity) {
+        switch (strategy) {
+            case MultiValueSwitchStreams.BACKPRESSURE_LATEST: {
+                return 1;
+            }
+            case MultiValueSwitchStreams.BACKPRESSURE_DROP:
+            case MultiValueSwitchStreams.BACKPRESSURE_BUFFER: {
+                if (capacity < 1) throw new IllegalArgumentException("capacity must be positive");
+                return capacity;
+            }
+            default: {
+                throw new IllegalArgumentException("Unknown strategy " + strategy);
+            }
+        }
+    }
+
+    /**
+     * @return false if value or an older value was dropped
+     */
+    boolean offer(T value) {
+        if (mQueue.size() < mCapacity) {
+            mQueue.add(value);
+            return true;
+        }
+        mDroppedCount++;
+        if (mStrategy == MultiValueSwitchStreams.BACKPRESSURE_DROP) return false;
+        // Conflate to latest, or drop oldest of a full buffer
+        mQueue.poll();
+        mQueue.add(value);
+        return false;
+    }
+
+    T poll() {
+        return mQueue.poll();
+    }
+
+    void clear() {
+        mQueue.clear();
+    }
+
+    int size() {
+        return mQueue.size();
+    }
+
+    int getDroppedCount() {
+        return mDroppedCount;
+    }
+}
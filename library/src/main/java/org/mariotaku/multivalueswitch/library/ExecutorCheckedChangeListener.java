@@ -0,0 +1,183 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Delivers committed checked changes to a listener on an {@link Executor}, so expensive
+ * handlers like persisting settings don't run on the UI thread.
+ * <p/>
+ * Changes are delivered in order, one at a time, even on a multi-threaded executor. Changes
+ * made while a delivery is pending are coalesced to the latest position. Use one instance
+ * per switch:
+ * <pre>
+ * switch.addOnCheckedChangeListener(new ExecutorCheckedChangeListener(executor, listener));
+ * </pre>
+ */
+public final class ExecutorCheckedChangeListener implements MultiValueSwitch.OnCheckedChangeListener {
+
+    private final Executor mExecutor;
+    private final MultiValueSwitch.OnCheckedChangeListener mListener;
+    @Nullable
+    private final Executor mCallbackExecutor;
+    @Nullable
+    private final OnCheckedChangeDeliveredListener mDeliveredListener;
+
+    private final Object mLock = new Object();
+    private boolean mHasPending;
+    private int mPendingPosition;
+    private boolean mDraining;
+
+    private boolean mHasDelivered;
+    private int mDeliveredPosition;
+    private boolean mCallbackScheduled;
+
+    private final Runnable mDrainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    private final Runnable mDeliveredRunnable = new Runnable() {
+        @Override
+        public void run() {
+            final int position;
+            synchronized (mLock) {
+                mCallbackScheduled = false;
+                if (!mHasDelivered) return;
+                mHasDelivered = false;
+                position = mDeliveredPosition;
+            }
+            //noinspection ConstantConditions
+            mDeliveredListener.onCheckedChangeDelivered(position);
+        }
+    };
+
+    /**
+     * @param executor Executor the listener is called on
+     * @param listener Listener receiving committed changes
+     */
+    public ExecutorCheckedChangeListener(@NonNull Executor executor,
+                                         @NonNull MultiValueSwitch.OnCheckedChangeListener listener) {
+        this(executor, listener, null, null);
+    }
+
+    /**
+     * @param executor          Executor the listener is called on
+     * @param listener          Listener receiving committed changes
+     * @param deliveredListener Called on the main thread after listener has handled a change
+     */
+    public ExecutorCheckedChangeListener(@NonNull Executor executor,
+                                         @NonNull MultiValueSwitch.OnCheckedChangeListener listener,
+                                         @NonNull OnCheckedChangeDeliveredListener deliveredListener) {
+        this(executor, listener, new MainThreadExecutor(), deliveredListener);
+    }
+
+    /**
+     * @param callbackExecutor Executor deliveredListener is called on
+     */
+    ExecutorCheckedChangeListener(@NonNull Executor executor,
+                                  @NonNull MultiValueSwitch.OnCheckedChangeListener listener,
+                                  @Nullable Executor callbackExecutor,
+                                  @Nullable OnCheckedChangeDeliveredListener deliveredListener) {
+        mExecutor = executor;
+        mListener = listener;
+        mCallbackExecutor = callbackExecutor;
+        mDeliveredListener = deliveredListener;
+    }
+
+    @Override
+    public void onCheckedChange(int position) {
+        synchronized (mLock) {
+            mPendingPosition = position;
+            mHasPending = true;
+            if (mDraining) return;
+            mDraining = true;
+        }
+        try {
+            mExecutor.execute(mDrainRunnable);
+        } catch (RuntimeException e) {
+            // Rejected, let the next change try again
+            synchronized (mLock) {
+                mDraining = false;
+            }
+            throw e;
+        }
+    }
+
+    private void drain() {
+        boolean drained = false;
+        try {
+            while (true) {
+                final int position;
+                synchronized (mLock) {
+                    if (!mHasPending) {
+                        mDraining = false;
+                        drained = true;
+                        return;
+                    }
+                    mHasPending = false;
+                    position = mPendingPosition;
+                }
+                mListener.onCheckedChange(position);
+                notifyDelivered(position);
+            }
+        } finally {
+            if (!drained) {
+                // Listener threw, hand changes made meanwhile to another drain instead of
+                // leaving them stuck until the next change
+                final boolean hasPending;
+                synchronized (mLock) {
+                    hasPending = mHasPending;
+                    mDraining = hasPending;
+                }
+                if (hasPending) {
+                    try {
+                        mExecutor.execute(mDrainRunnable);
+                    } catch (RuntimeException e) {
+                        // Rejected, the next change tries again. Don't hide the listener's
+                        // exception with this one.
+                        synchronized (mLock) {
+                            mDraining = false;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void notifyDelivered(int position) {
+        if (mCallbackExecutor == null || mDeliveredListener == null) return;
+        synchronized (mLock) {
+            mDeliveredPosition = position;
+            mHasDelivered = true;
+            if (mCallbackScheduled) return;
+            mCallbackScheduled = true;
+        }
+        mCallbackExecutor.execute(mDeliveredRunnable);
+    }
+
+    /**
+     * Acknowledges on the main thread that a change has been handled.
+     */
+    public interface OnCheckedChangeDeliveredListener {
+        /**
+         * @param position Latest position handled by the listener
+         */
+        void onCheckedChangeDelivered(int position);
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mHandler.post(command);
+        }
+    }
+}
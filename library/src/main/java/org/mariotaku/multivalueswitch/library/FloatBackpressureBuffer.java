@@ -0,0 +1,67 @@
+package org.mariotaku.multivalueswitch.library;
+
+/**
+ * {@link BackpressureBuffer} of primitive floats, so buffering a value per frame doesn't box
+ * it. Values are kept in a ring allocated once. Not thread safe.
+ */
+final class FloatBackpressureBuffer {
+
+    private final int mStrategy;
+    private final float[] mValues;
+    private int mHead;
+    private int mSize;
+    private int mDroppedCount;
+
+    /**
+     * @param capacity Maximum number of values, ignored by
+     *                 {@link MultiValueSwitchStreams#BACKPRESSURE_LATEST}
+     */
+    FloatBackpressureBuffer(int strategy, int capacity) {
+        mValues = new float[BackpressureBuffer.getCapacity(strategy, capacity)];
+        mStrategy = strategy;
+    }
+
+    /**
+     * @return false if value or an older value was dropped
+     */
+    boolean offer(float value) {
+        if (mSize < mValues.length) {
+            mValues[(mHead + mSize) % mValues.length] = value;
+            mSize++;
+            return true;
+        }
+        mDroppedCount++;
+        if (mStrategy == MultiValueSwitchStreams.BACKPRESSURE_DROP) return false;
+        // Conflate to latest, or drop oldest of a full buffer
+        mValues[mHead] = value;
+        mHead = (mHead + 1) % mValues.length;
+        return false;
+    }
+
+    /**
+     * @return oldest value, only valid if the buffer isn't empty
+     */
+    float poll() {
+        final float value = mValues[mHead];
+        mHead = (mHead + 1) % mValues.length;
+        mSize--;
+        return value;
+    }
+
+    void clear() {
+        mHead = 0;
+        mSize = 0;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    int getDroppedCount() {
+        return mDroppedCount;
+    }
+}
@@ -0,0 +1,78 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Runs a callback once at the next frame, however many times it's scheduled before then.
+ * Uses {@link Choreographer} where available and falls back to a main thread handler.
+ * Must be used on the main thread.
+ */
+abstract class FrameScheduler {
+
+    private final Runnable mCallback;
+    private boolean mScheduled;
+
+    FrameScheduler(Runnable callback) {
+        mCallback = callback;
+    }
+
+    static FrameScheduler create(Runnable callback) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return new ChoreographerFrameScheduler(callback);
+        }
+        return new HandlerFrameScheduler(callback);
+    }
+
+    final void schedule() {
+        if (mScheduled) return;
+        mScheduled = true;
+        post();
+    }
+
+    final void dispatch() {
+        mScheduled = false;
+        mCallback.run();
+    }
+
+    abstract void post();
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static class ChoreographerFrameScheduler extends FrameScheduler implements Choreographer.FrameCallback {
+
+        ChoreographerFrameScheduler(Runnable callback) {
+            super(callback);
+        }
+
+        @Override
+        void post() {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            dispatch();
+        }
+    }
+
+    private static class HandlerFrameScheduler extends FrameScheduler implements Runnable {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        HandlerFrameScheduler(Runnable callback) {
+            super(callback);
+        }
+
+        @Override
+        void post() {
+            mHandler.post(this);
+        }
+
+        @Override
+        public void run() {
+            dispatch();
+        }
+    }
+}
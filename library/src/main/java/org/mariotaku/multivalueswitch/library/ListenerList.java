@@ -0,0 +1,57 @@
+package org.mariotaku.multivalueswitch.library;
+
+/**
+ * Copy-on-write list of listeners. Adding and removing copy the backing array, so dispatch
+ * can iterate {@link #array()} without allocating, and listeners added or removed during
+ * dispatch don't affect the array being iterated.
+ */
+final class ListenerList<T> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private Object[] mListeners = EMPTY;
+
+    /**
+     * Adds listener to the end of the list, does nothing if it's already added.
+     */
+    void add(T listener) {
+        if (listener == null || indexOf(listener) >= 0) return;
+        final Object[] listeners = new Object[mListeners.length + 1];
+        System.arraycopy(mListeners, 0, listeners, 0, mListeners.length);
+        listeners[mListeners.length] = listener;
+        mListeners = listeners;
+    }
+
+    void remove(T listener) {
+        final int index = indexOf(listener);
+        if (index < 0) return;
+        if (mListeners.length == 1) {
+            mListeners = EMPTY;
+            return;
+        }
+        final Object[] listeners = new Object[mListeners.length - 1];
+        System.arraycopy(mListeners, 0, listeners, 0, index);
+        System.arraycopy(mListeners, index + 1, listeners, index, listeners.length - index);
+        mListeners = listeners;
+    }
+
+    boolean isEmpty() {
+        return mListeners.length == 0;
+    }
+
+    /**
+     * @return current listeners in the order they were added. Never modified, callers must
+     * not modify it either.
+     */
+    Object[] array() {
+        return mListeners;
+    }
+
+    private int indexOf(T listener) {
+        final Object[] listeners = mListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) return i;
+        }
+        return -1;
+    }
+}
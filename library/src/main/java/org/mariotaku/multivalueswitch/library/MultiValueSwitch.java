@@ -21,37 +21,42 @@ import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.res.ColorStateList;
 import android.graphics.Canvas;
-import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.Rect;
-import android.graphics.Region;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.DrawableRes;
 import android.support.annotation.IntRange;
+import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
 import android.support.v4.graphics.drawable.DrawableCompat;
 import android.support.v4.view.MotionEventCompat;
 import android.support.v4.view.TintableBackgroundView;
 import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.AppCompatDrawableManager;
 import android.support.v7.widget.MVS_AppCompatBackgroundHelperAccessor;
-import android.support.v7.widget.MVS_DrawableUtilsAccessor;
 import android.support.v7.widget.MVS_TintContextWrapperAccessor;
 import android.support.v7.widget.TintTypedArray;
 import android.support.v7.widget.ViewUtils;
-import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
 import android.view.SoundEffectConstants;
 import android.view.VelocityTracker;
 import android.view.View;
-import android.view.ViewConfiguration;
+import android.view.ViewParent;
 import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
 import android.view.accessibility.AccessibilityNodeInfo;
+import android.view.accessibility.AccessibilityNodeProvider;
 import android.view.animation.Animation;
 import android.view.animation.Transformation;
 
+import org.mariotaku.multivalueswitch.core.SwitchGeometry;
+import org.mariotaku.multivalueswitch.core.SwitchTouchTracker;
+
 /**
  * SwitchCompat is a version of the Switch widget which on devices back to API v7. It does not
  * make any attempt to use the platform provided widget on those devices which it is available
@@ -59,51 +64,50 @@ import android.view.animation.Transformation;
  */
 @SuppressWarnings("RestrictedApi")
 public class MultiValueSwitch extends View implements TintableBackgroundView {
-    private static final int THUMB_ANIMATION_DURATION = 250;
+    static final int THUMB_ANIMATION_DURATION = 250;
 
-    private static final int TOUCH_MODE_IDLE = 0;
-    private static final int TOUCH_MODE_DOWN = 1;
-    private static final int TOUCH_MODE_DRAGGING = 2;
+    static final float DEFAULT_DRAG_INTENT_ANGLE = 30;
 
-    // We force the accessibility events to have a class name of Switch, since screen readers
-    // already know how to handle their events
-    private static final String ACCESSIBILITY_EVENT_CLASS_NAME = "android.widget.Switch";
     private final MVS_AppCompatBackgroundHelperAccessor mBackgroundTintHelper;
+    /**
+     * Created on first accessibility query, or when accessibility is enabled while the switch
+     * has something to report. Most switches never need one.
+     */
+    @Nullable
+    private SwitchAccessibilityHelper mAccessibilityHelper;
 
     @Nullable
     private CharSequence[] mEntries;
 
 
+    /**
+     * Resolved style shared with other switches using the same theme and style.
+     */
+    private final SwitchStyle mStyle;
+
     private Drawable mThumbDrawable;
-    private ColorStateList mThumbTintList = null;
-    private PorterDuff.Mode mThumbTintMode = null;
-    private boolean mHasThumbTint = false;
-    private boolean mHasThumbTintMode = false;
+    /**
+     * Resource the thumb was loaded from, or 0 if unknown. Used to look up tinted drawables
+     * shared with other switches.
+     */
+    private int mThumbResId;
+    @Nullable
+    private DrawableTint mThumbTint;
 
     private Drawable mTrackDrawable;
-    private ColorStateList mTrackTintList = null;
-    private PorterDuff.Mode mTrackTintMode = null;
-    private boolean mHasTrackTint = false;
-    private boolean mHasTrackTintMode = false;
-
-    private ColorStateList mBackgroundTintList = null;
-    private PorterDuff.Mode mBackgroundTintMode = null;
-    private boolean mHasBackgroundTint = false;
-    private boolean mHasBackgroundTintMode = false;
+    private int mTrackResId;
+    @Nullable
+    private DrawableTint mTrackTint;
 
     private int mSwitchMinWidth;
     private int mSwitchPadding;
     private boolean mSplitTrack;
-    private Paint mPointPaint;
-    private float mPointRadius;
 
-    private int mTouchMode;
-    private int mTouchSlop;
-    private boolean mTouchDown;
-    private float mTouchX;
-    private float mTouchY;
-    private VelocityTracker mVelocityTracker = VelocityTracker.obtain();
-    private int mMinFlingVelocity;
+    private final SwitchTouchTracker mTouchTracker;
+    /**
+     * Only held during a gesture, obtained on ACTION_DOWN and recycled when it ends.
+     */
+    private VelocityTracker mVelocityTracker;
 
     private float mThumbPosition;
 
@@ -145,21 +149,90 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      */
     private int mSwitchBottom;
 
+    /**
+     * Running thumb animation, null when the thumb is settled.
+     */
     private ThumbAnimation mPositionAnimator;
+    /**
+     * Lazily created and reused by every position change.
+     */
+    private ThumbAnimation mThumbAnimation;
 
-    @SuppressWarnings("hiding")
-    private final Rect mTempRect = new Rect();
-
-    private final AppCompatDrawableManager mDrawableManager;
+    /**
+     * Only used during measure, layout, draw and touch handling, which all run on the UI thread.
+     */
+    private static final Rect sTempRect = new Rect();
 
     private static final int[] CHECKED_STATE_SET = {
             android.R.attr.state_checked
     };
+    private final ListenerList<OnCheckedChangeListener> mOnCheckedChangeListeners = new ListenerList<>();
+    /**
+     * Listener set by {@link #setOnCheckedChangeListener(OnCheckedChangeListener)}, also
+     * contained in mOnCheckedChangeListeners.
+     */
     private OnCheckedChangeListener mOnCheckedChangeListener;
+    /**
+     * Incremented on each checked change dispatch, so an outer dispatch can tell a listener
+     * has changed the position again.
+     */
+    private int mCheckedChangeDispatchCount;
     private int mMax;
+    private final ListenerList<OnThumbPositionChangeListener> mOnThumbPositionChangeListeners = new ListenerList<>();
     private OnThumbPositionChangeListener mOnCheckedOffsetChangeListener;
+    /**
+     * Only allocated once thumb position updates are throttled.
+     */
+    @Nullable
+    private ThumbPositionThrottle mThumbPositionThrottle;
     private int[] mHighlightCheckedPositions;
-    private int mTargetCheckedPosition;
+    private int mTargetCheckedPosition = -1;
+    /**
+     * Whether construction happened off the UI thread, and applying background attributes,
+     * enabled state and refreshing drawable state is left to {@link #onAttachedToWindow()}.
+     */
+    private boolean mPendingRefresh;
+    /**
+     * Whether style disabled a switch constructed off the UI thread, cleared by
+     * {@link #setEnabled(boolean)}.
+     */
+    private boolean mPendingDisabled;
+    /**
+     * Whether current drawable state includes {@link android.R.attr#state_checked}.
+     */
+    private boolean mDrawableStateChecked;
+    @Nullable
+    private MultiValueSwitchModel mModel;
+    @Nullable
+    private MultiValueSwitchModel.Observer mModelObserver;
+    @Nullable
+    private ListenerList<Runnable> mOnAttachCallbacks;
+    @Nullable
+    private ListenerList<Runnable> mOnDetachCallbacks;
+
+    @Nullable
+    private static SwitchMetrics sDefaultMetrics;
+    @Nullable
+    private SwitchMetrics mMetrics;
+    /**
+     * Uptime of the touch event that committed a position, until its checked change is
+     * dispatched. Only tracked with metrics set.
+     */
+    private long mInputEventTime;
+    /**
+     * Checked position when the current touch gesture started, -1 outside of one.
+     */
+    private int mGestureStartPosition = -1;
+
+    @Nullable
+    private static SwitchTracer sTracer;
+    /**
+     * Tracer the running transition's async section began with, so it's ended with the same.
+     */
+    @Nullable
+    private SwitchTracer mTransitionTracer;
+    @Nullable
+    private SwitchDebugOverlay mDebugOverlay;
 
 
     /**
@@ -194,52 +267,80 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      */
     @SuppressLint("PrivateResource")
     public MultiValueSwitch(Context context, AttributeSet attrs, int defStyleAttr) {
-        super(MVS_TintContextWrapperAccessor.wrap(context), attrs, defStyleAttr);
-
+        super(wrapContext(context), attrs, defStyleAttr);
 
-        mDrawableManager = AppCompatDrawableManager.get();
+        // Off the UI thread, e.g. in AsyncLayoutInflater, nothing that invalidates or
+        // changes drawable state runs until onAttachedToWindow
+        final boolean mainThread = Looper.myLooper() == Looper.getMainLooper();
         mBackgroundTintHelper = new MVS_AppCompatBackgroundHelperAccessor(this);
-        mBackgroundTintHelper.loadFromAttributes(attrs, defStyleAttr);
+        mMetrics = sDefaultMetrics;
+        synchronized (SwitchStyle.RESOLVE_LOCK) {
+            if (mainThread) {
+                mBackgroundTintHelper.loadFromAttributes(attrs, defStyleAttr);
+            } else {
+                mBackgroundTintHelper.readFromAttributes(attrs, defStyleAttr);
+            }
+        }
 
-        TintTypedArray a = TintTypedArray.obtainStyledAttributes(context,
-                attrs, android.support.v7.appcompat.R.styleable.SwitchCompat, defStyleAttr, 0);
-        mThumbDrawable = a.getDrawable(android.support.v7.appcompat.R.styleable.SwitchCompat_android_thumb);
+        mStyle = SwitchStyle.obtain(context, attrs, defStyleAttr);
+        mThumbDrawable = mStyle.newThumbDrawable(getResources());
+        mThumbResId = mStyle.thumbResId;
         if (mThumbDrawable != null) {
             mThumbDrawable.setCallback(this);
         }
-        mTrackDrawable = a.getDrawable(android.support.v7.appcompat.R.styleable.SwitchCompat_track);
+        mTrackDrawable = mStyle.newTrackDrawable(getResources());
+        mTrackResId = mStyle.trackResId;
         if (mTrackDrawable != null) {
             mTrackDrawable.setCallback(this);
         }
 
-        mPointPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
-        mPointPaint.setColor(0x33000000);
-        mPointPaint.setStyle(Paint.Style.FILL);
-        mPointRadius = getResources().getDisplayMetrics().density * 2;
-
-        mSwitchMinWidth = a.getDimensionPixelSize(
-                android.support.v7.appcompat.R.styleable.SwitchCompat_switchMinWidth, 0);
-        mSwitchPadding = a.getDimensionPixelSize(
-                android.support.v7.appcompat.R.styleable.SwitchCompat_switchPadding, 0);
-        mSplitTrack = a.getBoolean(android.support.v7.appcompat.R.styleable.SwitchCompat_splitTrack, false);
-
-        a.recycle();
+        mSwitchMinWidth = mStyle.switchMinWidth;
+        mSwitchPadding = mStyle.switchPadding;
+        mSplitTrack = mStyle.splitTrack;
+        mTouchTracker = new SwitchTouchTracker(mStyle.touchSlop);
+        // Usually smaller than touch slop, as mostly horizontal moves show intent early
+        mTouchTracker.setDragIntentSlop(mStyle.touchSlop / 2);
+        mTouchTracker.setDragIntentAngle(DEFAULT_DRAG_INTENT_ANGLE);
+
+        // Not laid out yet, so max is set without setMax requesting layout
+        final boolean enabled;
+        if (SwitchStyle.hasInstanceAttributes(attrs, R.styleable.MultiValueSwitch)) {
+            final TintTypedArray a = TintTypedArray.obtainStyledAttributes(context,
+                    attrs, R.styleable.MultiValueSwitch, defStyleAttr, 0);
+            mMax = a.getInt(R.styleable.MultiValueSwitch_android_max, 2);
+            setEntries(a.getTextArray(R.styleable.MultiValueSwitch_android_entries));
+            mThumbPosition = getThumbPosition(a.getInt(R.styleable.MultiValueSwitch_android_position, 0));
+            enabled = a.getBoolean(R.styleable.MultiValueSwitch_android_enabled, true);
+            a.recycle();
+        } else {
+            // Nothing set on this instance, copy values resolved from style
+            mMax = mStyle.max;
+            setEntries(mStyle.newEntries());
+            mThumbPosition = getThumbPosition(mStyle.position);
+            enabled = mStyle.enabled;
+        }
 
-        a = TintTypedArray.obtainStyledAttributes(context,
-                attrs, R.styleable.MultiValueSwitch, defStyleAttr, 0);
-        setMax(a.getInt(R.styleable.MultiValueSwitch_android_max, 2));
-        setEntries(a.getTextArray(R.styleable.MultiValueSwitch_android_entries));
-        mThumbPosition = getThumbPosition(a.getInt(R.styleable.MultiValueSwitch_android_position, 0));
-        setEnabled(a.getBoolean(R.styleable.MultiValueSwitch_android_enabled, true));
-        a.recycle();
+        if (mainThread) {
+            setEnabled(enabled);
+            // Refresh display with current params
+            refreshDrawableState();
+            setCheckedPosition(getCheckedPosition());
+        } else {
+            mPendingRefresh = true;
+            mPendingDisabled = !enabled;
+        }
+    }
 
-        final ViewConfiguration config = ViewConfiguration.get(context);
-        mTouchSlop = config.getScaledTouchSlop();
-        mMinFlingVelocity = config.getScaledMinimumFlingVelocity();
+    private static Context wrapContext(Context context) {
+        // Wrapping uses appcompat's unsynchronized cache
+        synchronized (SwitchStyle.RESOLVE_LOCK) {
+            return MVS_TintContextWrapperAccessor.wrap(context);
+        }
+    }
 
-        // Refresh display with current params
-        refreshDrawableState();
-        setCheckedPosition(getCheckedPosition());
+    @Nullable
+    public CharSequence[] getEntries() {
+        return mEntries;
     }
 
     public void setEntries(@Nullable CharSequence[] entries) {
@@ -287,13 +388,74 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
         return mSwitchMinWidth;
     }
 
+    /**
+     * Set the horizontal distance a touch must travel before the switch claims the drag,
+     * provided the movement stays within {@link #setDragIntentAngle(float) intent angle}.
+     * Movements that don't show a clear horizontal intent still fall back to touch slop.
+     *
+     * @param pixels Drag intent distance in pixels
+     */
+    public void setDragIntentSlop(int pixels) {
+        mTouchTracker.setDragIntentSlop(pixels);
+    }
+
+    /**
+     * Get the horizontal distance a touch must travel before the switch claims the drag.
+     *
+     * @return Drag intent distance in pixels
+     */
+    public int getDragIntentSlop() {
+        return mTouchTracker.getDragIntentSlop();
+    }
+
+    /**
+     * Set the maximum angle from horizontal, in degrees, for a movement to be treated as
+     * a drag intent. Pass 0 to only claim the drag after touch slop as before.
+     *
+     * @param degrees Angle between 0 and 90 degrees
+     */
+    public void setDragIntentAngle(float degrees) {
+        mTouchTracker.setDragIntentAngle(degrees);
+    }
+
+    /**
+     * Get the maximum angle from horizontal for a movement to be treated as a drag intent.
+     *
+     * @return Angle in degrees
+     */
+    public float getDragIntentAngle() {
+        return mTouchTracker.getDragIntentAngle();
+    }
+
+    /**
+     * Specifies whether a drag can start anywhere on the track, instead of only on the thumb.
+     *
+     * @param enabled Whether dragging from the track is allowed
+     */
+    public void setDragFromTrackEnabled(boolean enabled) {
+        mTouchTracker.setDragFromTrackEnabled(enabled);
+    }
+
+    /**
+     * Returns whether a drag can start anywhere on the track.
+     */
+    public boolean isDragFromTrackEnabled() {
+        return mTouchTracker.isDragFromTrackEnabled();
+    }
+
     /**
      * Set the drawable used for the track that the switch slides within.
      *
      * @param track Track drawable
      */
     public void setTrackDrawable(Drawable track) {
-        mTrackDrawable = track;
+        setTrackDrawableInternal(track, 0);
+    }
+
+    private void setTrackDrawableInternal(Drawable track, int resId) {
+        mTrackDrawable = replaceDrawable(mTrackDrawable, track);
+        mTrackResId = resId;
+        applyTrackTint();
         requestLayout();
     }
 
@@ -303,7 +465,7 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      * @param resId Resource ID of a track drawable
      */
     public void setTrackResource(int resId) {
-        setTrackDrawable(mDrawableManager.getDrawable(getContext(), resId));
+        setTrackDrawableInternal(AppCompatDrawableManager.get().getDrawable(getContext(), resId), resId);
     }
 
     /**
@@ -322,14 +484,19 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      * Subsequent calls to {@link #setTrackDrawable(Drawable)} will
      * automatically mutate the drawable and apply the specified tint and tint
      * mode using {@link Drawable#setTintList(ColorStateList)}.
+     * Drawables loaded from resources share one tinted state with other switches
+     * tinted the same way, see {@link TintedDrawableCache}.
      *
      * @param tint the tint to apply, may be {@code null} to clear tint
      * @see #getTrackTintList()
      * @see Drawable#setTintList(ColorStateList)
      */
     public void setTrackTintList(@Nullable ColorStateList tint) {
-        mTrackTintList = tint;
-        mHasTrackTint = true;
+        if (mTrackTint == null) {
+            mTrackTint = new DrawableTint();
+        }
+        mTrackTint.tintList = tint;
+        mTrackTint.hasTint = true;
 
         applyTrackTint();
     }
@@ -340,7 +507,7 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      */
     @Nullable
     public ColorStateList getTrackTintList() {
-        return mTrackTintList;
+        return mTrackTint != null ? mTrackTint.tintList : null;
     }
 
     /**
@@ -354,8 +521,11 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      * @see Drawable#setTintMode(PorterDuff.Mode)
      */
     public void setTrackTintMode(@Nullable PorterDuff.Mode tintMode) {
-        mTrackTintMode = tintMode;
-        mHasTrackTintMode = true;
+        if (mTrackTint == null) {
+            mTrackTint = new DrawableTint();
+        }
+        mTrackTint.tintMode = tintMode;
+        mTrackTint.hasTintMode = true;
 
         applyTrackTint();
     }
@@ -367,27 +537,30 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      */
     @Nullable
     public PorterDuff.Mode getTrackTintMode() {
-        return mTrackTintMode;
+        return mTrackTint != null ? mTrackTint.tintMode : null;
     }
 
-    private void applyTrackTint() {
-        if (mTrackDrawable != null && (mHasTrackTint || mHasTrackTintMode)) {
-            mTrackDrawable = mTrackDrawable.mutate();
-
-            if (mHasTrackTint) {
-                DrawableCompat.setTintList(mTrackDrawable, mTrackTintList);
-            }
+    /**
+     * Sets tint list and mode of the track drawable at once, so a drawable loaded from
+     * resource is looked up in {@link TintedDrawableCache} only once.
+     *
+     * @see #setTrackTintList(ColorStateList)
+     * @see #setTrackTintMode(PorterDuff.Mode)
+     */
+    public void setTrackTint(@Nullable ColorStateList tint, @Nullable PorterDuff.Mode tintMode) {
+        if (mTrackTint == null) {
+            mTrackTint = new DrawableTint();
+        }
+        mTrackTint.tintList = tint;
+        mTrackTint.hasTint = true;
+        mTrackTint.tintMode = tintMode;
+        mTrackTint.hasTintMode = true;
 
-            if (mHasTrackTintMode) {
-                DrawableCompat.setTintMode(mTrackDrawable, mTrackTintMode);
-            }
+        applyTrackTint();
+    }
 
-            // The drawable (or one of its children) may not have been
-            // stateful before applying the tint, so let's try again.
-            if (mTrackDrawable.isStateful()) {
-                mTrackDrawable.setState(getDrawableState());
-            }
-        }
+    private void applyTrackTint() {
+        mTrackDrawable = applyTint(mTrackDrawable, mTrackResId, mTrackTint);
     }
 
     /**
@@ -397,7 +570,13 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      * @param thumb Thumb drawable
      */
     public void setThumbDrawable(Drawable thumb) {
-        mThumbDrawable = thumb;
+        setThumbDrawableInternal(thumb, 0);
+    }
+
+    private void setThumbDrawableInternal(Drawable thumb, int resId) {
+        mThumbDrawable = replaceDrawable(mThumbDrawable, thumb);
+        mThumbResId = resId;
+        applyThumbTint();
         requestLayout();
     }
 
@@ -408,7 +587,7 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      * @param resId Resource ID of a thumb drawable
      */
     public void setThumbResource(int resId) {
-        setThumbDrawable(mDrawableManager.getDrawable(getContext(), resId));
+        setThumbDrawableInternal(AppCompatDrawableManager.get().getDrawable(getContext(), resId), resId);
     }
 
     /**
@@ -428,14 +607,19 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      * Subsequent calls to {@link #setThumbDrawable(Drawable)} will
      * automatically mutate the drawable and apply the specified tint and tint
      * mode using {@link Drawable#setTintList(ColorStateList)}.
+     * Drawables loaded from resources share one tinted state with other switches
+     * tinted the same way, see {@link TintedDrawableCache}.
      *
      * @param tint the tint to apply, may be {@code null} to clear tint
      * @see #getThumbTintList()
      * @see Drawable#setTintList(ColorStateList)
      */
     public void setThumbTintList(@Nullable ColorStateList tint) {
-        mThumbTintList = tint;
-        mHasThumbTint = true;
+        if (mThumbTint == null) {
+            mThumbTint = new DrawableTint();
+        }
+        mThumbTint.tintList = tint;
+        mThumbTint.hasTint = true;
 
         applyThumbTint();
     }
@@ -446,7 +630,7 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      */
     @Nullable
     public ColorStateList getThumbTintList() {
-        return mThumbTintList;
+        return mThumbTint != null ? mThumbTint.tintList : null;
     }
 
     /**
@@ -460,8 +644,11 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      * @see Drawable#setTintMode(PorterDuff.Mode)
      */
     public void setThumbTintMode(@Nullable PorterDuff.Mode tintMode) {
-        mThumbTintMode = tintMode;
-        mHasThumbTintMode = true;
+        if (mThumbTint == null) {
+            mThumbTint = new DrawableTint();
+        }
+        mThumbTint.tintMode = tintMode;
+        mThumbTint.hasTintMode = true;
 
         applyThumbTint();
     }
@@ -473,27 +660,77 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      */
     @Nullable
     public PorterDuff.Mode getThumbTintMode() {
-        return mThumbTintMode;
+        return mThumbTint != null ? mThumbTint.tintMode : null;
+    }
+
+    /**
+     * Sets tint list and mode of the thumb drawable at once, so a drawable loaded from
+     * resource is looked up in {@link TintedDrawableCache} only once.
+     *
+     * @see #setThumbTintList(ColorStateList)
+     * @see #setThumbTintMode(PorterDuff.Mode)
+     */
+    public void setThumbTint(@Nullable ColorStateList tint, @Nullable PorterDuff.Mode tintMode) {
+        if (mThumbTint == null) {
+            mThumbTint = new DrawableTint();
+        }
+        mThumbTint.tintList = tint;
+        mThumbTint.hasTint = true;
+        mThumbTint.tintMode = tintMode;
+        mThumbTint.hasTintMode = true;
+
+        applyThumbTint();
     }
 
     private void applyThumbTint() {
-        if (mThumbDrawable != null && (mHasThumbTint || mHasThumbTintMode)) {
-            mThumbDrawable = mThumbDrawable.mutate();
+        mThumbDrawable = applyTint(mThumbDrawable, mThumbResId, mThumbTint);
+    }
+
+    private Drawable applyTint(Drawable drawable, int resId, @Nullable DrawableTint tint) {
+        if (drawable != null && tint != null && (tint.hasTint || tint.hasTintMode)) {
+            if (resId != 0) {
+                // Drawable loaded from resource, share the tinted state with other switches
+                // tinted the same way. Looked up with tint list and mode together, so later
+                // changes to either pick another shared state instead of forking a copy.
+                final Drawable shared = TintedDrawableCache.get(getContext(), resId,
+                        tint.hasTint, tint.tintList, tint.hasTintMode, tint.tintMode);
+                if (shared != null) {
+                    shared.setBounds(drawable.getBounds());
+                    if (shared.isStateful()) {
+                        shared.setState(getDrawableState());
+                    }
+                    invalidateSwitch();
+                    return replaceDrawable(drawable, shared);
+                }
+            }
+            drawable = drawable.mutate();
 
-            if (mHasThumbTint) {
-                DrawableCompat.setTintList(mThumbDrawable, mThumbTintList);
+            if (tint.hasTint) {
+                DrawableCompat.setTintList(drawable, tint.tintList);
             }
 
-            if (mHasThumbTintMode) {
-                DrawableCompat.setTintMode(mThumbDrawable, mThumbTintMode);
+            if (tint.hasTintMode) {
+                DrawableCompat.setTintMode(drawable, tint.tintMode);
             }
 
             // The drawable (or one of its children) may not have been
             // stateful before applying the tint, so let's try again.
-            if (mThumbDrawable.isStateful()) {
-                mThumbDrawable.setState(getDrawableState());
+            if (drawable.isStateful()) {
+                drawable.setState(getDrawableState());
             }
         }
+        return drawable;
+    }
+
+    private Drawable replaceDrawable(@Nullable Drawable oldDrawable, @Nullable Drawable newDrawable) {
+        if (oldDrawable == newDrawable) return newDrawable;
+        if (oldDrawable != null) {
+            oldDrawable.setCallback(null);
+        }
+        if (newDrawable != null) {
+            newDrawable.setCallback(this);
+        }
+        return newDrawable;
     }
 
     @Override
@@ -507,6 +744,8 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
     @Override
     public void setBackgroundDrawable(Drawable background) {
         super.setBackgroundDrawable(background);
+        // Already invalidated as a whole by View
+        recordInvalidation(0, 0, getWidth(), getHeight());
         if (mBackgroundTintHelper != null) {
             mBackgroundTintHelper.onSetBackgroundDrawable(background);
         }
@@ -574,7 +813,7 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      */
     public void setSplitTrack(boolean splitTrack) {
         mSplitTrack = splitTrack;
-        invalidate();
+        invalidateSwitch();
     }
 
     /**
@@ -595,52 +834,27 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
 
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-
-        final Rect padding = mTempRect;
-        final int thumbWidth;
-        final int thumbHeight;
-        if (mThumbDrawable != null) {
-            // Cached thumb width does not include padding.
-            mThumbDrawable.getPadding(padding);
-            thumbWidth = mThumbDrawable.getIntrinsicWidth() - padding.left - padding.right;
-            thumbHeight = mThumbDrawable.getIntrinsicHeight();
-        } else {
-            thumbWidth = 0;
-            thumbHeight = 0;
-        }
-
-        mThumbWidth = thumbWidth;
-
-        final int trackHeight;
-        if (mTrackDrawable != null) {
-            mTrackDrawable.getPadding(padding);
-            trackHeight = mTrackDrawable.getIntrinsicHeight();
-        } else {
-            padding.setEmpty();
-            trackHeight = 0;
-        }
-
-        // Adjust left and right padding to ensure there's enough room for the
-        // thumb's padding (when present).
-        int paddingLeft = padding.left;
-        int paddingRight = padding.right;
-        if (mThumbDrawable != null) {
-            final Rect inset = MVS_DrawableUtilsAccessor.getOpticalBounds(mThumbDrawable);
-            paddingLeft = Math.max(paddingLeft, inset.left);
-            paddingRight = Math.max(paddingRight, inset.right);
-        }
-
-        final int switchWidth = Math.max(mSwitchMinWidth,
-                getMax() * mThumbWidth + paddingLeft + paddingRight);
-        final int switchHeight = Math.max(trackHeight, thumbHeight);
-        mSwitchWidth = switchWidth;
-        mSwitchHeight = switchHeight;
-
-        final int measuredHeight = getMeasuredHeight();
-        if (measuredHeight < switchHeight) {
-            setMeasuredDimension(switchWidth, switchHeight);
-        } else {
-            setMeasuredDimension(switchWidth, measuredHeight);
+        final SwitchTracer tracer = beginTrace(SwitchTracer.SECTION_MEASURE);
+        try {
+            if (mMetrics != null) {
+                mMetrics.measures++;
+            }
+            mThumbWidth = SwitchRenderer.measureThumbWidth(mThumbDrawable);
+            final int switchWidth = SwitchRenderer.measureSwitchWidth(mThumbDrawable,
+                    mTrackDrawable, mSwitchMinWidth, getMax(), mThumbWidth);
+            final int switchHeight = SwitchRenderer.measureSwitchHeight(mThumbDrawable,
+                    mTrackDrawable);
+            mSwitchWidth = switchWidth;
+            mSwitchHeight = switchHeight;
+
+            final int measuredHeight = getMeasuredHeight();
+            if (measuredHeight < switchHeight) {
+                setMeasuredDimension(switchWidth, switchHeight);
+            } else {
+                setMeasuredDimension(switchWidth, measuredHeight);
+            }
+        } finally {
+            endTrace(tracer);
         }
     }
 
@@ -663,77 +877,82 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
             return false;
         }
 
-        // Relies on mTempRect, MUST be called first!
         final int thumbOffset = getThumbOffset();
 
-        mThumbDrawable.getPadding(mTempRect);
-        final int thumbTop = mSwitchTop - mTouchSlop;
-        final int thumbLeft = mSwitchLeft + thumbOffset - mTouchSlop;
-        final int thumbRight = thumbLeft + mThumbWidth +
-                mTempRect.left + mTempRect.right + mTouchSlop;
-        final int thumbBottom = mSwitchBottom + mTouchSlop;
-        return x > thumbLeft && x < thumbRight && y > thumbTop && y < thumbBottom;
+        mThumbDrawable.getPadding(sTempRect);
+        return SwitchGeometry.hitThumb(x, y, mSwitchLeft, mSwitchTop, mSwitchBottom, thumbOffset,
+                mThumbWidth, sTempRect.left + sTempRect.right, mStyle.touchSlop);
+    }
+
+    /**
+     * @return true if (x, y) is within the target area of the switch track
+     */
+    private boolean hitTrack(float x, float y) {
+        if (mTrackDrawable == null) {
+            return false;
+        }
+        return SwitchGeometry.hitTrack(x, y, mSwitchLeft, mSwitchTop, mSwitchRight, mSwitchBottom,
+                mStyle.touchSlop);
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
-        mVelocityTracker.addMovement(ev);
+        final SwitchTracer tracer = sTracer;
+        if (tracer == null) return handleTouchEvent(ev);
+        final String section;
+        switch (MotionEventCompat.getActionMasked(ev)) {
+            case MotionEvent.ACTION_DOWN:
+                section = SwitchTracer.SECTION_TOUCH_DOWN;
+                break;
+            case MotionEvent.ACTION_MOVE:
+                section = SwitchTracer.SECTION_TOUCH_MOVE;
+                break;
+            default:
+                section = SwitchTracer.SECTION_TOUCH_UP;
+                break;
+        }
+        tracer.beginSection(section);
+        try {
+            return handleTouchEvent(ev);
+        } finally {
+            tracer.endSection();
+        }
+    }
+
+    private boolean handleTouchEvent(MotionEvent ev) {
         final int action = MotionEventCompat.getActionMasked(ev);
+        if (action == MotionEvent.ACTION_DOWN && mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        if (mVelocityTracker != null) {
+            mVelocityTracker.addMovement(ev);
+        }
         switch (action) {
             case MotionEvent.ACTION_DOWN: {
-                mTouchDown = true;
                 final float x = ev.getX();
                 final float y = ev.getY();
-                if (isEnabled() && hitThumb(x, y)) {
-                    mTouchMode = TOUCH_MODE_DOWN;
-                    mTouchX = x;
-                    mTouchY = y;
-                }
+                final boolean enabled = isEnabled();
+                // Thumb may be mid-way to an uncommitted position
+                mGestureStartPosition = mPositionAnimator != null
+                        ? mPositionAnimator.mStartCheckedPosition : getCheckedPosition();
+                mTouchTracker.onDown(x, y, enabled && hitThumb(x, y), enabled && hitTrack(x, y));
                 break;
             }
 
             case MotionEvent.ACTION_MOVE: {
-                switch (mTouchMode) {
-                    case TOUCH_MODE_IDLE: {
-                        // Didn't target the thumb, treat normally.
-                        break;
+                switch (mTouchTracker.onMove(ev.getX(), ev.getY())) {
+                    case SwitchTouchTracker.MOVE_CLAIMED_AND_DRAGGED: {
+                        // Claim the gesture before the parent does
+                        requestParentDisallowInterceptTouchEvent();
+                        dragThumb(ev.getX());
+                        return true;
                     }
-                    case TOUCH_MODE_DOWN: {
-                        mTouchDown = false;
-                        final float x = ev.getX();
-                        final float y = ev.getY();
-                        if (Math.abs(x - mTouchX) > mTouchSlop ||
-                                Math.abs(y - mTouchY) > mTouchSlop) {
-                            mTouchMode = TOUCH_MODE_DRAGGING;
-                            getParent().requestDisallowInterceptTouchEvent(true);
-                            mTouchX = x;
-                            mTouchY = y;
-                            return true;
-                        }
-                        break;
+                    case SwitchTouchTracker.MOVE_CLAIMED: {
+                        requestParentDisallowInterceptTouchEvent();
+                        return true;
                     }
-
-                    case TOUCH_MODE_DRAGGING: {
-                        mTouchDown = false;
-                        final float x = ev.getX();
-                        final int thumbScrollRange = getThumbScrollRange();
-                        final float thumbScrollOffset = x - mTouchX;
-                        float dPos;
-                        if (thumbScrollRange != 0) {
-                            dPos = thumbScrollOffset / thumbScrollRange;
-                        } else {
-                            // If the thumb scroll range is empty, just use the
-                            // movement direction to snap on or off.
-                            dPos = thumbScrollOffset > 0 ? 1 : -1;
-                        }
-                        if (ViewUtils.isLayoutRtl(this)) {
-                            dPos = -dPos;
-                        }
-                        final float newPos = constrain(mThumbPosition + dPos, 0, 1);
-                        if (newPos != mThumbPosition) {
-                            mTouchX = x;
-                            setThumbPosition(newPos);
-                        }
+                    case SwitchTouchTracker.MOVE_DRAGGED: {
+                        dragThumb(ev.getX());
                         return true;
                     }
                 }
@@ -742,33 +961,26 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
 
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL: {
-                final boolean touchedDown = mTouchDown;
-                mTouchDown = false;
-                if (mTouchMode == TOUCH_MODE_DRAGGING) {
+                final boolean dragging = mTouchTracker.isDragging();
+                final boolean touchedDown = mTouchTracker.onUp();
+                if (dragging) {
                     stopDrag(ev);
+                    mGestureStartPosition = -1;
+                    recycleVelocityTracker();
                     // Allow super class to handle pressed state, etc.
                     super.onTouchEvent(ev);
                     return true;
                 } else if (touchedDown && isEnabled()) {
                     // Handle click event
-                    final float x = ev.getX();
-
-                    final int thumbScrollStart = mSwitchLeft + mThumbWidth - mThumbWidth / 2;
-                    final int thumbScrollRange = mSwitchRight - mSwitchLeft - mThumbWidth;
-                    float thumbPos = 0;
-                    if (thumbScrollRange != 0) {
-                        thumbPos = constrain((x - thumbScrollStart) / thumbScrollRange, 0, 1);
-                    }
-                    if (ViewUtils.isLayoutRtl(this)) {
-                        thumbPos = 1 - thumbPos;
-                    }
-                    final int newCheckedPosition = getCheckedPosition(constrain(thumbPos, 0, 1));
+                    final int newCheckedPosition = SwitchGeometry.snapTouch(ev.getX(), mSwitchLeft,
+                            mSwitchRight, mThumbWidth, ViewUtils.isLayoutRtl(this), getMax());
                     if (newCheckedPosition != getCheckedPosition(mThumbPosition)) {
+                        markInputEvent(ev);
                         setCheckedPosition(newCheckedPosition);
                     }
                 }
-                mTouchMode = TOUCH_MODE_IDLE;
-                mVelocityTracker.clear();
+                mGestureStartPosition = -1;
+                recycleVelocityTracker();
                 break;
             }
         }
@@ -776,286 +988,584 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
         return super.onTouchEvent(ev);
     }
 
-    private void cancelSuperTouch(MotionEvent ev) {
-        MotionEvent cancel = MotionEvent.obtain(ev);
-        cancel.setAction(MotionEvent.ACTION_CANCEL);
-        super.onTouchEvent(cancel);
-        cancel.recycle();
-    }
-
     /**
-     * Called from onTouchEvent to end a drag operation.
-     *
-     * @param ev Event that triggered the end of drag mode - ACTION_UP or ACTION_CANCEL
+     * Moves the thumb by the horizontal distance between x and the last tracked touch point.
      */
-    private void stopDrag(MotionEvent ev) {
-        mTouchMode = TOUCH_MODE_IDLE;
-
-        // Commit the change if the event is up and not canceled and the switch
-        // has not been disabled during the drag.
-        final boolean commitChange = ev.getAction() == MotionEvent.ACTION_UP && isEnabled();
-        final int oldState = getCheckedPosition();
-        final int newState;
-        if (commitChange) {
-            mVelocityTracker.computeCurrentVelocity(1000);
-            final float xvel = mVelocityTracker.getXVelocity();
-            if (Math.abs(xvel) > mMinFlingVelocity) {
-                int diff = Math.round(xvel / (ViewUtils.isLayoutRtl(this) ? -Math.abs(xvel) : Math.abs(xvel)));
-                newState = Math.min(getMax() - 1, Math.max(0, getCheckedPosition() + diff));
-            } else {
-                newState = getCheckedPosition();
+    private void dragThumb(float x) {
+        final float newPos = SwitchGeometry.dragBy(mThumbPosition, x - mTouchTracker.getTouchX(),
+                getThumbScrollRange(), ViewUtils.isLayoutRtl(this));
+        if (newPos != mThumbPosition) {
+            final int oldPosition = getCheckedPosition();
+            mTouchTracker.setTouchX(x);
+            setThumbPosition(newPos, false);
+            final int newPosition = getCheckedPosition();
+            if (newPosition != oldPosition) {
+                final SwitchAccessibilityHelper helper = peekAccessibilityHelper();
+                if (helper != null) {
+                    helper.onThumbDragged(newPosition);
+                }
             }
-        } else {
-            newState = oldState;
         }
+    }
 
-        if (newState != oldState) {
-            playSoundEffect(SoundEffectConstants.CLICK);
+    private void requestParentDisallowInterceptTouchEvent() {
+        final ViewParent parent = getParent();
+        if (parent != null) {
+            parent.requestDisallowInterceptTouchEvent(true);
         }
-        // Always call setChecked so that the thumb is moved back to the correct edge
-        setCheckedPosition(newState);
-        cancelSuperTouch(ev);
     }
 
-    private void animateThumbToCheckedPosition(final int newCheckedPosition) {
-        mTargetCheckedPosition = newCheckedPosition;
-        if (mPositionAnimator != null) {
-            // If there's a current animator running, cancel it
-            cancelPositionAnimator();
+    private void recycleVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
         }
+    }
 
-        mPositionAnimator = new ThumbAnimation(mThumbPosition, getThumbPosition(newCheckedPosition));
-        mPositionAnimator.setDuration(THUMB_ANIMATION_DURATION);
-        mPositionAnimator.setAnimationListener(new Animation.AnimationListener() {
-            @Override
-            public void onAnimationStart(Animation animation) {
-                refreshDrawableState();
-            }
-
-            @Override
-            public void onAnimationEnd(Animation animation) {
-                if (mPositionAnimator == animation) {
-                    // If we're still the active animation, ensure the final position
-                    setThumbPosition(getThumbPosition(newCheckedPosition));
-                    mPositionAnimator = null;
-                    if (mOnCheckedChangeListener != null) {
-                        mOnCheckedChangeListener.onCheckedChange(newCheckedPosition);
-                    }
-                    mTargetCheckedPosition = -1;
-                    refreshDrawableState();
-                }
-            }
+    @VisibleForTesting
+    boolean hasVelocityTracker() {
+        return mVelocityTracker != null;
+    }
 
-            @Override
-            public void onAnimationRepeat(Animation animation) {
-            }
-        });
-        startAnimation(mPositionAnimator);
+    @VisibleForTesting
+    SwitchStyle getStyle() {
+        return mStyle;
     }
 
-    private float getThumbPosition(int checkedPosition) {
-        return constrain(checkedPosition / (float) (getMax() - 1), 0, 1);
+    /**
+     * @param outRect Receives bounds of the switch track as laid out
+     */
+    void getSwitchBounds(Rect outRect) {
+        outRect.set(mSwitchLeft, mSwitchTop, mSwitchRight, mSwitchBottom);
     }
 
-    private int getCheckedPosition(float thumbPosition) {
-        return Math.round(constrain(thumbPosition, 0, 1) * (getMax() - 1));
+    /**
+     * @return measured thumb width, not including its padding
+     */
+    int getThumbWidth() {
+        return mThumbWidth;
     }
 
-    private void cancelPositionAnimator() {
-        if (mPositionAnimator != null) {
-            clearAnimation();
-            mPositionAnimator = null;
-        }
+    /**
+     * @return true while the thumb animates to a checked position not dispatched yet
+     */
+    boolean isPositionAnimating() {
+        return mPositionAnimator != null;
     }
 
-    public void setCheckedPosition(int checkedPosition) {
-        if (getWindowToken() != null && ViewCompat.isLaidOut(this) && isShown()) {
-            animateThumbToCheckedPosition(checkedPosition);
-        } else {
-            mTargetCheckedPosition = -1;
-            final int oldPosition = getCheckedPosition();
-            // Immediately move the thumb to the new position.
-            cancelPositionAnimator();
-            setThumbPosition(getThumbPosition(checkedPosition));
-            if (oldPosition != checkedPosition) {
-                if (mOnCheckedChangeListener != null) {
-                    mOnCheckedChangeListener.onCheckedChange(checkedPosition);
-                }
-            }
+    /**
+     * @return accessibility helper, created and set as accessibility delegate on first call
+     */
+    @VisibleForTesting
+    SwitchAccessibilityHelper getAccessibilityHelper() {
+        if (mAccessibilityHelper == null) {
+            mAccessibilityHelper = new SwitchAccessibilityHelper(this);
+            ViewCompat.setAccessibilityDelegate(this, mAccessibilityHelper);
         }
-        refreshDrawableState();
+        return mAccessibilityHelper;
     }
 
-    public int getCheckedPosition() {
-        return getCheckedPosition(mThumbPosition);
+    @VisibleForTesting
+    boolean hasAccessibilityHelper() {
+        return mAccessibilityHelper != null;
     }
 
     /**
-     * Sets the thumb position as a decimal value between 0 (off) and 1 (on).
-     *
-     * @param thumbPosition new position between [0,1]
+     * @return accessibility helper if one was created or accessibility is enabled, otherwise
+     * null as there's nobody to send events to
      */
-    private void setThumbPosition(float thumbPosition) {
-        mThumbPosition = thumbPosition;
-        if (mOnCheckedOffsetChangeListener != null) {
-            final float positionOffset = constrain(thumbPosition, 0, 1) * (getMax() - 1);
-            mOnCheckedOffsetChangeListener.onThumbPositionChange(positionOffset);
-        }
-        invalidate();
+    @Nullable
+    private SwitchAccessibilityHelper peekAccessibilityHelper() {
+        if (mAccessibilityHelper != null) return mAccessibilityHelper;
+        final AccessibilityManager manager = (AccessibilityManager) getContext()
+                .getSystemService(Context.ACCESSIBILITY_SERVICE);
+        if (manager == null || !manager.isEnabled()) return null;
+        return getAccessibilityHelper();
     }
 
-
     @Override
-    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
-        super.onLayout(changed, left, top, right, bottom);
+    public AccessibilityNodeProvider getAccessibilityNodeProvider() {
+        // Where the framework starts querying virtual children since API 16
+        getAccessibilityHelper();
+        return super.getAccessibilityNodeProvider();
+    }
 
-        int opticalInsetLeft = 0;
-        int opticalInsetRight = 0;
-        if (mThumbDrawable != null) {
-            final Rect trackPadding = mTempRect;
-            if (mTrackDrawable != null) {
-                mTrackDrawable.getPadding(trackPadding);
-            } else {
-                trackPadding.setEmpty();
+    @Override
+    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
+        getAccessibilityHelper();
+        super.onInitializeAccessibilityNodeInfo(info);
+    }
+
+    @Override
+    public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
+        getAccessibilityHelper();
+        super.onInitializeAccessibilityEvent(event);
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        mPendingDisabled = false;
+        super.setEnabled(enabled);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        if (mPendingRefresh) {
+            mPendingRefresh = false;
+            mBackgroundTintHelper.applyPendingAttributes();
+            if (mPendingDisabled) {
+                setEnabled(false);
+            }
+            refreshDrawableState();
+            applyCheckedPosition(getCheckedPosition(), false);
+        }
+        if (mModel != null) {
+            mModel.addObserver(mModelObserver);
+            applyModel(false);
+        }
+        if (mOnAttachCallbacks != null) {
+            for (final Object callback : mOnAttachCallbacks.array()) {
+                ((Runnable) callback).run();
+            }
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        // A gesture can't continue once detached, don't keep the tracker around.
+        mTouchTracker.reset();
+        recycleVelocityTracker();
+        if (mAccessibilityHelper != null) {
+            mAccessibilityHelper.onDetached();
+        }
+        if (mPositionAnimator != null) {
+            // Won't get another frame once detached, settle now instead of leaving the
+            // transition and its trace open
+            final ThumbAnimation animation = mPositionAnimator;
+            cancelPositionAnimator();
+            animation.settle();
+        }
+        if (mThumbPositionThrottle != null) {
+            mThumbPositionThrottle.cancel();
+        }
+        if (mModel != null) {
+            mModel.removeObserver(mModelObserver);
+        }
+        if (mOnDetachCallbacks != null) {
+            for (final Object callback : mOnDetachCallbacks.array()) {
+                ((Runnable) callback).run();
             }
+        }
+        super.onDetachedFromWindow();
+    }
+
+    private void cancelSuperTouch(MotionEvent ev) {
+        // Temporarily rewrite the action instead of obtaining a copy, as ViewGroup does
+        final int oldAction = ev.getAction();
+        ev.setAction(MotionEvent.ACTION_CANCEL);
+        super.onTouchEvent(ev);
+        ev.setAction(oldAction);
+    }
+
+    /**
+     * Called from onTouchEvent to end a drag operation.
+     *
+     * @param ev Event that triggered the end of drag mode - ACTION_UP or ACTION_CANCEL
+     */
+    private void stopDrag(MotionEvent ev) {
+        // Commit the change if the event is up and not canceled and the switch
+        // has not been disabled during the drag.
+        final boolean commitChange = ev.getAction() == MotionEvent.ACTION_UP && isEnabled();
+        final int oldState = getCheckedPosition();
+        final int newState;
+        if (commitChange && mVelocityTracker != null) {
+            mVelocityTracker.computeCurrentVelocity(1000);
+            newState = SwitchGeometry.resolveFling(oldState, getMax(),
+                    mVelocityTracker.getXVelocity(), mStyle.minFlingVelocity,
+                    ViewUtils.isLayoutRtl(this));
+        } else {
+            newState = oldState;
+        }
 
-            final Rect insets = MVS_DrawableUtilsAccessor.getOpticalBounds(mThumbDrawable);
-            opticalInsetLeft = Math.max(0, insets.left - trackPadding.left);
-            opticalInsetRight = Math.max(0, insets.right - trackPadding.right);
+        if (newState != oldState) {
+            playSoundEffect(SoundEffectConstants.CLICK);
         }
+        if (commitChange) {
+            markInputEvent(ev);
+        }
+        // Always call setChecked so that the thumb is moved back to the correct edge
+        setCheckedPosition(newState);
+        cancelSuperTouch(ev);
+    }
 
-        final int switchRight;
-        final int switchLeft;
-        if (ViewUtils.isLayoutRtl(this)) {
-            switchLeft = getPaddingLeft() + opticalInsetLeft;
-            switchRight = switchLeft + mSwitchWidth - opticalInsetLeft - opticalInsetRight;
+    private void animateThumbToCheckedPosition(int newCheckedPosition) {
+        mTargetCheckedPosition = newCheckedPosition;
+        // Position last committed, a retargeted animation never committed its target
+        final int startCheckedPosition;
+        if (mGestureStartPosition >= 0) {
+            startCheckedPosition = mGestureStartPosition;
+        } else if (mPositionAnimator != null) {
+            startCheckedPosition = mPositionAnimator.mStartCheckedPosition;
         } else {
-            switchRight = getWidth() - getPaddingRight() - opticalInsetRight;
-            switchLeft = switchRight - mSwitchWidth + opticalInsetLeft + opticalInsetRight;
+            startCheckedPosition = getCheckedPosition();
+        }
+        if (mPositionAnimator != null) {
+            // If there's a current animator running, cancel it
+            cancelPositionAnimator();
+            if (mMetrics != null) {
+                mMetrics.animationRetargets++;
+            }
         }
 
-        final int switchTop = (getPaddingTop() + getHeight() - getPaddingBottom()) / 2 -
-                mSwitchHeight / 2;
-        final int switchBottom = switchTop + mSwitchHeight;
+        if (mThumbAnimation == null) {
+            mThumbAnimation = new ThumbAnimation();
+        }
+        // Reused, startAnimation() resets it
+        mThumbAnimation.setPositions(mThumbPosition, startCheckedPosition, newCheckedPosition);
+        mPositionAnimator = mThumbAnimation;
+        final SwitchTracer tracer = sTracer;
+        if (tracer != null) {
+            mTransitionTracer = tracer;
+            tracer.beginAsyncSection(SwitchTracer.ASYNC_SECTION_TRANSITION,
+                    System.identityHashCode(this));
+        }
+        startAnimation(mPositionAnimator);
+    }
 
-        mSwitchLeft = switchLeft;
-        mSwitchTop = switchTop;
-        mSwitchBottom = switchBottom;
-        mSwitchRight = switchRight;
+    private float getThumbPosition(int checkedPosition) {
+        return SwitchGeometry.getThumbPosition(checkedPosition, getMax());
     }
 
-    @Override
-    public void draw(Canvas c) {
-        final Rect padding = mTempRect;
-        final int switchLeft = mSwitchLeft;
-        final int switchTop = mSwitchTop;
-        final int switchRight = mSwitchRight;
-        final int switchBottom = mSwitchBottom;
+    private int getCheckedPosition(float thumbPosition) {
+        return SwitchGeometry.getCheckedPosition(thumbPosition, getMax());
+    }
 
-        int thumbInitialLeft = switchLeft + getThumbOffset();
+    private void cancelPositionAnimator() {
+        if (mPositionAnimator != null) {
+            // Cleared first, clearAnimation() may end the animation synchronously
+            mPositionAnimator = null;
+            endTransitionTrace();
+            clearAnimation();
+        }
+    }
 
-        final Rect thumbInsets;
-        if (mThumbDrawable != null) {
-            thumbInsets = MVS_DrawableUtilsAccessor.getOpticalBounds(mThumbDrawable);
+    public void setCheckedPosition(int checkedPosition) {
+        setCheckedPosition(checkedPosition, true);
+    }
+
+    /**
+     * Sets checked position, optionally without animating the thumb, e.g. when binding a
+     * recycled view.
+     *
+     * @param checkedPosition New checked position
+     * @param animate         Whether to animate when the switch is shown
+     */
+    public void setCheckedPosition(int checkedPosition, boolean animate) {
+        if (mModel != null) {
+            // Other switches sharing the model pick this up on next frame
+            mModel.setPosition(checkedPosition);
+        }
+        applyCheckedPosition(checkedPosition, animate
+                && getWindowToken() != null && ViewCompat.isLaidOut(this) && isShown());
+    }
+
+    /**
+     * Moves thumb to given position without updating model.
+     */
+    private void applyCheckedPosition(int checkedPosition, boolean animate) {
+        if (animate) {
+            animateThumbToCheckedPosition(checkedPosition);
         } else {
-            thumbInsets = MVS_DrawableUtilsAccessor.INSETS_NONE;
+            mTargetCheckedPosition = -1;
+            final int oldPosition = getCheckedPosition();
+            // Immediately move the thumb to the new position.
+            cancelPositionAnimator();
+            setThumbPosition(getThumbPosition(checkedPosition), true);
+            if (oldPosition != checkedPosition) {
+                dispatchCheckedChange(checkedPosition, true);
+            } else {
+                // Input didn't change anything, nothing to commit
+                mInputEventTime = 0;
+            }
         }
+        refreshCheckedState();
+    }
 
-        // Layout the track.
-        if (mTrackDrawable != null) {
-            mTrackDrawable.getPadding(padding);
-
-            // Adjust thumb position for track padding.
-            thumbInitialLeft += padding.left;
-
-            // If necessary, offset by the optical insets of the thumb asset.
-            int trackLeft = switchLeft;
-            int trackTop = switchTop;
-            int trackRight = switchRight;
-            int trackBottom = switchBottom;
-            if (thumbInsets != null) {
-                if (thumbInsets.left > padding.left) {
-                    trackLeft += thumbInsets.left - padding.left;
-                }
-                if (thumbInsets.top > padding.top) {
-                    trackTop += thumbInsets.top - padding.top;
-                }
-                if (thumbInsets.right > padding.right) {
-                    trackRight -= thumbInsets.right - padding.right;
-                }
-                if (thumbInsets.bottom > padding.bottom) {
-                    trackBottom -= thumbInsets.bottom - padding.bottom;
+    public int getCheckedPosition() {
+        return getCheckedPosition(mThumbPosition);
+    }
+
+    /**
+     * Binds this switch to a model shared with other switches. Position, max, entries and
+     * highlighted positions then follow the model, and positions checked by user are
+     * written to it. The switch only observes the model while attached to window.
+     *
+     * @param model Model to bind, or {@code null} to unbind
+     */
+    public void setModel(@Nullable MultiValueSwitchModel model) {
+        if (mModel == model) return;
+        final boolean attached = getWindowToken() != null;
+        if (mModel != null && attached) {
+            mModel.removeObserver(mModelObserver);
+        }
+        mModel = model;
+        if (model == null) return;
+        if (mModelObserver == null) {
+            mModelObserver = new MultiValueSwitchModel.Observer() {
+                @Override
+                public void onModelChanged(MultiValueSwitchModel model) {
+                    applyModel(true);
                 }
-            }
-            mTrackDrawable.setBounds(trackLeft, trackTop, trackRight, trackBottom);
+            };
         }
+        if (attached) {
+            model.addObserver(mModelObserver);
+        }
+        applyModel(false);
+    }
 
-        // Layout the thumb.
-        if (mThumbDrawable != null) {
-            mThumbDrawable.getPadding(padding);
+    @Nullable
+    public MultiValueSwitchModel getModel() {
+        return mModel;
+    }
 
-            final int thumbLeft = thumbInitialLeft - padding.left;
-            final int thumbRight = thumbInitialLeft + mThumbWidth + padding.right;
-            mThumbDrawable.setBounds(thumbLeft, switchTop, thumbRight, switchBottom);
+    private void applyModel(boolean animate) {
+        final MultiValueSwitchModel model = mModel;
+        if (model == null) return;
+        if (getMax() != model.getMax()) {
+            mEntries = null;
+            setMax(model.getMax());
+        }
+        if (mEntries != model.getEntries()) {
+            setEntries(model.getEntries());
+        }
+        if (mHighlightCheckedPositions != model.getHighlightCheckedPositions()) {
+            setHighlightCheckedPositions(model.getHighlightCheckedPositions());
+        }
+        final int position = model.getPosition();
+        final int current = mTargetCheckedPosition >= 0 ? mTargetCheckedPosition : getCheckedPosition();
+        // Nothing to do for the switch that made the change, no echo back to the model
+        if (current == position && (animate || mPositionAnimator == null)) return;
+        applyCheckedPosition(position, animate && getWindowToken() != null
+                && ViewCompat.isLaidOut(this) && isShown());
+    }
 
-            final Drawable background = getBackground();
-            if (background != null) {
-                DrawableCompat.setHotspotBounds(background, thumbLeft, switchTop,
-                        thumbRight, switchBottom);
+    /**
+     * Sets the thumb position as a decimal value between 0 (off) and 1 (on).
+     *
+     * @param thumbPosition new position between [0,1]
+     * @param settled       whether the thumb rests at a checked position
+     */
+    private void setThumbPosition(float thumbPosition, boolean settled) {
+        mThumbPosition = thumbPosition;
+        if (!mOnThumbPositionChangeListeners.isEmpty()) {
+            final float positionOffset = constrain(thumbPosition, 0, 1) * (getMax() - 1);
+            if (mThumbPositionThrottle != null) {
+                mThumbPositionThrottle.update(positionOffset, settled);
+            } else {
+                deliverThumbPositionChange(positionOffset);
             }
         }
+        invalidateSwitch();
+    }
 
-        // Draw the background.
-        super.draw(c);
+    /**
+     * @return thumb position in positions, between 0 and max - 1
+     */
+    float getThumbPositionOffset() {
+        return constrain(mThumbPosition, 0, 1) * (getMax() - 1);
     }
 
-    @Override
-    protected void onDraw(Canvas canvas) {
-        super.onDraw(canvas);
+    /**
+     * Adds a callback run at the end of {@link #onAttachedToWindow()}, after state deferred by
+     * construction off the UI thread is applied.
+     */
+    void addOnAttachCallback(Runnable callback) {
+        if (mOnAttachCallbacks == null) {
+            mOnAttachCallbacks = new ListenerList<>();
+        }
+        mOnAttachCallbacks.add(callback);
+    }
 
-        final Rect padding = mTempRect;
-        final Drawable trackDrawable = mTrackDrawable;
-        if (trackDrawable != null) {
-            trackDrawable.getPadding(padding);
-        } else {
-            padding.setEmpty();
+    void removeOnAttachCallback(Runnable callback) {
+        if (mOnAttachCallbacks != null) {
+            mOnAttachCallbacks.remove(callback);
         }
+    }
 
-        final Drawable thumbDrawable = mThumbDrawable;
-        if (trackDrawable != null) {
-            if (mSplitTrack && thumbDrawable != null) {
-                final Rect insets = MVS_DrawableUtilsAccessor.getOpticalBounds(thumbDrawable);
-                thumbDrawable.copyBounds(padding);
-                padding.left += insets.left;
-                padding.right -= insets.right;
+    void addOnDetachCallback(Runnable callback) {
+        if (mOnDetachCallbacks == null) {
+            mOnDetachCallbacks = new ListenerList<>();
+        }
+        mOnDetachCallbacks.add(callback);
+    }
 
-                final int saveCount = canvas.save();
-                canvas.clipRect(padding, Region.Op.DIFFERENCE);
-                trackDrawable.draw(canvas);
-                canvas.restoreToCount(saveCount);
-            } else {
-                trackDrawable.draw(canvas);
+    void removeOnDetachCallback(Runnable callback) {
+        if (mOnDetachCallbacks != null) {
+            mOnDetachCallbacks.remove(callback);
+        }
+    }
+
+    void deliverThumbPositionChange(float positionOffset) {
+        if (mDebugOverlay != null) {
+            mDebugOverlay.onDispatch();
+        }
+        for (final Object listener : mOnThumbPositionChangeListeners.array()) {
+            ((OnThumbPositionChangeListener) listener).onThumbPositionChange(positionOffset);
+        }
+    }
+
+    /**
+     * Specifies whether thumb position changes are delivered at most once per display frame,
+     * with the latest position. The position the thumb settles at is always delivered.
+     *
+     * @param conflate Whether to conflate thumb position changes per frame
+     */
+    public void setThumbPositionChangeConflated(boolean conflate) {
+        obtainThumbPositionThrottle().conflatePerFrame = conflate;
+    }
+
+    /**
+     * Skips thumb position changes that moved less than minDelta since the last delivered
+     * one, or arrived sooner than minIntervalMillis after it. The position the thumb settles
+     * at is always delivered.
+     *
+     * @param minDelta          Minimum change of position offset, in positions
+     * @param minIntervalMillis Minimum interval between changes in milliseconds
+     */
+    public void setThumbPositionChangeThreshold(float minDelta, long minIntervalMillis) {
+        final ThumbPositionThrottle throttle = obtainThumbPositionThrottle();
+        throttle.minDelta = minDelta;
+        throttle.minInterval = minIntervalMillis;
+    }
+
+    @VisibleForTesting
+    ThumbPositionThrottle obtainThumbPositionThrottle() {
+        if (mThumbPositionThrottle == null) {
+            mThumbPositionThrottle = new ThumbPositionThrottle(this);
+        }
+        return mThumbPositionThrottle;
+    }
+
+    /**
+     * @param changed Whether position differs from the one last committed, otherwise it's
+     *                not recorded to metrics
+     */
+    private void dispatchCheckedChange(int position, boolean changed) {
+        final SwitchTracer tracer = beginTrace(SwitchTracer.SECTION_DISPATCH_CHECKED_CHANGE);
+        try {
+            final SwitchAccessibilityHelper helper = peekAccessibilityHelper();
+            if (helper != null) {
+                helper.onCheckedPositionChanged(position);
+            }
+            final SwitchMetrics metrics = mMetrics;
+            if (!changed) {
+                mInputEventTime = 0;
+            }
+            if (metrics == null || !changed) {
+                deliverCheckedChange(position);
+                return;
             }
+            if (mInputEventTime != 0) {
+                metrics.getInputToCommitMillis().record(
+                        SystemClock.uptimeMillis() - mInputEventTime);
+                mInputEventTime = 0;
+            }
+            final long start = System.nanoTime();
+            deliverCheckedChange(position);
+            metrics.checkedChanges++;
+            metrics.getDispatchTimeMicros().record((System.nanoTime() - start) / 1000);
+        } finally {
+            endTrace(tracer);
+        }
+    }
 
-            final int thumbScrollStart = mSwitchLeft + mThumbWidth - mThumbWidth / 2;
-            final int thumbScrollRange = mSwitchRight - mSwitchLeft - mThumbWidth;
-            final int y = trackDrawable.getBounds().centerY();
-            for (int i = 0, j = getMax(); i < j; i++) {
-                if (i == 0 || i == j - 1) continue;
+    private void deliverCheckedChange(int position) {
+        if (mDebugOverlay != null) {
+            mDebugOverlay.onDispatch();
+        }
+        final int dispatchCount = ++mCheckedChangeDispatchCount;
+        for (final Object listener : mOnCheckedChangeListeners.array()) {
+            ((OnCheckedChangeListener) listener).onCheckedChange(position);
+            // A listener changed position again, remaining listeners already got the newer one
+            if (dispatchCount != mCheckedChangeDispatchCount) return;
+        }
+    }
 
-                canvas.drawCircle(thumbScrollStart + i * (thumbScrollRange / (j - 1)), y,
-                        mPointRadius, mPointPaint);
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        final SwitchTracer tracer = beginTrace(SwitchTracer.SECTION_LAYOUT);
+        try {
+            super.onLayout(changed, left, top, right, bottom);
+            if (mMetrics != null) {
+                mMetrics.layouts++;
             }
+
+            final Rect bounds = sTempRect;
+            SwitchRenderer.layoutSwitch(mThumbDrawable, mTrackDrawable, mSwitchWidth, mSwitchHeight,
+                    getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(),
+                    getHeight() - getPaddingBottom(), ViewUtils.isLayoutRtl(this), bounds);
+            mSwitchLeft = bounds.left;
+            mSwitchTop = bounds.top;
+            mSwitchBottom = bounds.bottom;
+            mSwitchRight = bounds.right;
+        } finally {
+            endTrace(tracer);
         }
+    }
+
+    @Override
+    public void draw(Canvas c) {
+        final SwitchTracer tracer = beginTrace(SwitchTracer.SECTION_DRAW);
+        try {
+            SwitchRenderer.setDrawableBounds(mThumbDrawable, mTrackDrawable, mSwitchLeft,
+                    mSwitchTop, mSwitchRight, mSwitchBottom, getThumbOffset(), mThumbWidth);
+
+            final Drawable background = getBackground();
+            if (background != null && mThumbDrawable != null) {
+                final Rect thumbBounds = mThumbDrawable.getBounds();
+                DrawableCompat.setHotspotBounds(background, thumbBounds.left, mSwitchTop,
+                        thumbBounds.right, mSwitchBottom);
+            }
+
+            final SwitchDebugOverlay overlay = mDebugOverlay;
+            final long drawStart = overlay != null ? System.nanoTime() : 0;
 
-        final int saveCount = canvas.save();
+            // Draw the background.
+            super.draw(c);
 
-        if (thumbDrawable != null) {
-            thumbDrawable.draw(canvas);
+            if (overlay != null) {
+                overlay.onDrawn(System.nanoTime() - drawStart);
+                drawDebugOverlay(c, overlay);
+            }
+        } finally {
+            endTrace(tracer);
         }
+    }
 
-        canvas.restoreToCount(saveCount);
+    @Override
+    protected void onDraw(Canvas canvas) {
+        final SwitchTracer tracer = beginTrace(SwitchTracer.SECTION_ON_DRAW);
+        try {
+            super.onDraw(canvas);
+            SwitchRenderer.draw(canvas, mThumbDrawable, mTrackDrawable, mSplitTrack, getMax(),
+                    mSwitchLeft, mSwitchRight, mThumbWidth, mStyle.pointRadius, mStyle.pointColor);
+        } finally {
+            endTrace(tracer);
+        }
+    }
 
+    private void drawDebugOverlay(Canvas canvas, SwitchDebugOverlay overlay) {
+        int thumbPadding = 0;
+        if (mThumbDrawable != null) {
+            mThumbDrawable.getPadding(sTempRect);
+            thumbPadding = sTempRect.left + sTempRect.right;
+        }
+        overlay.draw(canvas, getWidth(), getHeight(), mSwitchLeft, mSwitchTop, mSwitchRight,
+                mSwitchBottom, getThumbOffset(), mThumbWidth, thumbPadding, mStyle.touchSlop,
+                getMax(), ViewUtils.isLayoutRtl(this));
     }
 
     /**
@@ -1065,61 +1575,58 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
      * @return thumb offset
      */
     private int getThumbOffset() {
-        final float thumbPosition;
-        if (ViewUtils.isLayoutRtl(this)) {
-            thumbPosition = 1 - mThumbPosition;
-        } else {
-            thumbPosition = mThumbPosition;
-        }
-        return (int) (thumbPosition * getThumbScrollRange() + 0.5f);
+        return SwitchGeometry.getThumbOffset(mThumbPosition, ViewUtils.isLayoutRtl(this),
+                getThumbScrollRange());
     }
 
     private int getThumbScrollRange() {
-        if (mTrackDrawable != null) {
-            final Rect padding = mTempRect;
-            mTrackDrawable.getPadding(padding);
-
-            final Rect insets;
-            if (mThumbDrawable != null) {
-                insets = MVS_DrawableUtilsAccessor.getOpticalBounds(mThumbDrawable);
-            } else {
-                insets = MVS_DrawableUtilsAccessor.INSETS_NONE;
-            }
-
-            return mSwitchWidth - mThumbWidth - padding.left - padding.right
-                    - insets.left - insets.right;
-        } else {
-            return 0;
-        }
+        return SwitchRenderer.getThumbScrollRange(mThumbDrawable, mTrackDrawable, mSwitchWidth,
+                mThumbWidth);
     }
 
     @Override
     protected int[] onCreateDrawableState(int extraSpace) {
         final int[] drawableState = super.onCreateDrawableState(extraSpace + 1);
-        if (isInCheckedState()) {
+        mDrawableStateChecked = isInCheckedState();
+        if (mDrawableStateChecked) {
             mergeDrawableStates(drawableState, CHECKED_STATE_SET);
         }
         return drawableState;
     }
 
+    /**
+     * Refreshes drawable state only if the checked state changed, as building a new drawable
+     * state allocates.
+     */
+    private void refreshCheckedState() {
+        if (isInCheckedState() != mDrawableStateChecked) {
+            refreshDrawableState();
+        }
+    }
+
     @Override
     protected void drawableStateChanged() {
-        super.drawableStateChanged();
-        if (mBackgroundTintHelper != null) {
-            mBackgroundTintHelper.applySupportBackgroundTint();
-        }
+        final SwitchTracer tracer = beginTrace(SwitchTracer.SECTION_DRAWABLE_STATE);
+        try {
+            super.drawableStateChanged();
+            if (mBackgroundTintHelper != null) {
+                mBackgroundTintHelper.applySupportBackgroundTint();
+            }
 
-        final int[] myDrawableState = getDrawableState();
+            final int[] myDrawableState = getDrawableState();
 
-        if (mThumbDrawable != null) {
-            mThumbDrawable.setState(myDrawableState);
-        }
+            if (mThumbDrawable != null) {
+                mThumbDrawable.setState(myDrawableState);
+            }
 
-        if (mTrackDrawable != null) {
-            mTrackDrawable.setState(myDrawableState);
-        }
+            if (mTrackDrawable != null) {
+                mTrackDrawable.setState(myDrawableState);
+            }
 
-        invalidate();
+            invalidateSwitch();
+        } finally {
+            endTrace(tracer);
+        }
     }
 
     @Override
@@ -1137,6 +1644,16 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
         }
     }
 
+    @Override
+    public void invalidateDrawable(@NonNull Drawable drawable) {
+        // Background ripples and animated thumb or track invalidate themselves
+        if (verifyDrawable(drawable)) {
+            final Rect dirty = drawable.getDirtyBounds();
+            recordInvalidation(dirty.left, dirty.top, dirty.right, dirty.bottom);
+        }
+        super.invalidateDrawable(drawable);
+    }
+
     @Override
     protected boolean verifyDrawable(Drawable who) {
         return super.verifyDrawable(who) || who == mThumbDrawable || who == mTrackDrawable;
@@ -1156,34 +1673,15 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
             }
 
             cancelPositionAnimator();
-            setThumbPosition(getThumbPosition(getCheckedPosition()));
+            setThumbPosition(getThumbPosition(getCheckedPosition()), true);
         }
     }
 
-    @TargetApi(Build.VERSION_CODES.ICE_CREAM_SANDWICH)
-    @Override
-    public void onInitializeAccessibilityEvent(AccessibilityEvent event) {
-        super.onInitializeAccessibilityEvent(event);
-        event.setClassName(ACCESSIBILITY_EVENT_CLASS_NAME);
-    }
-
     @Override
-    public void onInitializeAccessibilityNodeInfo(AccessibilityNodeInfo info) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
-            super.onInitializeAccessibilityNodeInfo(info);
-            info.setClassName(ACCESSIBILITY_EVENT_CLASS_NAME);
-            CharSequence switchText = getEntry(getCheckedPosition());
-            if (!TextUtils.isEmpty(switchText)) {
-                CharSequence oldText = info.getText();
-                if (TextUtils.isEmpty(oldText)) {
-                    info.setText(switchText);
-                } else {
-                    StringBuilder newText = new StringBuilder();
-                    newText.append(oldText).append(' ').append(switchText);
-                    info.setText(newText);
-                }
-            }
-        }
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        final SwitchAccessibilityHelper helper = peekAccessibilityHelper();
+        return (helper != null && helper.dispatchHoverEvent(event))
+                || super.dispatchHoverEvent(event);
     }
 
     private boolean isInCheckedState() {
@@ -1193,22 +1691,151 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
         if (checkedPosition < 0) {
             checkedPosition = getCheckedPosition();
         }
-        for (final int highlightPosition : highlightPositions) {
-            if (checkedPosition == highlightPosition) return true;
-        }
-        return false;
+        return SwitchGeometry.isHighlighted(highlightPositions, checkedPosition);
     }
 
-    private CharSequence getEntry(int position) {
+    CharSequence getEntry(int position) {
         if (mEntries == null) return null;
         return mEntries[position];
     }
 
+    private static float constrain(float amount, float low, float high) {
+        return SwitchGeometry.constrain(amount, low, high);
+    }
+
     /**
-     * Taken from android.util.MathUtils
+     * Records counters and latencies of this switch into metrics, null to stop.
      */
-    private static float constrain(float amount, float low, float high) {
-        return amount < low ? low : (amount > high ? high : amount);
+    public void setMetrics(@Nullable SwitchMetrics metrics) {
+        mMetrics = metrics;
+        mInputEventTime = 0;
+    }
+
+    @Nullable
+    public SwitchMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Sets metrics used by switches created afterwards, e.g. from Application.onCreate()
+     * to collect from all switches. Null by default, which costs nothing.
+     */
+    public static void setDefaultMetrics(@Nullable SwitchMetrics metrics) {
+        sDefaultMetrics = metrics;
+    }
+
+    @Nullable
+    public static SwitchMetrics getDefaultMetrics() {
+        return sDefaultMetrics;
+    }
+
+    /**
+     * Sets tracer receiving sections of all switches, e.g. {@link SwitchTracer#system()}.
+     * Null by default, which costs a field read per section.
+     */
+    public static void setTracer(@Nullable SwitchTracer tracer) {
+        sTracer = tracer;
+    }
+
+    @Nullable
+    public static SwitchTracer getTracer() {
+        return sTracer;
+    }
+
+    @Nullable
+    private static SwitchTracer beginTrace(String section) {
+        final SwitchTracer tracer = sTracer;
+        if (tracer != null) {
+            tracer.beginSection(section);
+        }
+        return tracer;
+    }
+
+    private static void endTrace(@Nullable SwitchTracer tracer) {
+        if (tracer != null) {
+            tracer.endSection();
+        }
+    }
+
+    private void endTransitionTrace() {
+        if (mTransitionTracer != null) {
+            mTransitionTracer.endAsyncSection(SwitchTracer.ASYNC_SECTION_TRANSITION,
+                    System.identityHashCode(this));
+            mTransitionTracer = null;
+        }
+    }
+
+    /**
+     * Draws thumb hit rect, stop positions, last invalidated region and a sparkline of recent
+     * draw durations (green) and listener dispatches (orange) over the switch. Meant for
+     * tuning during development, costs nothing while disabled.
+     */
+    public void setDebugOverlayEnabled(boolean enabled) {
+        if (enabled == (mDebugOverlay != null)) return;
+        mDebugOverlay = enabled ? new SwitchDebugOverlay() : null;
+        invalidateRegion(0, 0, getWidth(), getHeight());
+    }
+
+    public boolean isDebugOverlayEnabled() {
+        return mDebugOverlay != null;
+    }
+
+    @VisibleForTesting
+    @Nullable
+    SwitchDebugOverlay getDebugOverlay() {
+        return mDebugOverlay;
+    }
+
+    /**
+     * Invalidates the switch after thumb, track or drawable state changes. Only the area
+     * the thumb and track can cover is invalidated, not the rest of the view.
+     */
+    private void invalidateSwitch() {
+        if (mSwitchRight <= mSwitchLeft) {
+            // Not laid out yet
+            invalidateRegion(0, 0, getWidth(), getHeight());
+            return;
+        }
+        int left = mSwitchLeft, top = mSwitchTop, right = mSwitchRight, bottom = mSwitchBottom;
+        if (mThumbDrawable != null) {
+            // Thumb reaches out by its padding at either end
+            mThumbDrawable.getPadding(sTempRect);
+            left -= sTempRect.left;
+            right += sTempRect.right;
+        }
+        if (mDebugOverlay != null) {
+            // Thumb hit rect is drawn with touch slop around it
+            final int touchSlop = mStyle.touchSlop;
+            left -= touchSlop;
+            top -= touchSlop;
+            right += touchSlop;
+            bottom += touchSlop;
+        }
+        invalidateRegion(left, top, right, bottom);
+    }
+
+    /**
+     * All invalidation by this view goes through here, so metrics and debug overlay see the
+     * region actually invalidated.
+     */
+    private void invalidateRegion(int left, int top, int right, int bottom) {
+        recordInvalidation(left, top, right, bottom);
+        invalidate(left, top, right, bottom);
+    }
+
+    private void recordInvalidation(int left, int top, int right, int bottom) {
+        if (mMetrics != null) {
+            mMetrics.invalidations++;
+        }
+        if (mDebugOverlay != null) {
+            mDebugOverlay.onInvalidate(left, top, right, bottom);
+        }
+    }
+
+    private void markInputEvent(MotionEvent ev) {
+        if (mMetrics != null) {
+            mInputEventTime = ev.getEventTime();
+        }
     }
 
     public int getMax() {
@@ -1218,14 +1845,58 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
     public void setMax(@IntRange(from = 2) int max) {
         mMax = max;
         requestLayout();
+        // Stops move even if the size stays the same
+        invalidateSwitch();
     }
 
+    /**
+     * Replaces the listener previously set by this method. Listeners added by
+     * {@link #addOnCheckedChangeListener(OnCheckedChangeListener)} are kept.
+     */
     public void setOnCheckedChangeListener(OnCheckedChangeListener onCheckedChangeListener) {
+        mOnCheckedChangeListeners.remove(mOnCheckedChangeListener);
         mOnCheckedChangeListener = onCheckedChangeListener;
+        mOnCheckedChangeListeners.add(onCheckedChangeListener);
     }
 
+    /**
+     * Adds a listener called when checked position changes. Listeners are called in the order
+     * they were added, and may add or remove listeners or change position while being called.
+     */
+    public void addOnCheckedChangeListener(OnCheckedChangeListener listener) {
+        mOnCheckedChangeListeners.add(listener);
+    }
+
+    public void removeOnCheckedChangeListener(OnCheckedChangeListener listener) {
+        mOnCheckedChangeListeners.remove(listener);
+        if (mOnCheckedChangeListener == listener) {
+            mOnCheckedChangeListener = null;
+        }
+    }
+
+    /**
+     * Replaces the listener previously set by this method. Listeners added by
+     * {@link #addOnThumbPositionChangeListener(OnThumbPositionChangeListener)} are kept.
+     */
     public void setOnThumbOffsetChangeListener(OnThumbPositionChangeListener onCheckedOffsetChangeListener) {
+        mOnThumbPositionChangeListeners.remove(mOnCheckedOffsetChangeListener);
         mOnCheckedOffsetChangeListener = onCheckedOffsetChangeListener;
+        mOnThumbPositionChangeListeners.add(onCheckedOffsetChangeListener);
+    }
+
+    /**
+     * Adds a listener called on every thumb movement, in the order listeners were added.
+     * Dispatch doesn't allocate.
+     */
+    public void addOnThumbPositionChangeListener(OnThumbPositionChangeListener listener) {
+        mOnThumbPositionChangeListeners.add(listener);
+    }
+
+    public void removeOnThumbPositionChangeListener(OnThumbPositionChangeListener listener) {
+        mOnThumbPositionChangeListeners.remove(listener);
+        if (mOnCheckedOffsetChangeListener == listener) {
+            mOnCheckedOffsetChangeListener = null;
+        }
     }
 
     public interface OnCheckedChangeListener {
@@ -1236,20 +1907,79 @@ public class MultiValueSwitch extends View implements TintableBackgroundView {
         void onThumbPositionChange(float positionOffset);
     }
 
-    private class ThumbAnimation extends Animation {
-        final float mStartPosition;
-        final float mEndPosition;
-        final float mDiff;
+    /**
+     * Tint bookkeeping, only allocated once a tint is set on this instance.
+     */
+    private static class DrawableTint {
+        ColorStateList tintList;
+        PorterDuff.Mode tintMode;
+        boolean hasTint;
+        boolean hasTintMode;
+    }
+
+    private class ThumbAnimation extends Animation implements Animation.AnimationListener {
+        float mStartPosition;
+        float mEndPosition;
+        float mDiff;
+        int mStartCheckedPosition;
+        int mEndCheckedPosition;
+
+        private ThumbAnimation() {
+            setDuration(THUMB_ANIMATION_DURATION);
+            setAnimationListener(this);
+        }
 
-        private ThumbAnimation(float startPosition, float endPosition) {
+        void setPositions(float startPosition, int startCheckedPosition, int endCheckedPosition) {
             mStartPosition = startPosition;
-            mEndPosition = endPosition;
-            mDiff = endPosition - startPosition;
+            mStartCheckedPosition = startCheckedPosition;
+            mEndPosition = getThumbPosition(endCheckedPosition);
+            mDiff = mEndPosition - startPosition;
+            mEndCheckedPosition = endCheckedPosition;
         }
 
         @Override
         protected void applyTransformation(float interpolatedTime, Transformation t) {
-            setThumbPosition(mStartPosition + (mDiff * interpolatedTime));
+            final SwitchTracer tracer = beginTrace(SwitchTracer.SECTION_ANIMATION_FRAME);
+            try {
+                if (mMetrics != null) {
+                    mMetrics.framesAnimated++;
+                }
+                setThumbPosition(mStartPosition + (mDiff * interpolatedTime), false);
+            } finally {
+                endTrace(tracer);
+            }
+        }
+
+        @Override
+        public void onAnimationStart(Animation animation) {
+            refreshCheckedState();
+        }
+
+        @Override
+        public void onAnimationEnd(Animation animation) {
+            // End of a cancelled run may be posted after this animation restarted
+            if (mPositionAnimator == this && hasEnded()) {
+                // If we're still the active animation, ensure the final position
+                settle();
+            }
+        }
+
+        /**
+         * Moves the thumb to the end position and commits it.
+         */
+        void settle() {
+            setThumbPosition(mEndPosition, true);
+            mPositionAnimator = null;
+            endTransitionTrace();
+            // Dragged and released where it was is no change for metrics
+            dispatchCheckedChange(mEndCheckedPosition,
+                    mEndCheckedPosition != mStartCheckedPosition);
+            mTargetCheckedPosition = -1;
+            refreshCheckedState();
+        }
+
+        @Override
+        public void onAnimationRepeat(Animation animation) {
         }
     }
-}
\ No newline at end of file
+}
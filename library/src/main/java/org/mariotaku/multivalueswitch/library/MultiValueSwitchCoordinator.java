@@ -0,0 +1,266 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.v4.util.SimpleArrayMap;
+
+/**
+ * Coordinates many {@link MultiValueSwitch}es changed together, e.g. by a "reset all" action.
+ * <p/>
+ * Positions set through {@link #setCheckedPosition(MultiValueSwitch, int)} are applied
+ * together at the next frame, optionally staggered so their animations don't all start in
+ * the same frame. Checked changes of registered switches, whether made by user or code, are
+ * delivered to {@link OnCheckedChangeListener} with all switches changed since the last
+ * delivery. While a batch is running, i.e. staggered positions are left to apply or switches
+ * of the batch are still animating, changes are held, so a batch is delivered in one call.
+ * Otherwise changes are delivered at most once per frame.
+ * <p/>
+ * Must be used on the main thread. Registered switches are held until unregistered.
+ */
+public class MultiValueSwitchCoordinator {
+
+    private final SimpleArrayMap<MultiValueSwitch, SwitchListener> mListeners = new SimpleArrayMap<>();
+    private final FrameScheduler mFrameScheduler = FrameScheduler.create(new Runnable() {
+        @Override
+        public void run() {
+            doFrame();
+        }
+    });
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mStaggerRunnable = new Runnable() {
+        @Override
+        public void run() {
+            applyStaggered(false);
+        }
+    };
+
+    // Positions waiting for next frame
+    private Batch mPending = new Batch();
+    // Positions applied one by one with stagger delay, starting at mStaggerStartTime
+    private Batch mStaggered = new Batch();
+    private int mStaggerIndex;
+    private long mStaggerStartTime;
+    private long mStaggerDelayMillis;
+    // Switches of a batch animating to their positions, changes are held until they settle
+    private Batch mSettling = new Batch();
+
+    // Changes waiting for delivery, swapped with mDelivering while listener is called
+    private Batch mChanged = new Batch();
+    private Batch mDelivering = new Batch();
+
+    @Nullable
+    private OnCheckedChangeListener mOnCheckedChangeListener;
+
+    /**
+     * Registers a switch, so its checked changes are delivered to the listener. Registering
+     * a switch twice has no effect.
+     */
+    public void register(MultiValueSwitch view) {
+        if (mListeners.containsKey(view)) return;
+        final SwitchListener listener = new SwitchListener(view);
+        mListeners.put(view, listener);
+        view.addOnCheckedChangeListener(listener);
+    }
+
+    /**
+     * Unregisters a switch, dropping positions and changes not yet applied or delivered.
+     */
+    public void unregister(MultiValueSwitch view) {
+        final SwitchListener listener = mListeners.remove(view);
+        if (listener == null) return;
+        view.removeOnCheckedChangeListener(listener);
+        mPending.remove(view);
+        if (mStaggered.remove(view) < mStaggerIndex) {
+            mStaggerIndex--;
+        }
+        mChanged.remove(view);
+        mSettling.remove(view);
+    }
+
+    /**
+     * Sets position of a registered switch at the next frame, together with other positions
+     * set before then. Setting position of the same switch again before the next frame
+     * replaces the earlier one.
+     */
+    public void setCheckedPosition(MultiValueSwitch view, int position) {
+        if (!mListeners.containsKey(view)) throw new IllegalArgumentException("Switch not registered");
+        mPending.put(view, position);
+        mFrameScheduler.schedule();
+    }
+
+    /**
+     * Sets delay between starting animations of switches in the same batch, 0 to start all
+     * of them in the same frame.
+     */
+    public void setStaggerDelay(long delayMillis) {
+        if (delayMillis < 0) throw new IllegalArgumentException();
+        mStaggerDelayMillis = delayMillis;
+    }
+
+    public long getStaggerDelay() {
+        return mStaggerDelayMillis;
+    }
+
+    public void setOnCheckedChangeListener(@Nullable OnCheckedChangeListener listener) {
+        mOnCheckedChangeListener = listener;
+    }
+
+    private void doFrame() {
+        if (mPending.size > 0) {
+            // A new batch supersedes the staggered one, finish it right away
+            applyStaggered(true);
+            if (mStaggerDelayMillis > 0) {
+                final Batch staggered = mPending;
+                mPending = mStaggered;
+                mStaggered = staggered;
+                mStaggerIndex = 0;
+                mStaggerStartTime = SystemClock.uptimeMillis();
+                applyStaggered(false);
+            } else {
+                for (int i = 0; i < mPending.size; i++) {
+                    apply(mPending.views[i], mPending.positions[i]);
+                }
+                mPending.clear();
+            }
+        }
+        deliverChanges();
+    }
+
+    /**
+     * Applies staggered positions that are due, or all of them if finish is true, and
+     * schedules the next one.
+     */
+    private void applyStaggered(boolean finish) {
+        mHandler.removeCallbacks(mStaggerRunnable);
+        final long elapsed = SystemClock.uptimeMillis() - mStaggerStartTime;
+        while (mStaggerIndex < mStaggered.size
+                && (finish || mStaggerIndex * mStaggerDelayMillis <= elapsed)) {
+            final int index = mStaggerIndex++;
+            apply(mStaggered.views[index], mStaggered.positions[index]);
+        }
+        if (mStaggerIndex < mStaggered.size) {
+            mHandler.postAtTime(mStaggerRunnable,
+                    mStaggerStartTime + mStaggerIndex * mStaggerDelayMillis);
+        } else if (mStaggered.size > 0) {
+            mStaggered.clear();
+            mStaggerIndex = 0;
+            // Deliver changes held while staggering
+            mFrameScheduler.schedule();
+        }
+    }
+
+    private void apply(MultiValueSwitch view, int position) {
+        view.setCheckedPosition(position);
+        if (view.isPositionAnimating()) {
+            mSettling.put(view, position);
+        }
+    }
+
+    private void deliverChanges() {
+        if (mChanged.size == 0) return;
+        if (mStaggerIndex < mStaggered.size) return;
+        for (int i = mSettling.size - 1; i >= 0; i--) {
+            if (!mSettling.views[i].isPositionAnimating()) {
+                mSettling.remove(mSettling.views[i]);
+            }
+        }
+        if (mSettling.size > 0) {
+            // An animation may end without a change to wake us up, check again next frame
+            mFrameScheduler.schedule();
+            return;
+        }
+        final Batch delivering = mChanged;
+        mChanged = mDelivering;
+        mDelivering = delivering;
+        if (mOnCheckedChangeListener != null) {
+            mOnCheckedChangeListener.onCheckedChange(delivering.views, delivering.positions,
+                    delivering.size);
+        }
+        delivering.clear();
+    }
+
+    void onSwitchCheckedChange(MultiValueSwitch view, int position) {
+        mChanged.put(view, position);
+        mFrameScheduler.schedule();
+    }
+
+    /**
+     * Notified of checked changes of registered switches, once per batch, or at most once
+     * per frame outside of batches.
+     */
+    public interface OnCheckedChangeListener {
+        /**
+         * @param switches  Changed switches, in order of their first change. Only valid
+         *                  during this call, and only the first count elements are used
+         * @param positions Latest checked position of each switch
+         * @param count     Number of changed switches
+         */
+        void onCheckedChange(MultiValueSwitch[] switches, int[] positions, int count);
+    }
+
+    private class SwitchListener implements MultiValueSwitch.OnCheckedChangeListener {
+        private final MultiValueSwitch mView;
+
+        SwitchListener(MultiValueSwitch view) {
+            mView = view;
+        }
+
+        @Override
+        public void onCheckedChange(int position) {
+            onSwitchCheckedChange(mView, position);
+        }
+    }
+
+    /**
+     * Switches with a position each, a switch appears at most once. Arrays are reused
+     * between frames.
+     */
+    private static class Batch {
+        MultiValueSwitch[] views = new MultiValueSwitch[8];
+        int[] positions = new int[8];
+        int size;
+
+        void put(MultiValueSwitch view, int position) {
+            for (int i = 0; i < size; i++) {
+                if (views[i] == view) {
+                    positions[i] = position;
+                    return;
+                }
+            }
+            if (size == views.length) {
+                final MultiValueSwitch[] newViews = new MultiValueSwitch[size * 2];
+                final int[] newPositions = new int[size * 2];
+                System.arraycopy(views, 0, newViews, 0, size);
+                System.arraycopy(positions, 0, newPositions, 0, size);
+                views = newViews;
+                positions = newPositions;
+            }
+            views[size] = view;
+            positions[size] = position;
+            size++;
+        }
+
+        /**
+         * @return index the switch was removed from, or {@link Integer#MAX_VALUE} if absent
+         */
+        int remove(MultiValueSwitch view) {
+            for (int i = 0; i < size; i++) {
+                if (views[i] != view) continue;
+                System.arraycopy(views, i + 1, views, i, size - i - 1);
+                System.arraycopy(positions, i + 1, positions, i, size - i - 1);
+                views[--size] = null;
+                return i;
+            }
+            return Integer.MAX_VALUE;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                views[i] = null;
+            }
+            size = 0;
+        }
+    }
+}
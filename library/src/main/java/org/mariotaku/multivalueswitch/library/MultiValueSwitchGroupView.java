@@ -0,0 +1,672 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.support.v7.widget.ViewUtils;
+import android.util.AttributeSet;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
+
+import org.mariotaku.multivalueswitch.core.SwitchGeometry;
+import org.mariotaku.multivalueswitch.core.SwitchTouchTracker;
+
+import java.util.List;
+
+/**
+ * Lays out and draws a grid of switches bound to {@link MultiValueSwitchModel}s in one view,
+ * so panels with many switches cost a single view in measure, layout and draw. Switches
+ * share one pair of thumb and track drawables styled like {@link MultiValueSwitch}, and are
+ * exposed to accessibility services as virtual children.
+ * <p/>
+ * Models are observed while the view is attached to window, changing a model animates its
+ * switch in the next frame.
+ */
+@SuppressWarnings("RestrictedApi")
+public class MultiValueSwitchGroupView extends View {
+
+    private static final int[] CHECKED_STATE_SET = {
+            android.R.attr.state_checked
+    };
+
+    private static final MultiValueSwitchModel[] EMPTY_MODELS = new MultiValueSwitchModel[0];
+    private static final Interpolator sInterpolator = new AccelerateDecelerateInterpolator();
+
+    private final SwitchStyle mStyle;
+    @Nullable
+    private final Drawable mThumbDrawable;
+    @Nullable
+    private final Drawable mTrackDrawable;
+    private final AccessibilityHelper mAccessibilityHelper;
+    private final SwitchTouchTracker mTouchTracker;
+
+    private MultiValueSwitchModel[] mModels = EMPTY_MODELS;
+    // Per switch state, indexed like mModels
+    private Rect[] mSwitchBounds = new Rect[0];
+    private float[] mThumbPositions = new float[0];
+    private float[] mAnimationFrom = new float[0];
+    private long[] mAnimationStart = new long[0];
+    private int[] mTargetPositions = new int[0];
+    // Max of each model when last laid out
+    private int[] mLayoutMaxes = new int[0];
+
+    private int mColumnCount;
+    private int mSpacing;
+    private int mThumbWidth;
+    private int mSwitchHeight;
+    private int mCellWidth;
+
+    private int mTouchIndex = -1;
+    @Nullable
+    private VelocityTracker mVelocityTracker;
+
+    /**
+     * Drawable state with {@link android.R.attr#state_checked} added, for highlighted
+     * positions. Built lazily after each drawable state change.
+     */
+    private int[] mCheckedDrawableState;
+
+    @Nullable
+    private OnCheckedChangeListener mOnCheckedChangeListener;
+
+    private final MultiValueSwitchModel.Observer mModelObserver = new MultiValueSwitchModel.Observer() {
+        @Override
+        public void onModelChanged(MultiValueSwitchModel model) {
+            final int index = indexOfModel(model);
+            if (index < 0) return;
+            final boolean maxChanged = mLayoutMaxes[index] != model.getMax();
+            if (maxChanged) {
+                requestLayout();
+            }
+            if (mTouchTracker.isDragging() && mTouchIndex == index) return;
+            if (!maxChanged && mTargetPositions[index] == model.getPosition()) {
+                // Echo of a change made here, or another attribute changed. Don't restart
+                // a running animation, only redraw highlights
+                invalidate();
+                return;
+            }
+            animateToPosition(index, model.getPosition());
+        }
+    };
+
+    public MultiValueSwitchGroupView(Context context) {
+        this(context, null);
+    }
+
+    public MultiValueSwitchGroupView(Context context, AttributeSet attrs) {
+        this(context, attrs, R.attr.switchStyle);
+    }
+
+    public MultiValueSwitchGroupView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        mStyle = SwitchStyle.obtain(context, attrs, defStyleAttr);
+        mThumbDrawable = mStyle.newThumbDrawable(getResources());
+        if (mThumbDrawable != null) {
+            mThumbDrawable.setCallback(this);
+        }
+        mTrackDrawable = mStyle.newTrackDrawable(getResources());
+        if (mTrackDrawable != null) {
+            mTrackDrawable.setCallback(this);
+        }
+
+        final TypedArray a = context.obtainStyledAttributes(attrs,
+                R.styleable.MultiValueSwitchGroupView, defStyleAttr, 0);
+        mColumnCount = Math.max(1, a.getInt(R.styleable.MultiValueSwitchGroupView_android_columnCount, 1));
+        mSpacing = a.getDimensionPixelSize(R.styleable.MultiValueSwitchGroupView_android_spacing,
+                mStyle.switchPadding);
+        a.recycle();
+
+        // Same gestures as a MultiValueSwitch that can be dragged from its track
+        mTouchTracker = new SwitchTouchTracker(mStyle.touchSlop);
+        mTouchTracker.setDragIntentSlop(mStyle.touchSlop / 2);
+        mTouchTracker.setDragIntentAngle(MultiValueSwitch.DEFAULT_DRAG_INTENT_ANGLE);
+        mTouchTracker.setDragFromTrackEnabled(true);
+
+        mAccessibilityHelper = new AccessibilityHelper(this);
+        ViewCompat.setAccessibilityDelegate(this, mAccessibilityHelper);
+    }
+
+    public MultiValueSwitchModel[] getModels() {
+        return mModels;
+    }
+
+    /**
+     * Sets models of switches shown, in row-major order. Switches show positions of new
+     * models right away.
+     */
+    public void setModels(@Nullable MultiValueSwitchModel[] models) {
+        if (models == null) {
+            models = EMPTY_MODELS;
+        }
+        final boolean attached = ViewCompat.isAttachedToWindow(this);
+        if (attached) {
+            for (final MultiValueSwitchModel model : mModels) {
+                model.removeObserver(mModelObserver);
+            }
+        }
+        mModels = models;
+        final int count = models.length;
+        mSwitchBounds = new Rect[count];
+        mThumbPositions = new float[count];
+        mAnimationFrom = new float[count];
+        mAnimationStart = new long[count];
+        mTargetPositions = new int[count];
+        mLayoutMaxes = new int[count];
+        for (int i = 0; i < count; i++) {
+            mSwitchBounds[i] = new Rect();
+            mTargetPositions[i] = models[i].getPosition();
+            mThumbPositions[i] = SwitchGeometry.getThumbPosition(mTargetPositions[i],
+                    models[i].getMax());
+            if (attached) {
+                models[i].addObserver(mModelObserver);
+            }
+        }
+        resetTouch();
+        mAccessibilityHelper.invalidateRoot();
+        requestLayout();
+        invalidate();
+    }
+
+    public int getColumnCount() {
+        return mColumnCount;
+    }
+
+    public void setColumnCount(int columnCount) {
+        if (columnCount < 1) throw new IllegalArgumentException();
+        mColumnCount = columnCount;
+        requestLayout();
+    }
+
+    public int getSpacing() {
+        return mSpacing;
+    }
+
+    /**
+     * Sets horizontal and vertical space between switches, in pixels.
+     */
+    public void setSpacing(int spacing) {
+        mSpacing = spacing;
+        requestLayout();
+    }
+
+    /**
+     * Sets listener notified when the user changes a switch, after its model is updated.
+     */
+    public void setOnCheckedChangeListener(@Nullable OnCheckedChangeListener listener) {
+        mOnCheckedChangeListener = listener;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        mThumbWidth = SwitchRenderer.measureThumbWidth(mThumbDrawable);
+        mSwitchHeight = SwitchRenderer.measureSwitchHeight(mThumbDrawable, mTrackDrawable);
+        int maxSwitchWidth = 0;
+        for (final MultiValueSwitchModel model : mModels) {
+            maxSwitchWidth = Math.max(maxSwitchWidth, measureSwitchWidth(model.getMax()));
+        }
+        final int columns = getLayoutColumnCount();
+        final int rows = getRowCount();
+        final int width = getPaddingLeft() + getPaddingRight()
+                + columns * maxSwitchWidth + (columns - 1) * mSpacing;
+        final int height = getPaddingTop() + getPaddingBottom()
+                + rows * mSwitchHeight + Math.max(0, rows - 1) * mSpacing;
+        setMeasuredDimension(resolveSize(Math.max(width, getSuggestedMinimumWidth()), widthMeasureSpec),
+                resolveSize(Math.max(height, getSuggestedMinimumHeight()), heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        final int columns = getLayoutColumnCount();
+        final int contentWidth = getWidth() - getPaddingLeft() - getPaddingRight();
+        mCellWidth = Math.max(0, (contentWidth - (columns - 1) * mSpacing) / columns);
+        final boolean rtl = ViewUtils.isLayoutRtl(this);
+        for (int i = 0, j = mModels.length; i < j; i++) {
+            final int column = i % columns, row = i / columns;
+            final int visualColumn = rtl ? columns - 1 - column : column;
+            final int cellLeft = getPaddingLeft() + visualColumn * (mCellWidth + mSpacing);
+            final int cellTop = getPaddingTop() + row * (mSwitchHeight + mSpacing);
+            final int max = mModels[i].getMax();
+            final int switchWidth = measureSwitchWidth(max);
+            // Switches align to cell start, like a MultiValueSwitch wrapping its content
+            final int switchLeft = rtl ? cellLeft + mCellWidth - switchWidth : cellLeft;
+            SwitchRenderer.layoutSwitch(mThumbDrawable, mTrackDrawable, switchWidth, mSwitchHeight,
+                    switchLeft, cellTop, switchLeft + switchWidth, cellTop + mSwitchHeight, rtl,
+                    mSwitchBounds[i]);
+            mLayoutMaxes[i] = max;
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        final long now = AnimationUtils.currentAnimationTimeMillis();
+        final boolean rtl = ViewUtils.isLayoutRtl(this);
+        final int[] drawableState = getDrawableState();
+        boolean animating = false;
+        // Drawables are restyled for every switch, don't let that invalidate us while drawing
+        setDrawableCallback(null);
+        for (int i = 0, j = mModels.length; i < j; i++) {
+            animating |= updateAnimation(i, now);
+            final MultiValueSwitchModel model = mModels[i];
+            final Rect bounds = mSwitchBounds[i];
+            final int max = model.getMax();
+            final boolean highlighted = SwitchGeometry.isHighlighted(
+                    model.getHighlightCheckedPositions(), mTargetPositions[i]);
+            setDrawableState(highlighted ? getCheckedDrawableState() : drawableState);
+            final int scrollRange = SwitchRenderer.getThumbScrollRange(mThumbDrawable,
+                    mTrackDrawable, bounds.width(), mThumbWidth);
+            SwitchRenderer.setDrawableBounds(mThumbDrawable, mTrackDrawable, bounds.left,
+                    bounds.top, bounds.right, bounds.bottom,
+                    SwitchGeometry.getThumbOffset(mThumbPositions[i], rtl, scrollRange), mThumbWidth);
+            SwitchRenderer.draw(canvas, mThumbDrawable, mTrackDrawable, mStyle.splitTrack, max,
+                    bounds.left, bounds.right, mThumbWidth, mStyle.pointRadius, mStyle.pointColor);
+        }
+        setDrawableCallback(this);
+        if (animating) {
+            ViewCompat.postInvalidateOnAnimation(this);
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        final int action = MotionEventCompat.getActionMasked(ev);
+        if (action == MotionEvent.ACTION_DOWN && mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        if (mVelocityTracker != null) {
+            mVelocityTracker.addMovement(ev);
+        }
+        switch (action) {
+            case MotionEvent.ACTION_DOWN: {
+                final float x = ev.getX(), y = ev.getY();
+                mTouchIndex = isEnabled() ? findSwitchAt(x, y, mStyle.touchSlop) : -1;
+                if (mTouchIndex < 0) {
+                    recycleVelocityTracker();
+                    return false;
+                }
+                // Bounds are extended by slop already, the whole switch is its track
+                mTouchTracker.onDown(x, y, false, true);
+                return true;
+            }
+            case MotionEvent.ACTION_MOVE: {
+                if (mTouchIndex < 0) break;
+                switch (mTouchTracker.onMove(ev.getX(), ev.getY())) {
+                    case SwitchTouchTracker.MOVE_CLAIMED_AND_DRAGGED: {
+                        startDrag(mTouchIndex);
+                        dragThumb(mTouchIndex, ev.getX());
+                        break;
+                    }
+                    case SwitchTouchTracker.MOVE_CLAIMED: {
+                        startDrag(mTouchIndex);
+                        break;
+                    }
+                    case SwitchTouchTracker.MOVE_DRAGGED: {
+                        dragThumb(mTouchIndex, ev.getX());
+                        break;
+                    }
+                }
+                return true;
+            }
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL: {
+                final int index = mTouchIndex;
+                if (index < 0) break;
+                final MultiValueSwitchModel model = mModels[index];
+                final int max = model.getMax();
+                final boolean commit = action == MotionEvent.ACTION_UP && isEnabled();
+                final boolean dragging = mTouchTracker.isDragging();
+                final boolean tapped = mTouchTracker.onUp();
+                final boolean rtl = ViewUtils.isLayoutRtl(this);
+                int position = model.getPosition();
+                if (commit && dragging) {
+                    // A fling moves one stop past the stop the thumb is nearest to
+                    position = SwitchGeometry.getCheckedPosition(mThumbPositions[index], max);
+                    if (mVelocityTracker != null) {
+                        mVelocityTracker.computeCurrentVelocity(1000);
+                        position = SwitchGeometry.resolveFling(position, max,
+                                mVelocityTracker.getXVelocity(), mStyle.minFlingVelocity, rtl);
+                    }
+                } else if (commit && tapped) {
+                    final Rect bounds = mSwitchBounds[index];
+                    position = SwitchGeometry.snapTouch(ev.getX(), bounds.left, bounds.right,
+                            mThumbWidth, rtl, max);
+                }
+                mTouchIndex = -1;
+                recycleVelocityTracker();
+                setPositionFromUser(index, position);
+                // Always animate, so a dragged thumb moves back to a stop
+                animateToPosition(index, position);
+                return true;
+            }
+        }
+        return super.onTouchEvent(ev);
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return mAccessibilityHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return mAccessibilityHelper.dispatchKeyEvent(event) || super.dispatchKeyEvent(event);
+    }
+
+    @Override
+    protected void onFocusChanged(boolean gainFocus, int direction, @Nullable Rect previouslyFocusedRect) {
+        super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+        mAccessibilityHelper.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+    }
+
+    @Override
+    protected void drawableStateChanged() {
+        super.drawableStateChanged();
+        mCheckedDrawableState = null;
+        invalidate();
+    }
+
+    @Override
+    protected boolean verifyDrawable(Drawable who) {
+        return super.verifyDrawable(who) || who == mThumbDrawable || who == mTrackDrawable;
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        for (int i = 0, j = mModels.length; i < j; i++) {
+            mModels[i].addObserver(mModelObserver);
+            // Catch up with changes made while detached
+            mTargetPositions[i] = mModels[i].getPosition();
+            mThumbPositions[i] = SwitchGeometry.getThumbPosition(mTargetPositions[i],
+                    mModels[i].getMax());
+            mAnimationStart[i] = 0;
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        for (final MultiValueSwitchModel model : mModels) {
+            model.removeObserver(mModelObserver);
+        }
+        resetTouch();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * @return index of switch whose bounds, extended by slop, contain (x, y), or -1
+     */
+    @VisibleForTesting
+    int findSwitchAt(float x, float y, int slop) {
+        for (int i = 0, j = mModels.length; i < j; i++) {
+            final Rect bounds = mSwitchBounds[i];
+            if (x > bounds.left - slop && x < bounds.right + slop
+                    && y > bounds.top - slop && y < bounds.bottom + slop) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @VisibleForTesting
+    Rect getSwitchBounds(int index) {
+        return mSwitchBounds[index];
+    }
+
+    private int measureSwitchWidth(int max) {
+        return SwitchRenderer.measureSwitchWidth(mThumbDrawable, mTrackDrawable,
+                mStyle.switchMinWidth, max, mThumbWidth);
+    }
+
+    /**
+     * @return number of columns switches are laid out in, no more than there are switches
+     */
+    private int getLayoutColumnCount() {
+        return Math.min(mColumnCount, Math.max(1, mModels.length));
+    }
+
+    private int getRowCount() {
+        final int columns = getLayoutColumnCount();
+        return (mModels.length + columns - 1) / columns;
+    }
+
+    private int indexOfModel(MultiValueSwitchModel model) {
+        for (int i = 0, j = mModels.length; i < j; i++) {
+            if (mModels[i] == model) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Stops the switch's animation and claims the gesture from the parent.
+     */
+    private void startDrag(int index) {
+        mAnimationStart[index] = 0;
+        final ViewParent parent = getParent();
+        if (parent != null) {
+            parent.requestDisallowInterceptTouchEvent(true);
+        }
+    }
+
+    /**
+     * Moves the thumb by the horizontal distance between x and the last tracked touch point.
+     */
+    private void dragThumb(int index, float x) {
+        final Rect bounds = mSwitchBounds[index];
+        final int scrollRange = SwitchRenderer.getThumbScrollRange(mThumbDrawable, mTrackDrawable,
+                bounds.width(), mThumbWidth);
+        final float newPos = SwitchGeometry.dragBy(mThumbPositions[index],
+                x - mTouchTracker.getTouchX(), scrollRange, ViewUtils.isLayoutRtl(this));
+        if (newPos != mThumbPositions[index]) {
+            mTouchTracker.setTouchX(x);
+            mThumbPositions[index] = newPos;
+            invalidate();
+        }
+    }
+
+    private void resetTouch() {
+        mTouchTracker.reset();
+        mTouchIndex = -1;
+        recycleVelocityTracker();
+    }
+
+    private void recycleVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    private void setPositionFromUser(int index, int position) {
+        final MultiValueSwitchModel model = mModels[index];
+        if (model.getPosition() == position) return;
+        playSoundEffect(SoundEffectConstants.CLICK);
+        model.setPosition(position);
+        mAccessibilityHelper.invalidateVirtualView(index);
+        if (mOnCheckedChangeListener != null) {
+            mOnCheckedChangeListener.onCheckedChange(this, index, position);
+        }
+    }
+
+    private void animateToPosition(int index, int position) {
+        final float target = SwitchGeometry.getThumbPosition(position, mModels[index].getMax());
+        mTargetPositions[index] = position;
+        if (mThumbPositions[index] == target || !ViewCompat.isLaidOut(this)) {
+            mThumbPositions[index] = target;
+            mAnimationStart[index] = 0;
+        } else {
+            mAnimationFrom[index] = mThumbPositions[index];
+            mAnimationStart[index] = AnimationUtils.currentAnimationTimeMillis();
+        }
+        invalidate();
+    }
+
+    /**
+     * @return true if switch at index is still animating
+     */
+    private boolean updateAnimation(int index, long now) {
+        final long start = mAnimationStart[index];
+        if (start == 0) return false;
+        final float target = SwitchGeometry.getThumbPosition(mTargetPositions[index],
+                mModels[index].getMax());
+        final float fraction = Math.min(1,
+                (now - start) / (float) MultiValueSwitch.THUMB_ANIMATION_DURATION);
+        final float from = mAnimationFrom[index];
+        mThumbPositions[index] = from + (target - from) * sInterpolator.getInterpolation(fraction);
+        if (fraction < 1) return true;
+        mAnimationStart[index] = 0;
+        return false;
+    }
+
+    private int[] getCheckedDrawableState() {
+        if (mCheckedDrawableState == null) {
+            final int[] state = getDrawableState();
+            final int[] checkedState = new int[state.length + 1];
+            System.arraycopy(state, 0, checkedState, 0, state.length);
+            checkedState[state.length] = CHECKED_STATE_SET[0];
+            mCheckedDrawableState = checkedState;
+        }
+        return mCheckedDrawableState;
+    }
+
+    private void setDrawableCallback(@Nullable Drawable.Callback callback) {
+        if (mThumbDrawable != null) {
+            mThumbDrawable.setCallback(callback);
+        }
+        if (mTrackDrawable != null) {
+            mTrackDrawable.setCallback(callback);
+        }
+    }
+
+    private void setDrawableState(int[] state) {
+        // Drawables are shared by all switches, skip state transitions between them
+        if (mThumbDrawable != null && mThumbDrawable.setState(state)) {
+            mThumbDrawable.jumpToCurrentState();
+        }
+        if (mTrackDrawable != null && mTrackDrawable.setState(state)) {
+            mTrackDrawable.jumpToCurrentState();
+        }
+    }
+
+    private static CharSequence getDescription(Context context, MultiValueSwitchModel model) {
+        final int position = model.getPosition();
+        final CharSequence[] entries = model.getEntries();
+        if (entries != null && entries[position] != null) return entries[position];
+        return context.getString(R.string.mvs_position_description, position + 1, model.getMax());
+    }
+
+    /**
+     * Notified when the user changes a switch in the group.
+     */
+    public interface OnCheckedChangeListener {
+        void onCheckedChange(MultiValueSwitchGroupView group, int index, int position);
+    }
+
+    private static class AccessibilityHelper extends ExploreByTouchHelper {
+        /**
+         * Bounds of removed switches, only used on the UI thread.
+         */
+        private static final Rect sEmptyBounds = new Rect();
+
+        private final MultiValueSwitchGroupView mGroup;
+
+        AccessibilityHelper(MultiValueSwitchGroupView group) {
+            super(group);
+            mGroup = group;
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            final int index = mGroup.findSwitchAt(x, y, 0);
+            return index >= 0 ? index : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int i = 0, j = mGroup.mModels.length; i < j; i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateEventForVirtualView(int virtualViewId, AccessibilityEvent event) {
+            if (virtualViewId >= mGroup.mModels.length) return;
+            event.getText().add(getDescription(mGroup.getContext(), mGroup.mModels[virtualViewId]));
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            if (virtualViewId >= mGroup.mModels.length) {
+                // Removed since the last event, report an empty node
+                node.setText("");
+                sEmptyBounds.setEmpty();
+                node.setBoundsInParent(sEmptyBounds);
+                return;
+            }
+            final MultiValueSwitchModel model = mGroup.mModels[virtualViewId];
+            node.setClassName(SwitchAccessibilityHelper.CLASS_NAME);
+            node.setText(getDescription(mGroup.getContext(), model));
+            node.setRangeInfo(AccessibilityNodeInfoCompat.RangeInfoCompat.obtain(
+                    AccessibilityNodeInfoCompat.RangeInfoCompat.RANGE_TYPE_INT, 0,
+                    model.getMax() - 1, model.getPosition()));
+            node.setBoundsInParent(mGroup.mSwitchBounds[virtualViewId]);
+            node.setEnabled(mGroup.isEnabled());
+            if (mGroup.isEnabled()) {
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+                if (model.getPosition() < model.getMax() - 1) {
+                    node.addAction(AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD);
+                }
+                if (model.getPosition() > 0) {
+                    node.addAction(AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD);
+                }
+            }
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            if (virtualViewId >= mGroup.mModels.length || !mGroup.isEnabled()) return false;
+            final MultiValueSwitchModel model = mGroup.mModels[virtualViewId];
+            final int position = model.getPosition(), max = model.getMax();
+            final int newPosition;
+            switch (action) {
+                case AccessibilityNodeInfoCompat.ACTION_CLICK: {
+                    newPosition = (position + 1) % max;
+                    break;
+                }
+                case AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD: {
+                    newPosition = Math.min(max - 1, position + 1);
+                    break;
+                }
+                case AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD: {
+                    newPosition = Math.max(0, position - 1);
+                    break;
+                }
+                default: {
+                    return false;
+                }
+            }
+            if (newPosition == position) return false;
+            mGroup.setPositionFromUser(virtualViewId, newPosition);
+            mGroup.animateToPosition(virtualViewId, newPosition);
+            sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.support.annotation.IntRange;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+
+/**
+ * Position, max, entries and highlighted positions shared by several
+ * {@link MultiValueSwitch}es showing the same value, see
+ * {@link MultiValueSwitch#setModel(MultiValueSwitchModel)}.
+ * <p/>
+ * Changes are delivered to observers at most once per frame, with the latest state.
+ * Attached switches subscribe when attached to window and unsubscribe when detached.
+ * Must be used on the main thread.
+ */
+public class MultiValueSwitchModel {
+
+    private final ListenerList<Observer> mObservers = new ListenerList<>();
+
+    private int mMax;
+    private int mPosition;
+    @Nullable
+    private CharSequence[] mEntries;
+    @Nullable
+    private int[] mHighlightCheckedPositions;
+
+    private FrameScheduler mFrameScheduler;
+
+    public MultiValueSwitchModel(@IntRange(from = 2) int max) {
+        mMax = max;
+    }
+
+    public int getMax() {
+        return mMax;
+    }
+
+    /**
+     * Sets max, entries are cleared if their length no longer matches and position is
+     * constrained to the new range.
+     */
+    public void setMax(@IntRange(from = 2) int max) {
+        if (mMax == max) return;
+        mMax = max;
+        if (mEntries != null && mEntries.length != max) {
+            mEntries = null;
+        }
+        if (mPosition > max - 1) {
+            mPosition = max - 1;
+        }
+        notifyChanged();
+    }
+
+    public int getPosition() {
+        return mPosition;
+    }
+
+    public void setPosition(int position) {
+        position = Math.max(0, Math.min(mMax - 1, position));
+        if (mPosition == position) return;
+        mPosition = position;
+        notifyChanged();
+    }
+
+    @Nullable
+    public CharSequence[] getEntries() {
+        return mEntries;
+    }
+
+    public void setEntries(@Nullable CharSequence[] entries) {
+        if (entries != null && entries.length != mMax) throw new IllegalArgumentException();
+        if (mEntries == entries) return;
+        mEntries = entries;
+        notifyChanged();
+    }
+
+    @Nullable
+    public int[] getHighlightCheckedPositions() {
+        return mHighlightCheckedPositions;
+    }
+
+    public void setHighlightCheckedPositions(@Nullable int[] highlightCheckedPositions) {
+        if (mHighlightCheckedPositions == highlightCheckedPositions) return;
+        mHighlightCheckedPositions = highlightCheckedPositions;
+        notifyChanged();
+    }
+
+    public void addObserver(Observer observer) {
+        mObservers.add(observer);
+    }
+
+    public void removeObserver(Observer observer) {
+        mObservers.remove(observer);
+    }
+
+    @VisibleForTesting
+    int getObserverCount() {
+        return mObservers.array().length;
+    }
+
+    private void notifyChanged() {
+        if (mObservers.isEmpty()) return;
+        if (mFrameScheduler == null) {
+            mFrameScheduler = FrameScheduler.create(new Runnable() {
+                @Override
+                public void run() {
+                    dispatchChanged();
+                }
+            });
+        }
+        mFrameScheduler.schedule();
+    }
+
+    private void dispatchChanged() {
+        for (final Object observer : mObservers.array()) {
+            ((Observer) observer).onModelChanged(this);
+        }
+    }
+
+    /**
+     * Notified of model changes, at most once per frame.
+     */
+    public interface Observer {
+        void onModelChanged(MultiValueSwitchModel model);
+    }
+}
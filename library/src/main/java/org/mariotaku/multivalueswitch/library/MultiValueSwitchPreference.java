@@ -0,0 +1,184 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.res.TypedArray;
+import android.support.annotation.Nullable;
+import android.support.v4.content.res.TypedArrayUtils;
+import android.support.v7.preference.Preference;
+import android.support.v7.preference.PreferenceViewHolder;
+import android.text.TextUtils;
+import android.util.AttributeSet;
+
+/**
+ * Preference showing a {@link MultiValueSwitch} as its widget, persisting the entry value of
+ * the checked position as a string.
+ * <p/>
+ * Positions are persisted once the switch settles, and writes are batched: rapid changes
+ * only write the latest value, and writes of all switch preferences within the delay are
+ * applied in one editor. Requires the support preference-v7 library.
+ */
+@SuppressWarnings("RestrictedApi")
+public class MultiValueSwitchPreference extends Preference {
+
+    private CharSequence[] mEntries;
+    private CharSequence[] mEntryValues;
+    private String mValue;
+    private long mWriteDelayMillis = PreferenceWriteBatcher.DEFAULT_DELAY_MILLIS;
+
+    private final MultiValueSwitch.OnCheckedChangeListener mListener = new MultiValueSwitch.OnCheckedChangeListener() {
+        @Override
+        public void onCheckedChange(int position) {
+            if (mEntryValues == null || position < 0 || position >= mEntryValues.length) return;
+            final String value = String.valueOf(mEntryValues[position]);
+            if (TextUtils.equals(value, mValue)) return;
+            if (callChangeListener(value)) {
+                setValue(value);
+            } else {
+                // Rejected, move back without notifying again
+                notifyChanged();
+            }
+        }
+    };
+
+    public MultiValueSwitchPreference(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        final TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.MultiValueSwitchPreference,
+                defStyleAttr, defStyleRes);
+        mEntries = a.getTextArray(R.styleable.MultiValueSwitchPreference_android_entries);
+        mEntryValues = a.getTextArray(R.styleable.MultiValueSwitchPreference_android_entryValues);
+        a.recycle();
+        setWidgetLayoutResource(R.layout.preference_widget_multi_value_switch);
+    }
+
+    public MultiValueSwitchPreference(Context context, AttributeSet attrs, int defStyleAttr) {
+        this(context, attrs, defStyleAttr, 0);
+    }
+
+    public MultiValueSwitchPreference(Context context, AttributeSet attrs) {
+        this(context, attrs, TypedArrayUtils.getAttr(context,
+                android.support.v7.preference.R.attr.preferenceStyle,
+                android.R.attr.preferenceStyle));
+    }
+
+    public MultiValueSwitchPreference(Context context) {
+        this(context, null);
+    }
+
+    /**
+     * Flushes values waiting to be persisted by all switch preferences, e.g. in
+     * {@link android.app.Activity#onPause()}.
+     */
+    public static void flushPendingWrites() {
+        PreferenceWriteBatcher.getInstance().flush();
+    }
+
+    public CharSequence[] getEntries() {
+        return mEntries;
+    }
+
+    /**
+     * Sets entries, shown to accessibility services for each position. Must have the same
+     * length as entry values.
+     */
+    public void setEntries(CharSequence[] entries) {
+        mEntries = entries;
+        notifyChanged();
+    }
+
+    public CharSequence[] getEntryValues() {
+        return mEntryValues;
+    }
+
+    /**
+     * Sets values persisted for each position, at least two are required.
+     */
+    public void setEntryValues(CharSequence[] entryValues) {
+        mEntryValues = entryValues;
+        notifyChanged();
+    }
+
+    public String getValue() {
+        return mValue;
+    }
+
+    public void setValue(String value) {
+        final boolean changed = !TextUtils.equals(mValue, value);
+        if (!changed) return;
+        mValue = value;
+        persistValue(value);
+        notifyChanged();
+    }
+
+    /**
+     * Sets how long to wait for further changes after the first unsaved one before
+     * persisting, 0 to persist on next main loop iteration.
+     */
+    public void setWriteDelay(long delayMillis) {
+        mWriteDelayMillis = delayMillis;
+    }
+
+    public int findIndexOfValue(String value) {
+        if (value != null && mEntryValues != null) {
+            for (int i = mEntryValues.length - 1; i >= 0; i--) {
+                if (value.contentEquals(mEntryValues[i])) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void onBindViewHolder(PreferenceViewHolder holder) {
+        super.onBindViewHolder(holder);
+        final MultiValueSwitch view = (MultiValueSwitch) holder.findViewById(R.id.multi_value_switch);
+        if (view == null || mEntryValues == null) return;
+        // Detach first so binding doesn't count as a change
+        view.setOnCheckedChangeListener(null);
+        view.setMax(mEntryValues.length);
+        view.setEntries(mEntries != null && mEntries.length == mEntryValues.length ? mEntries : null);
+        view.setEnabled(isEnabled());
+        final int index = findIndexOfValue(mValue);
+        // Recycled rows must show the value right away, not animate from the previous one
+        view.setCheckedPosition(index >= 0 ? index : 0, false);
+        view.setOnCheckedChangeListener(mListener);
+    }
+
+    @Override
+    protected Object onGetDefaultValue(TypedArray a, int index) {
+        return a.getString(index);
+    }
+
+    @Override
+    protected void onSetInitialValue(boolean restorePersistedValue, Object defaultValue) {
+        if (restorePersistedValue) {
+            mValue = getPersistedValue(mValue);
+        } else {
+            setValue((String) defaultValue);
+        }
+    }
+
+    @Override
+    public void onDetached() {
+        flushPendingWrites();
+        super.onDetached();
+    }
+
+    private void persistValue(String value) {
+        if (!shouldPersist()) return;
+        final SharedPreferences preferences = getSharedPreferences();
+        if (preferences == null) return;
+        PreferenceWriteBatcher.getInstance().put(preferences, getKey(), value, mWriteDelayMillis);
+    }
+
+    @Nullable
+    private String getPersistedValue(@Nullable String defaultValue) {
+        final SharedPreferences preferences = getSharedPreferences();
+        if (preferences != null && shouldPersist()) {
+            final String pending = PreferenceWriteBatcher.getInstance().getPending(preferences, getKey());
+            if (pending != null) return pending;
+        }
+        return getPersistedString(defaultValue);
+    }
+}
@@ -0,0 +1,471 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.v4.view.ViewCompat;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executor;
+
+/**
+ * Cold streams of {@link MultiValueSwitch} changes, usable as a base for reactive adapters
+ * without depending on any reactive library.
+ * <p/>
+ * Each subscription starts with the current value, then delivers changes on the given
+ * executor, one at a time. When the subscriber falls behind, values are handled according
+ * to the backpressure strategy:
+ * <ul>
+ * <li>{@link #BACKPRESSURE_LATEST} keeps only the latest value</li>
+ * <li>{@link #BACKPRESSURE_DROP} drops new values while the buffer is full</li>
+ * <li>{@link #BACKPRESSURE_BUFFER} drops the oldest value when the buffer is full</li>
+ * </ul>
+ * Subscriptions made while the switch is detached from window start when it's attached,
+ * and subscriptions complete when the switch is detached, so they never keep the switch or
+ * pending work alive after that. Subscribe on the main thread.
+ * <p/>
+ * Thumb positions change every frame while the thumb moves, so they're streamed as
+ * primitive floats and never boxed.
+ */
+public final class MultiValueSwitchStreams {
+
+    public static final int BACKPRESSURE_LATEST = 0;
+    public static final int BACKPRESSURE_DROP = 1;
+    public static final int BACKPRESSURE_BUFFER = 2;
+
+    private MultiValueSwitchStreams() {
+    }
+
+    /**
+     * @return stream of committed checked positions
+     */
+    public static Stream<Integer> checkedPositions(@NonNull MultiValueSwitch view) {
+        return new CheckedPositionStream(view);
+    }
+
+    /**
+     * @return stream of thumb position offsets, see
+     * {@link MultiValueSwitch.OnThumbPositionChangeListener}
+     */
+    public static FloatStream thumbPositions(@NonNull MultiValueSwitch view) {
+        return new ThumbPositionStream(view);
+    }
+
+    public interface Stream<T> {
+        /**
+         * @param executor     Executor subscriber is called on
+         * @param backpressure One of {@link #BACKPRESSURE_LATEST}, {@link #BACKPRESSURE_DROP}
+         *                     or {@link #BACKPRESSURE_BUFFER}
+         * @param bufferSize   Maximum number of pending values, ignored by
+         *                     {@link #BACKPRESSURE_LATEST}
+         * @param subscriber   Subscriber receiving values
+         */
+        Subscription subscribe(@NonNull Executor executor, int backpressure, int bufferSize,
+                               @NonNull Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * {@link Stream} of primitive floats.
+     */
+    public interface FloatStream {
+        /**
+         * @see Stream#subscribe(Executor, int, int, Subscriber)
+         */
+        Subscription subscribe(@NonNull Executor executor, int backpressure, int bufferSize,
+                               @NonNull FloatSubscriber subscriber);
+    }
+
+    public interface Subscriber<T> {
+        void onNext(T value);
+
+        /**
+         * Called after all pending values when the switch is detached from window.
+         */
+        void onComplete();
+    }
+
+    /**
+     * {@link Subscriber} of primitive floats.
+     */
+    public interface FloatSubscriber {
+        void onNext(float value);
+
+        /**
+         * Called after all pending values when the switch is detached from window.
+         */
+        void onComplete();
+    }
+
+    public interface Subscription {
+        /**
+         * Stops delivery and drops pending values. Can be called from any thread.
+         */
+        void cancel();
+
+        boolean isCancelled();
+    }
+
+    /**
+     * Holds the view weakly, so a stream kept around without subscriptions doesn't leak it.
+     * Subscribing after the view is gone completes at once.
+     */
+    private static abstract class ViewStream {
+
+        private final WeakReference<MultiValueSwitch> mViewRef;
+
+        ViewStream(MultiValueSwitch view) {
+            mViewRef = new WeakReference<>(view);
+        }
+
+        final Subscription start(StreamSubscription subscription) {
+            final MultiValueSwitch view = mViewRef.get();
+            if (view != null) {
+                subscription.start(view);
+            } else {
+                subscription.complete();
+            }
+            return subscription;
+        }
+    }
+
+    private static final class CheckedPositionStream extends ViewStream
+            implements Stream<Integer> {
+
+        CheckedPositionStream(MultiValueSwitch view) {
+            super(view);
+        }
+
+        @Override
+        public Subscription subscribe(@NonNull Executor executor, int backpressure,
+                                      int bufferSize, @NonNull Subscriber<? super Integer> subscriber) {
+            return start(new CheckedPositionSubscription(executor, backpressure, bufferSize,
+                    subscriber));
+        }
+    }
+
+    private static final class ThumbPositionStream extends ViewStream implements FloatStream {
+
+        ThumbPositionStream(MultiValueSwitch view) {
+            super(view);
+        }
+
+        @Override
+        public Subscription subscribe(@NonNull Executor executor, int backpressure,
+                                      int bufferSize, @NonNull FloatSubscriber subscriber) {
+            return start(new ThumbPositionSubscription(executor, backpressure, bufferSize,
+                    subscriber));
+        }
+    }
+
+    /**
+     * Drains values one at a time on the executor. Subclasses own the buffer, and offer and
+     * poll values with {@link #mLock} held.
+     */
+    private static abstract class StreamSubscription implements Subscription, Runnable {
+
+        final Object mLock = new Object();
+        private final Executor mExecutor;
+
+        private boolean mDraining;
+        private boolean mCompleted;
+        private boolean mCompleteDelivered;
+        private volatile boolean mCancelled;
+        /**
+         * Cleared once the subscription ends, so it never holds the view after that.
+         */
+        private volatile MultiValueSwitch mView;
+
+        private final Runnable mAttachCallback = new Runnable() {
+            @Override
+            public void run() {
+                final MultiValueSwitch view = mView;
+                if (view == null) return;
+                view.removeOnAttachCallback(this);
+                listen(view);
+            }
+        };
+
+        private final Runnable mDetachCallback = new Runnable() {
+            @Override
+            public void run() {
+                complete();
+            }
+        };
+
+        private final Runnable mReleaseRunnable = new Runnable() {
+            @Override
+            public void run() {
+                release();
+            }
+        };
+
+        StreamSubscription(Executor executor) {
+            mExecutor = executor;
+        }
+
+        final void start(MultiValueSwitch view) {
+            mView = view;
+            if (ViewCompat.isAttachedToWindow(view)) {
+                listen(view);
+            } else {
+                // Would never complete if the switch isn't attached later, start once it is
+                view.addOnAttachCallback(mAttachCallback);
+            }
+        }
+
+        private void listen(MultiValueSwitch view) {
+            register(view);
+            view.addOnDetachCallback(mDetachCallback);
+            emitCurrent(view);
+        }
+
+        abstract void register(MultiValueSwitch view);
+
+        abstract void unregister(MultiValueSwitch view);
+
+        abstract void emitCurrent(MultiValueSwitch view);
+
+        /**
+         * Polls the next value to deliver with {@link #deliverPolled()}, called with
+         * {@link #mLock} held.
+         *
+         * @return false if there are no pending values
+         */
+        abstract boolean pollPending();
+
+        /**
+         * Delivers the value taken by {@link #pollPending()}, called without lock.
+         */
+        abstract void deliverPolled();
+
+        /**
+         * Drops pending values, called with {@link #mLock} held.
+         */
+        abstract void clearPending();
+
+        abstract void deliverComplete();
+
+        /**
+         * Stops listening and delivers completion after pending values.
+         */
+        final void complete() {
+            release();
+            synchronized (mLock) {
+                mCompleted = true;
+                if (mDraining || mCancelled) return;
+                mDraining = true;
+            }
+            mExecutor.execute(this);
+        }
+
+        /**
+         * @return whether a value offered now would be delivered, called with {@link #mLock}
+         * held
+         */
+        final boolean isAccepting() {
+            return !mCancelled && !mCompleted;
+        }
+
+        /**
+         * Call with {@link #mLock} held after offering a value, then call
+         * {@link #scheduleDrain()} without lock if it returns true.
+         *
+         * @return false if a drain is already running
+         */
+        final boolean beginDrain() {
+            if (mDraining) return false;
+            mDraining = true;
+            return true;
+        }
+
+        final void scheduleDrain() {
+            mExecutor.execute(this);
+        }
+
+        @Override
+        public final void run() {
+            while (true) {
+                final boolean polled;
+                synchronized (mLock) {
+                    if (mCancelled) {
+                        mDraining = false;
+                        return;
+                    }
+                    polled = pollPending();
+                    if (!polled) {
+                        mDraining = false;
+                        if (!mCompleted || mCompleteDelivered) return;
+                        mCompleteDelivered = true;
+                    }
+                }
+                if (!polled) {
+                    deliverComplete();
+                    return;
+                }
+                deliverPolled();
+            }
+        }
+
+        @Override
+        public final void cancel() {
+            mCancelled = true;
+            synchronized (mLock) {
+                clearPending();
+            }
+            final MultiValueSwitch view = mView;
+            if (view == null) return;
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                release();
+            } else {
+                view.post(mReleaseRunnable);
+            }
+        }
+
+        @Override
+        public final boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * Stops listening to the view, must be called on the main thread.
+         */
+        private void release() {
+            final MultiValueSwitch view = mView;
+            if (view == null) return;
+            mView = null;
+            view.removeOnAttachCallback(mAttachCallback);
+            unregister(view);
+            view.removeOnDetachCallback(mDetachCallback);
+        }
+    }
+
+    private static class CheckedPositionSubscription extends StreamSubscription
+            implements MultiValueSwitch.OnCheckedChangeListener {
+
+        private final Subscriber<? super Integer> mSubscriber;
+        private final BackpressureBuffer<Integer> mBuffer;
+        /**
+         * Only accessed by the running drain
+         */
+        private Integer mPolled;
+
+        CheckedPositionSubscription(Executor executor, int backpressure, int bufferSize,
+                                    Subscriber<? super Integer> subscriber) {
+            super(executor);
+            mSubscriber = subscriber;
+            mBuffer = new BackpressureBuffer<>(backpressure, bufferSize);
+        }
+
+        @Override
+        void register(MultiValueSwitch view) {
+            view.addOnCheckedChangeListener(this);
+        }
+
+        @Override
+        void unregister(MultiValueSwitch view) {
+            view.removeOnCheckedChangeListener(this);
+        }
+
+        @Override
+        void emitCurrent(MultiValueSwitch view) {
+            onCheckedChange(view.getCheckedPosition());
+        }
+
+        @Override
+        public void onCheckedChange(int position) {
+            synchronized (mLock) {
+                if (!isAccepting()) return;
+                mBuffer.offer(position);
+                if (!beginDrain()) return;
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        boolean pollPending() {
+            mPolled = mBuffer.poll();
+            return mPolled != null;
+        }
+
+        @Override
+        void deliverPolled() {
+            final Integer value = mPolled;
+            mPolled = null;
+            mSubscriber.onNext(value);
+        }
+
+        @Override
+        void clearPending() {
+            mBuffer.clear();
+        }
+
+        @Override
+        void deliverComplete() {
+            mSubscriber.onComplete();
+        }
+    }
+
+    private static class ThumbPositionSubscription extends StreamSubscription
+            implements MultiValueSwitch.OnThumbPositionChangeListener {
+
+        private final FloatSubscriber mSubscriber;
+        private final FloatBackpressureBuffer mBuffer;
+        /**
+         * Only accessed by the running drain
+         */
+        private float mPolled;
+
+        ThumbPositionSubscription(Executor executor, int backpressure, int bufferSize,
+                                  FloatSubscriber subscriber) {
+            super(executor);
+            mSubscriber = subscriber;
+            mBuffer = new FloatBackpressureBuffer(backpressure, bufferSize);
+        }
+
+        @Override
+        void register(MultiValueSwitch view) {
+            view.addOnThumbPositionChangeListener(this);
+        }
+
+        @Override
+        void unregister(MultiValueSwitch view) {
+            view.removeOnThumbPositionChangeListener(this);
+        }
+
+        @Override
+        void emitCurrent(MultiValueSwitch view) {
+            onThumbPositionChange(view.getThumbPositionOffset());
+        }
+
+        @Override
+        public void onThumbPositionChange(float positionOffset) {
+            synchronized (mLock) {
+                if (!isAccepting()) return;
+                mBuffer.offer(positionOffset);
+                if (!beginDrain()) return;
+            }
+            scheduleDrain();
+        }
+
+        @Override
+        boolean pollPending() {
+            if (mBuffer.isEmpty()) return false;
+            mPolled = mBuffer.poll();
+            return true;
+        }
+
+        @Override
+        void deliverPolled() {
+            mSubscriber.onNext(mPolled);
+        }
+
+        @Override
+        void clearPending() {
+            mBuffer.clear();
+        }
+
+        @Override
+        void deliverComplete() {
+            mSubscriber.onComplete();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects preference writes and applies them in one editor per {@link SharedPreferences},
+ * once the delay since the first pending write passed, so a steady stream of writes can't
+ * postpone it forever. Main thread only.
+ */
+final class PreferenceWriteBatcher implements Runnable {
+
+    static final long DEFAULT_DELAY_MILLIS = 300;
+
+    private static PreferenceWriteBatcher sInstance;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final HashMap<SharedPreferences, HashMap<String, String>> mPending = new HashMap<>();
+    /**
+     * Uptime the flush is scheduled at, 0 if none is.
+     */
+    private long mFlushTime;
+
+    static PreferenceWriteBatcher getInstance() {
+        if (sInstance == null) {
+            sInstance = new PreferenceWriteBatcher();
+        }
+        return sInstance;
+    }
+
+    /**
+     * Queues a write, replacing a pending write to the same key. Flushes delay after the
+     * first pending write, or sooner if this write asks for a shorter delay.
+     */
+    void put(SharedPreferences preferences, String key, String value, long delayMillis) {
+        HashMap<String, String> values = mPending.get(preferences);
+        if (values == null) {
+            values = new HashMap<>();
+            mPending.put(preferences, values);
+        }
+        values.put(key, value);
+        final long flushTime = SystemClock.uptimeMillis() + delayMillis;
+        if (mFlushTime != 0 && mFlushTime <= flushTime) return;
+        mHandler.removeCallbacks(this);
+        mHandler.postAtTime(this, flushTime);
+        mFlushTime = flushTime;
+    }
+
+    /**
+     * @return value waiting to be written to key, or null if there is none
+     */
+    @Nullable
+    String getPending(SharedPreferences preferences, String key) {
+        final HashMap<String, String> values = mPending.get(preferences);
+        if (values == null) return null;
+        return values.get(key);
+    }
+
+    /**
+     * Applies all pending writes now.
+     */
+    void flush() {
+        mHandler.removeCallbacks(this);
+        run();
+    }
+
+    @Override
+    public void run() {
+        mFlushTime = 0;
+        if (mPending.isEmpty()) return;
+        for (Map.Entry<SharedPreferences, HashMap<String, String>> entry : mPending.entrySet()) {
+            final SharedPreferences.Editor editor = entry.getKey().edit();
+            for (Map.Entry<String, String> value : entry.getValue().entrySet()) {
+                editor.putString(value.getKey(), value.getValue());
+            }
+            editor.apply();
+        }
+        mPending.clear();
+    }
+}
@@ -0,0 +1,373 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.support.v4.view.AccessibilityDelegateCompat;
+import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.ViewParentCompat;
+import android.support.v4.view.accessibility.AccessibilityEventCompat;
+import android.support.v4.view.accessibility.AccessibilityManagerCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeProviderCompat;
+import android.support.v4.view.accessibility.AccessibilityRecordCompat;
+import android.support.v7.widget.ViewUtils;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+
+import org.mariotaku.multivalueswitch.core.SwitchGeometry;
+
+/**
+ * Exposes a {@link MultiValueSwitch} as an adjustable control with range info, and each of
+ * its positions as a virtual child that can be explored and clicked.
+ * <p/>
+ * Child nodes are built once and copied for each query until position, max, entries,
+ * enabled state or layout change. Selection events while dragging are sent at most once per
+ * {@link ViewConfiguration#getSendRecurringAccessibilityEventsInterval()}.
+ */
+@SuppressWarnings("RestrictedApi")
+class SwitchAccessibilityHelper extends AccessibilityDelegateCompat {
+
+    static final String CLASS_NAME = "android.widget.SeekBar";
+    private static final String CHILD_CLASS_NAME = "android.widget.RadioButton";
+
+    private static final int HOST_ID = View.NO_ID;
+    private static final int INVALID_ID = Integer.MIN_VALUE;
+
+    private final MultiValueSwitch mHost;
+    private final AccessibilityManager mManager;
+    private final NodeProvider mNodeProvider = new NodeProvider();
+    private final long mEventInterval = ViewConfiguration.getSendRecurringAccessibilityEventsInterval();
+
+    // Scratch values only used on the UI thread
+    private static final Rect sTempRect = new Rect();
+    private static final Rect sNodeBounds = new Rect();
+    private static final int[] sTempLocation = new int[2];
+
+    // Child node templates and the state they were built from
+    private AccessibilityNodeInfoCompat[] mNodeCache;
+    private CharSequence mHostText;
+    private int mCacheMax;
+    private int mCachePosition = -1;
+    private boolean mCacheEnabled;
+    private boolean mCacheRtl;
+    private CharSequence[] mCacheEntries;
+    private final Rect mCacheBounds = new Rect();
+
+    private int mFocusedId = INVALID_ID;
+    private int mHoveredId = INVALID_ID;
+
+    // Latest position selected while dragging, sent when the interval has passed
+    private int mSelectedPosition = -1;
+    private long mLastSelectedEventTime;
+    private boolean mSelectedEventPending;
+    private final Runnable mSendSelectedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mSelectedEventPending = false;
+            sendSelectedEvent(mSelectedPosition);
+        }
+    };
+
+    SwitchAccessibilityHelper(MultiValueSwitch host) {
+        mHost = host;
+        mManager = (AccessibilityManager) host.getContext().getSystemService(Context.ACCESSIBILITY_SERVICE);
+    }
+
+    @Override
+    public AccessibilityNodeProviderCompat getAccessibilityNodeProvider(View host) {
+        return mNodeProvider;
+    }
+
+    @Override
+    public void onInitializeAccessibilityNodeInfo(View host, AccessibilityNodeInfoCompat info) {
+        super.onInitializeAccessibilityNodeInfo(host, info);
+        validateCache();
+        final int max = mCacheMax, position = mCachePosition;
+        info.setClassName(CLASS_NAME);
+        info.setText(mHostText);
+        info.setRangeInfo(AccessibilityNodeInfoCompat.RangeInfoCompat.obtain(
+                AccessibilityNodeInfoCompat.RangeInfoCompat.RANGE_TYPE_INT, 0, max - 1, position));
+        if (mCacheEnabled) {
+            if (position < max - 1) {
+                info.addAction(AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD);
+            }
+            if (position > 0) {
+                info.addAction(AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD);
+            }
+        }
+        for (int i = 0; i < max; i++) {
+            info.addChild(host, i);
+        }
+    }
+
+    @Override
+    public void onInitializeAccessibilityEvent(View host, AccessibilityEvent event) {
+        super.onInitializeAccessibilityEvent(host, event);
+        event.setClassName(CLASS_NAME);
+        event.setItemCount(mHost.getMax());
+        event.setCurrentItemIndex(mHost.getCheckedPosition());
+    }
+
+    @Override
+    public boolean performAccessibilityAction(View host, int action, Bundle args) {
+        if (super.performAccessibilityAction(host, action, args)) return true;
+        if (!mHost.isEnabled()) return false;
+        final int position = mHost.getCheckedPosition();
+        switch (action) {
+            case AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD: {
+                if (position >= mHost.getMax() - 1) return false;
+                mHost.setCheckedPosition(position + 1);
+                return true;
+            }
+            case AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD: {
+                if (position <= 0) return false;
+                mHost.setCheckedPosition(position - 1);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sends hover events for positions under the pointer while touch exploration is on.
+     *
+     * @return true if the event was handled
+     */
+    boolean dispatchHoverEvent(MotionEvent event) {
+        if (!mManager.isEnabled() || !AccessibilityManagerCompat.isTouchExplorationEnabled(mManager)) {
+            return false;
+        }
+        switch (MotionEventCompat.getActionMasked(event)) {
+            case MotionEventCompat.ACTION_HOVER_MOVE:
+            case MotionEventCompat.ACTION_HOVER_ENTER: {
+                final int id = getVirtualViewAt(event.getX(), event.getY());
+                updateHoveredId(id);
+                return id != INVALID_ID;
+            }
+            case MotionEventCompat.ACTION_HOVER_EXIT: {
+                if (mHoveredId == INVALID_ID) return false;
+                updateHoveredId(INVALID_ID);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Called when the thumb is dragged over another position.
+     */
+    void onThumbDragged(int position) {
+        if (!mManager.isEnabled()) return;
+        mSelectedPosition = position;
+        final long wait = mLastSelectedEventTime + mEventInterval - SystemClock.uptimeMillis();
+        if (mLastSelectedEventTime == 0 || wait <= 0) {
+            cancelPendingSelectedEvent();
+            sendSelectedEvent(position);
+        } else if (!mSelectedEventPending) {
+            mSelectedEventPending = true;
+            mHost.postDelayed(mSendSelectedRunnable, wait);
+        }
+    }
+
+    /**
+     * Called when checked position changes, sends its selection event right away.
+     */
+    void onCheckedPositionChanged(int position) {
+        if (!mManager.isEnabled()) return;
+        cancelPendingSelectedEvent();
+        mSelectedPosition = position;
+        sendSelectedEvent(position);
+    }
+
+    void onDetached() {
+        cancelPendingSelectedEvent();
+        mHoveredId = INVALID_ID;
+    }
+
+    private void cancelPendingSelectedEvent() {
+        if (!mSelectedEventPending) return;
+        mSelectedEventPending = false;
+        mHost.removeCallbacks(mSendSelectedRunnable);
+    }
+
+    private void sendSelectedEvent(int position) {
+        mLastSelectedEventTime = SystemClock.uptimeMillis();
+        sendEventForVirtualView(position, AccessibilityEvent.TYPE_VIEW_SELECTED);
+    }
+
+    private void updateHoveredId(int id) {
+        if (mHoveredId == id) return;
+        final int previousId = mHoveredId;
+        mHoveredId = id;
+        sendEventForVirtualView(id, AccessibilityEventCompat.TYPE_VIEW_HOVER_ENTER);
+        sendEventForVirtualView(previousId, AccessibilityEventCompat.TYPE_VIEW_HOVER_EXIT);
+    }
+
+    private int getVirtualViewAt(float x, float y) {
+        final Rect bounds = sTempRect;
+        mHost.getSwitchBounds(bounds);
+        if (x < bounds.left || x > bounds.right || y < bounds.top || y > bounds.bottom) {
+            return INVALID_ID;
+        }
+        final int max = mHost.getMax();
+        return SwitchGeometry.getCheckedPosition(SwitchGeometry.getTouchPosition(x, bounds.left,
+                bounds.right, mHost.getThumbWidth(), ViewUtils.isLayoutRtl(mHost)), max);
+    }
+
+    private boolean sendEventForVirtualView(int id, int eventType) {
+        if (id == INVALID_ID || !mManager.isEnabled()) return false;
+        final ViewParent parent = mHost.getParent();
+        if (parent == null) return false;
+        final AccessibilityEvent event;
+        if (id == HOST_ID) {
+            event = AccessibilityEvent.obtain(eventType);
+            ViewCompat.onInitializeAccessibilityEvent(mHost, event);
+        } else {
+            validateCache();
+            if (id >= mCacheMax) return false;
+            event = AccessibilityEvent.obtain(eventType);
+            final AccessibilityNodeInfoCompat node = mNodeCache[id];
+            event.getText().add(node.getText());
+            event.setEnabled(node.isEnabled());
+            event.setChecked(node.isChecked());
+            event.setClassName(CHILD_CLASS_NAME);
+            event.setPackageName(mHost.getContext().getPackageName());
+            event.setItemCount(mCacheMax);
+            event.setCurrentItemIndex(id);
+            final AccessibilityRecordCompat record = AccessibilityEventCompat.asRecord(event);
+            record.setSource(mHost, id);
+        }
+        return ViewParentCompat.requestSendAccessibilityEvent(parent, mHost, event);
+    }
+
+    /**
+     * Rebuilds cached child nodes if any state they depend on has changed.
+     */
+    private void validateCache() {
+        final int max = mHost.getMax();
+        final int position = mHost.getCheckedPosition();
+        final boolean enabled = mHost.isEnabled();
+        final boolean rtl = ViewUtils.isLayoutRtl(mHost);
+        final CharSequence[] entries = mHost.getEntries();
+        final Rect bounds = sTempRect;
+        mHost.getSwitchBounds(bounds);
+        if (mNodeCache != null && max == mCacheMax && position == mCachePosition
+                && enabled == mCacheEnabled && rtl == mCacheRtl && entries == mCacheEntries
+                && bounds.equals(mCacheBounds)) {
+            return;
+        }
+        if (mNodeCache != null) {
+            for (final AccessibilityNodeInfoCompat node : mNodeCache) {
+                node.recycle();
+            }
+        }
+        mCacheMax = max;
+        mCachePosition = position;
+        mCacheEnabled = enabled;
+        mCacheRtl = rtl;
+        mCacheEntries = entries;
+        mCacheBounds.set(bounds);
+        mHostText = getPositionText(position);
+
+        final int thumbWidth = mHost.getThumbWidth();
+        final int stepWidth = (bounds.width() - thumbWidth) / Math.max(1, max - 1);
+        final int halfWidth = Math.max(1, Math.min(thumbWidth, stepWidth) / 2);
+        final String packageName = mHost.getContext().getPackageName();
+        mNodeCache = new AccessibilityNodeInfoCompat[max];
+        for (int i = 0; i < max; i++) {
+            final AccessibilityNodeInfoCompat node = AccessibilityNodeInfoCompat.obtain(mHost, i);
+            node.setSource(mHost, i);
+            node.setParent(mHost);
+            node.setPackageName(packageName);
+            node.setClassName(CHILD_CLASS_NAME);
+            node.setText(getPositionText(i));
+            node.setCheckable(true);
+            node.setChecked(i == position);
+            node.setEnabled(enabled);
+            node.setVisibleToUser(true);
+            if (enabled) {
+                node.setClickable(true);
+                node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+            }
+            final int centerX = SwitchGeometry.getStopCenterX(i, max, bounds.left, bounds.right,
+                    thumbWidth, rtl);
+            // Copied by the node
+            sNodeBounds.set(centerX - halfWidth, bounds.top, centerX + halfWidth, bounds.bottom);
+            node.setBoundsInParent(sNodeBounds);
+            mNodeCache[i] = node;
+        }
+    }
+
+    private CharSequence getPositionText(int position) {
+        final CharSequence entry = mHost.getEntry(position);
+        if (entry != null) return entry;
+        return mHost.getContext().getString(R.string.mvs_position_description, position + 1,
+                mHost.getMax());
+    }
+
+    private class NodeProvider extends AccessibilityNodeProviderCompat {
+
+        @Override
+        public AccessibilityNodeInfoCompat createAccessibilityNodeInfo(int virtualViewId) {
+            if (virtualViewId == HOST_ID) {
+                final AccessibilityNodeInfoCompat node = AccessibilityNodeInfoCompat.obtain(mHost);
+                ViewCompat.onInitializeAccessibilityNodeInfo(mHost, node);
+                return node;
+            }
+            validateCache();
+            if (virtualViewId < 0 || virtualViewId >= mCacheMax) return null;
+            final AccessibilityNodeInfoCompat node = AccessibilityNodeInfoCompat.obtain(mNodeCache[virtualViewId]);
+            // Screen position changes with scrolling, so it's never cached
+            final Rect bounds = sTempRect;
+            node.getBoundsInParent(bounds);
+            mHost.getLocationOnScreen(sTempLocation);
+            bounds.offset(sTempLocation[0] - mHost.getScrollX(), sTempLocation[1] - mHost.getScrollY());
+            node.setBoundsInScreen(bounds);
+            final boolean focused = mFocusedId == virtualViewId;
+            node.setAccessibilityFocused(focused);
+            node.addAction(focused ? AccessibilityNodeInfoCompat.ACTION_CLEAR_ACCESSIBILITY_FOCUS
+                    : AccessibilityNodeInfoCompat.ACTION_ACCESSIBILITY_FOCUS);
+            return node;
+        }
+
+        @Override
+        public boolean performAction(int virtualViewId, int action, Bundle arguments) {
+            if (virtualViewId == HOST_ID) {
+                return ViewCompat.performAccessibilityAction(mHost, action, arguments);
+            }
+            if (virtualViewId < 0 || virtualViewId >= mHost.getMax()) return false;
+            switch (action) {
+                case AccessibilityNodeInfoCompat.ACTION_CLICK: {
+                    if (!mHost.isEnabled()) return false;
+                    mHost.setCheckedPosition(virtualViewId);
+                    sendEventForVirtualView(virtualViewId, AccessibilityEvent.TYPE_VIEW_CLICKED);
+                    return true;
+                }
+                case AccessibilityNodeInfoCompat.ACTION_ACCESSIBILITY_FOCUS: {
+                    if (mFocusedId == virtualViewId) return false;
+                    // Nothing drawn by the switch depends on accessibility focus, the
+                    // framework draws the focus highlight itself
+                    mFocusedId = virtualViewId;
+                    sendEventForVirtualView(virtualViewId,
+                            AccessibilityEventCompat.TYPE_VIEW_ACCESSIBILITY_FOCUSED);
+                    return true;
+                }
+                case AccessibilityNodeInfoCompat.ACTION_CLEAR_ACCESSIBILITY_FOCUS: {
+                    if (mFocusedId != virtualViewId) return false;
+                    mFocusedId = INVALID_ID;
+                    sendEventForVirtualView(virtualViewId,
+                            AccessibilityEventCompat.TYPE_VIEW_ACCESSIBILITY_FOCUS_CLEARED);
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import org.mariotaku.multivalueswitch.core.SwitchGeometry;
+
+/**
+ * Draws touch targets, stop positions, the last invalidated region and recent draw cost over
+ * a {@link MultiValueSwitch}, see {@link MultiValueSwitch#setDebugOverlayEnabled(boolean)}.
+ * Only created when enabled, so switches without it pay a null check.
+ */
+final class SwitchDebugOverlay {
+
+    /**
+     * Number of frames shown in the sparkline.
+     */
+    static final int HISTORY_SIZE = 32;
+
+    /**
+     * Draw duration filling the sparkline height, one frame at 60fps.
+     */
+    private static final long FRAME_BUDGET_NANOS = 16666667;
+
+    private static final int COLOR_HIT_RECT = 0x800000FF;
+    private static final int COLOR_STOP = 0x80FF00FF;
+    private static final int COLOR_INVALIDATED = 0x80FF0000;
+    private static final int COLOR_DRAW_TIME = 0xC000C000;
+    private static final int COLOR_DISPATCH = 0xC0FF8000;
+
+    private final Paint mStrokePaint = new Paint();
+    private final Paint mFillPaint = new Paint();
+    private final Rect mInvalidated = new Rect();
+
+    private final long[] mDrawNanos = new long[HISTORY_SIZE];
+    private final int[] mDispatchCounts = new int[HISTORY_SIZE];
+    private int mHistoryIndex;
+    private int mPendingDispatchCount;
+
+    SwitchDebugOverlay() {
+        mStrokePaint.setStyle(Paint.Style.STROKE);
+        mFillPaint.setStyle(Paint.Style.FILL);
+    }
+
+    void onInvalidate(int left, int top, int right, int bottom) {
+        mInvalidated.set(left, top, right, bottom);
+    }
+
+    /**
+     * Called on each listener dispatch, counted towards the next drawn frame.
+     */
+    void onDispatch() {
+        mPendingDispatchCount++;
+    }
+
+    void onDrawn(long drawNanos) {
+        mDrawNanos[mHistoryIndex] = drawNanos;
+        mDispatchCounts[mHistoryIndex] = mPendingDispatchCount;
+        mPendingDispatchCount = 0;
+        mHistoryIndex = (mHistoryIndex + 1) % HISTORY_SIZE;
+    }
+
+    long getDrawNanos(int framesAgo) {
+        return mDrawNanos[(mHistoryIndex - 1 - framesAgo + HISTORY_SIZE * 2) % HISTORY_SIZE];
+    }
+
+    int getDispatchCount(int framesAgo) {
+        return mDispatchCounts[(mHistoryIndex - 1 - framesAgo + HISTORY_SIZE * 2) % HISTORY_SIZE];
+    }
+
+    Rect getInvalidated() {
+        return mInvalidated;
+    }
+
+    void draw(Canvas canvas, int width, int height, int switchLeft, int switchTop,
+              int switchRight, int switchBottom, int thumbOffset, int thumbWidth,
+              int thumbPadding, int touchSlop, int max, boolean rtl) {
+        // Thumb hit rect, same as SwitchGeometry.hitThumb()
+        final int hitLeft = switchLeft + thumbOffset - touchSlop;
+        final int hitRight = hitLeft + thumbWidth + thumbPadding + touchSlop;
+        mStrokePaint.setColor(COLOR_HIT_RECT);
+        canvas.drawRect(hitLeft, switchTop - touchSlop, hitRight, switchBottom + touchSlop,
+                mStrokePaint);
+
+        // Thumb centers at each stop
+        mStrokePaint.setColor(COLOR_STOP);
+        for (int i = 0; i < max; i++) {
+            final int x = SwitchGeometry.getStopCenterX(i, max, switchLeft, switchRight,
+                    thumbWidth, rtl);
+            canvas.drawLine(x, switchTop, x, switchBottom, mStrokePaint);
+        }
+
+        if (!mInvalidated.isEmpty()) {
+            mStrokePaint.setColor(COLOR_INVALIDATED);
+            canvas.drawRect(mInvalidated.left + 0.5f, mInvalidated.top + 0.5f,
+                    mInvalidated.right - 0.5f, mInvalidated.bottom - 0.5f, mStrokePaint);
+        }
+
+        // Sparkline along the bottom quarter, oldest frame on the left
+        final float barWidth = width / (float) HISTORY_SIZE;
+        final float sparkHeight = height / 4f;
+        for (int i = 0; i < HISTORY_SIZE; i++) {
+            final int framesAgo = HISTORY_SIZE - 1 - i;
+            final float left = i * barWidth;
+            final float fraction = Math.min(1,
+                    getDrawNanos(framesAgo) / (float) FRAME_BUDGET_NANOS);
+            mFillPaint.setColor(COLOR_DRAW_TIME);
+            canvas.drawRect(left, height - sparkHeight * fraction, left + barWidth / 2, height,
+                    mFillPaint);
+            final int dispatchCount = Math.min(4, getDispatchCount(framesAgo));
+            if (dispatchCount > 0) {
+                mFillPaint.setColor(COLOR_DISPATCH);
+                canvas.drawRect(left + barWidth / 2, height - sparkHeight * dispatchCount / 4,
+                        left + barWidth, height, mFillPaint);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.mariotaku.multivalueswitch.library;
+
+/**
+ * Counters and latency histograms recorded by {@link MultiValueSwitch}es, see
+ * {@link MultiValueSwitch#setMetrics(SwitchMetrics)}. Share one instance between switches to
+ * aggregate them, or set it with {@link MultiValueSwitch#setDefaultMetrics(SwitchMetrics)} to
+ * collect from every switch created afterwards.
+ * <p/>
+ * Recording doesn't allocate. Must be used on the main thread, copy values out with getters
+ * to export them.
+ */
+public final class SwitchMetrics {
+
+    /**
+     * Buckets of {@link #getDispatchTimeMicros()} and {@link #getInputToCommitMillis()}
+     */
+    public static final int HISTOGRAM_BUCKETS = 16;
+
+    long invalidations;
+    long framesAnimated;
+    long measures;
+    long layouts;
+    long animationRetargets;
+    long checkedChanges;
+
+    private final Histogram mDispatchTimeMicros = new Histogram(HISTOGRAM_BUCKETS);
+    private final Histogram mInputToCommitMillis = new Histogram(HISTOGRAM_BUCKETS);
+
+    /**
+     * @return number of invalidations requested by the switch and its drawables
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * @return number of thumb animation frames applied
+     */
+    public long getFramesAnimated() {
+        return framesAnimated;
+    }
+
+    public long getMeasures() {
+        return measures;
+    }
+
+    public long getLayouts() {
+        return layouts;
+    }
+
+    /**
+     * @return number of thumb animations replaced by another one before settling
+     */
+    public long getAnimationRetargets() {
+        return animationRetargets;
+    }
+
+    /**
+     * @return number of checked position changes dispatched to listeners
+     */
+    public long getCheckedChanges() {
+        return checkedChanges;
+    }
+
+    /**
+     * @return time spent in checked change listeners per dispatch, in microseconds
+     */
+    public Histogram getDispatchTimeMicros() {
+        return mDispatchTimeMicros;
+    }
+
+    /**
+     * @return time from the touch event ending a tap or drag to the checked change it
+     * caused, including the thumb animation, in milliseconds
+     */
+    public Histogram getInputToCommitMillis() {
+        return mInputToCommitMillis;
+    }
+
+    public void reset() {
+        invalidations = 0;
+        framesAnimated = 0;
+        measures = 0;
+        layouts = 0;
+        animationRetargets = 0;
+        checkedChanges = 0;
+        mDispatchTimeMicros.reset();
+        mInputToCommitMillis.reset();
+    }
+
+    /**
+     * Histogram with power of two buckets: bucket 0 counts values below 1, bucket i counts
+     * values from 2<sup>i - 1</sup> until 2<sup>i</sup>, the last bucket also counts
+     * everything larger.
+     */
+    public static final class Histogram {
+        private final long[] mCounts;
+        private long mTotalCount;
+        private long mMax;
+
+        Histogram(int bucketCount) {
+            mCounts = new long[bucketCount];
+        }
+
+        void record(long value) {
+            final int bucket = Math.min(mCounts.length - 1,
+                    64 - Long.numberOfLeadingZeros(Math.max(0, value)));
+            mCounts[bucket]++;
+            mTotalCount++;
+            if (value > mMax) {
+                mMax = value;
+            }
+        }
+
+        public int getBucketCount() {
+            return mCounts.length;
+        }
+
+        public long getCount(int bucket) {
+            return mCounts[bucket];
+        }
+
+        /**
+         * @return exclusive upper bound of values counted by bucket, or
+         * {@link Long#MAX_VALUE} for the last bucket
+         */
+        public long getUpperBound(int bucket) {
+            if (bucket == mCounts.length - 1) return Long.MAX_VALUE;
+            return 1L << bucket;
+        }
+
+        public long getTotalCount() {
+            return mTotalCount;
+        }
+
+        /**
+         * @return largest value recorded
+         */
+        public long getMax() {
+            return mMax;
+        }
+
+        /**
+         * @param fraction Between 0 and 1, e.g. 0.99 for the 99th percentile
+         * @return upper bound of the bucket containing given percentile, 0 if empty
+         */
+        public long getPercentileUpperBound(float fraction) {
+            if (mTotalCount == 0) return 0;
+            final long rank = (long) Math.ceil(fraction * mTotalCount);
+            long seen = 0;
+            for (int i = 0; i < mCounts.length; i++) {
+                seen += mCounts[i];
+                if (seen >= rank) return getUpperBound(i);
+            }
+            return getUpperBound(mCounts.length - 1);
+        }
+
+        void reset() {
+            for (int i = 0; i < mCounts.length; i++) {
+                mCounts[i] = 0;
+            }
+            mTotalCount = 0;
+            mMax = 0;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Region;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.MVS_DrawableUtilsAccessor;
+
+import org.mariotaku.multivalueswitch.core.SwitchGeometry;
+
+/**
+ * Measure, layout and draw logic of a single switch, shared by {@link MultiValueSwitch} and
+ * {@link MultiValueSwitchGroupView}. Works on drawables owned by the caller and keeps no
+ * state, so one pair of thumb and track drawables can draw any number of switches.
+ * <p/>
+ * Must be used on the UI thread only.
+ */
+@SuppressWarnings("RestrictedApi")
+final class SwitchRenderer {
+
+    private static final Rect sTempRect = new Rect();
+    private static final Paint sPointPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+    private SwitchRenderer() {
+    }
+
+    /**
+     * @return width of the thumb, not including its padding
+     */
+    static int measureThumbWidth(@Nullable Drawable thumb) {
+        if (thumb == null) return 0;
+        final Rect padding = sTempRect;
+        thumb.getPadding(padding);
+        return thumb.getIntrinsicWidth() - padding.left - padding.right;
+    }
+
+    static int measureSwitchWidth(@Nullable Drawable thumb, @Nullable Drawable track,
+                                  int switchMinWidth, int max, int thumbWidth) {
+        final Rect padding = sTempRect;
+        if (track != null) {
+            track.getPadding(padding);
+        } else {
+            padding.setEmpty();
+        }
+
+        // Adjust left and right padding to ensure there's enough room for the
+        // thumb's padding (when present).
+        int paddingLeft = padding.left;
+        int paddingRight = padding.right;
+        if (thumb != null) {
+            final Rect inset = MVS_DrawableUtilsAccessor.getOpticalBounds(thumb);
+            paddingLeft = Math.max(paddingLeft, inset.left);
+            paddingRight = Math.max(paddingRight, inset.right);
+        }
+        return Math.max(switchMinWidth, max * thumbWidth + paddingLeft + paddingRight);
+    }
+
+    static int measureSwitchHeight(@Nullable Drawable thumb, @Nullable Drawable track) {
+        final int thumbHeight = thumb != null ? thumb.getIntrinsicHeight() : 0;
+        final int trackHeight = track != null ? track.getIntrinsicHeight() : 0;
+        return Math.max(trackHeight, thumbHeight);
+    }
+
+    /**
+     * Places a switch of given size at the end of the box (left, top, right, bottom),
+     * vertically centered.
+     *
+     * @param out Receives bounds of the switch
+     */
+    static void layoutSwitch(@Nullable Drawable thumb, @Nullable Drawable track, int switchWidth,
+                             int switchHeight, int left, int top, int right, int bottom,
+                             boolean rtl, Rect out) {
+        int opticalInsetLeft = 0;
+        int opticalInsetRight = 0;
+        if (thumb != null) {
+            final Rect trackPadding = sTempRect;
+            if (track != null) {
+                track.getPadding(trackPadding);
+            } else {
+                trackPadding.setEmpty();
+            }
+
+            final Rect insets = MVS_DrawableUtilsAccessor.getOpticalBounds(thumb);
+            opticalInsetLeft = Math.max(0, insets.left - trackPadding.left);
+            opticalInsetRight = Math.max(0, insets.right - trackPadding.right);
+        }
+
+        if (rtl) {
+            out.left = left + opticalInsetLeft;
+            out.right = out.left + switchWidth - opticalInsetLeft - opticalInsetRight;
+        } else {
+            out.right = right - opticalInsetRight;
+            out.left = out.right - switchWidth + opticalInsetLeft + opticalInsetRight;
+        }
+        out.top = (top + bottom) / 2 - switchHeight / 2;
+        out.bottom = out.top + switchHeight;
+    }
+
+    static int getThumbScrollRange(@Nullable Drawable thumb, @Nullable Drawable track,
+                                   int switchWidth, int thumbWidth) {
+        if (track == null) return 0;
+        final Rect padding = sTempRect;
+        track.getPadding(padding);
+
+        final Rect insets;
+        if (thumb != null) {
+            insets = MVS_DrawableUtilsAccessor.getOpticalBounds(thumb);
+        } else {
+            insets = MVS_DrawableUtilsAccessor.INSETS_NONE;
+        }
+        return switchWidth - thumbWidth - padding.left - padding.right
+                - insets.left - insets.right;
+    }
+
+    /**
+     * Sets bounds of track and thumb drawables for a switch at given bounds.
+     *
+     * @param thumbOffset Offset returned by {@link SwitchGeometry#getThumbOffset(float, boolean, int)}
+     */
+    static void setDrawableBounds(@Nullable Drawable thumb, @Nullable Drawable track,
+                                  int switchLeft, int switchTop, int switchRight,
+                                  int switchBottom, int thumbOffset, int thumbWidth) {
+        final Rect padding = sTempRect;
+        int thumbInitialLeft = switchLeft + thumbOffset;
+
+        final Rect thumbInsets;
+        if (thumb != null) {
+            thumbInsets = MVS_DrawableUtilsAccessor.getOpticalBounds(thumb);
+        } else {
+            thumbInsets = MVS_DrawableUtilsAccessor.INSETS_NONE;
+        }
+
+        // Layout the track.
+        if (track != null) {
+            track.getPadding(padding);
+
+            // Adjust thumb position for track padding.
+            thumbInitialLeft += padding.left;
+
+            // If necessary, offset by the optical insets of the thumb asset.
+            int trackLeft = switchLeft;
+            int trackTop = switchTop;
+            int trackRight = switchRight;
+            int trackBottom = switchBottom;
+            if (thumbInsets != null) {
+                if (thumbInsets.left > padding.left) {
+                    trackLeft += thumbInsets.left - padding.left;
+                }
+                if (thumbInsets.top > padding.top) {
+                    trackTop += thumbInsets.top - padding.top;
+                }
+                if (thumbInsets.right > padding.right) {
+                    trackRight -= thumbInsets.right - padding.right;
+                }
+                if (thumbInsets.bottom > padding.bottom) {
+                    trackBottom -= thumbInsets.bottom - padding.bottom;
+                }
+            }
+            track.setBounds(trackLeft, trackTop, trackRight, trackBottom);
+        }
+
+        // Layout the thumb.
+        if (thumb != null) {
+            thumb.getPadding(padding);
+
+            final int thumbLeft = thumbInitialLeft - padding.left;
+            final int thumbRight = thumbInitialLeft + thumbWidth + padding.right;
+            thumb.setBounds(thumbLeft, switchTop, thumbRight, switchBottom);
+        }
+    }
+
+    /**
+     * Draws track, stop points and thumb, drawables must have been positioned with
+     * {@link #setDrawableBounds(Drawable, Drawable, int, int, int, int, int, int)}.
+     */
+    static void draw(Canvas canvas, @Nullable Drawable thumb, @Nullable Drawable track,
+                     boolean splitTrack, int max, int switchLeft, int switchRight,
+                     int thumbWidth, float pointRadius, int pointColor) {
+        final Rect padding = sTempRect;
+        if (track != null) {
+            if (splitTrack && thumb != null) {
+                final Rect insets = MVS_DrawableUtilsAccessor.getOpticalBounds(thumb);
+                thumb.copyBounds(padding);
+                padding.left += insets.left;
+                padding.right -= insets.right;
+
+                final int saveCount = canvas.save();
+                canvas.clipRect(padding, Region.Op.DIFFERENCE);
+                track.draw(canvas);
+                canvas.restoreToCount(saveCount);
+            } else {
+                track.draw(canvas);
+            }
+
+            final int y = track.getBounds().centerY();
+            sPointPaint.setColor(pointColor);
+            for (int i = 1, j = max - 1; i < j; i++) {
+                canvas.drawCircle(SwitchGeometry.getTickX(i, max, switchLeft, switchRight, thumbWidth),
+                        y, pointRadius, sPointPaint);
+            }
+        }
+
+        if (thumb != null) {
+            thumb.draw(canvas);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.TypedArray;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.Nullable;
+import android.support.v4.util.LongSparseArray;
+import android.support.v7.widget.TintTypedArray;
+import android.util.AttributeSet;
+import android.view.ViewConfiguration;
+
+import java.util.WeakHashMap;
+
+/**
+ * Immutable attributes resolved from a theme, default style attribute and style resource,
+ * shared by every {@link MultiValueSwitch} inflated with them. Instances only keep their own
+ * state and create their drawables from the shared {@link Drawable.ConstantState}s.
+ * <p/>
+ * Activities handling configuration changes themselves keep their theme, so a cached style
+ * is only used while ui mode, density and orientation are the ones it was resolved with.
+ */
+@SuppressWarnings("RestrictedApi")
+final class SwitchStyle {
+
+    /**
+     * Guards appcompat context wrapping, drawable and tint lookups, which aren't thread safe,
+     * so switches can be constructed on background threads. Only calls made by this library
+     * take it, appcompat widgets inflated on the UI thread at the same time don't.
+     */
+    static final Object RESOLVE_LOCK = new Object();
+
+    private static final WeakHashMap<Resources.Theme, LongSparseArray<SwitchStyle>> sCache =
+            new WeakHashMap<>();
+    private static int sHitCount;
+    private static int sMissCount;
+
+    final int switchMinWidth;
+    final int switchPadding;
+    final boolean splitTrack;
+    // Color and radius of stop points, each renderer paints them with its own Paint
+    final int pointColor;
+    final float pointRadius;
+    final int touchSlop;
+    final int minFlingVelocity;
+    // Resource IDs of thumb and track drawables, or 0 if unknown
+    final int thumbResId;
+    final int trackResId;
+
+    // Values of MultiValueSwitch attributes resolved from style alone, only used when the
+    // instance doesn't set any of them
+    final int max;
+    final int position;
+    final boolean enabled;
+
+    // Configuration the style was resolved with
+    private final int mUiMode;
+    private final int mDensityDpi;
+    private final int mOrientation;
+
+    /**
+     * Handed out as copies by {@link #newEntries()}, a switch may change its array.
+     */
+    @Nullable
+    private final CharSequence[] mEntries;
+    @Nullable
+    private final Drawable.ConstantState mThumbState;
+    @Nullable
+    private final Drawable.ConstantState mTrackState;
+    /**
+     * Only kept when the drawable has no constant state, such a style is never shared.
+     */
+    @Nullable
+    private final Drawable mThumbDrawable;
+    @Nullable
+    private final Drawable mTrackDrawable;
+
+    private SwitchStyle(Context context, TintTypedArray a, TypedArray v, @Nullable TypedArray s) {
+        final Drawable thumb = a.getDrawable(android.support.v7.appcompat.R.styleable.SwitchCompat_android_thumb);
+        final Drawable track = a.getDrawable(android.support.v7.appcompat.R.styleable.SwitchCompat_track);
+        thumbResId = a.getResourceId(android.support.v7.appcompat.R.styleable.SwitchCompat_android_thumb, 0);
+        trackResId = a.getResourceId(android.support.v7.appcompat.R.styleable.SwitchCompat_track, 0);
+        mThumbState = thumb != null ? thumb.getConstantState() : null;
+        mTrackState = track != null ? track.getConstantState() : null;
+        mThumbDrawable = mThumbState == null ? thumb : null;
+        mTrackDrawable = mTrackState == null ? track : null;
+
+        switchMinWidth = a.getDimensionPixelSize(
+                android.support.v7.appcompat.R.styleable.SwitchCompat_switchMinWidth, 0);
+        switchPadding = a.getDimensionPixelSize(
+                android.support.v7.appcompat.R.styleable.SwitchCompat_switchPadding, 0);
+        splitTrack = a.getBoolean(android.support.v7.appcompat.R.styleable.SwitchCompat_splitTrack, false);
+
+        pointColor = 0x33000000;
+        pointRadius = context.getResources().getDisplayMetrics().density * 2;
+
+        final Resources res = context.getResources();
+        final Configuration resConfig = res.getConfiguration();
+        mUiMode = resConfig.uiMode;
+        mDensityDpi = res.getDisplayMetrics().densityDpi;
+        mOrientation = resConfig.orientation;
+
+        final ViewConfiguration config = ViewConfiguration.get(context);
+        touchSlop = config.getScaledTouchSlop();
+        minFlingVelocity = config.getScaledMinimumFlingVelocity();
+
+        max = pick(s, v, R.styleable.MultiValueSwitch_android_max)
+                .getInt(R.styleable.MultiValueSwitch_android_max, 2);
+        mEntries = pick(s, v, R.styleable.MultiValueSwitch_android_entries)
+                .getTextArray(R.styleable.MultiValueSwitch_android_entries);
+        position = pick(s, v, R.styleable.MultiValueSwitch_android_position)
+                .getInt(R.styleable.MultiValueSwitch_android_position, 0);
+        enabled = pick(s, v, R.styleable.MultiValueSwitch_android_enabled)
+                .getBoolean(R.styleable.MultiValueSwitch_android_enabled, true);
+    }
+
+    /**
+     * @return values of the style resource set on the instance if it has given attribute,
+     * otherwise values of the default style
+     */
+    private static TypedArray pick(@Nullable TypedArray s, TypedArray v, int index) {
+        return s != null && s.hasValue(index) ? s : v;
+    }
+
+    /**
+     * Returns the style for given attributes. Styles without per-instance attributes are
+     * shared between all switches using the same theme, default style attribute and style
+     * resource, so creating another instance with them costs a map lookup. A cached style
+     * resolved with another configuration is replaced.
+     */
+    @SuppressLint("PrivateResource")
+    static SwitchStyle obtain(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        if (hasInstanceAttributes(attrs, android.support.v7.appcompat.R.styleable.SwitchCompat)) {
+            synchronized (RESOLVE_LOCK) {
+                return resolve(context, attrs, defStyleAttr);
+            }
+        }
+        final int styleRes = attrs != null ? attrs.getStyleAttribute() : 0;
+        final long key = ((long) defStyleAttr << 32) | (styleRes & 0xFFFFFFFFL);
+        final Resources.Theme theme = context.getTheme();
+        synchronized (RESOLVE_LOCK) {
+            LongSparseArray<SwitchStyle> styles = sCache.get(theme);
+            if (styles == null) {
+                styles = new LongSparseArray<>();
+                sCache.put(theme, styles);
+            }
+            SwitchStyle style = styles.get(key);
+            if (style != null && style.matches(context.getResources())) {
+                sHitCount++;
+            } else {
+                sMissCount++;
+                style = resolve(context, attrs, defStyleAttr);
+                if (!style.isShareable()) return style;
+                styles.put(key, style);
+            }
+            return style;
+        }
+    }
+
+    /**
+     * Drops all cached styles, following instances will resolve their styles again.
+     */
+    static void clearCache() {
+        synchronized (RESOLVE_LOCK) {
+            sCache.clear();
+        }
+    }
+
+    /**
+     * @return number of lookups served by a cached style
+     */
+    static int getHitCount() {
+        synchronized (RESOLVE_LOCK) {
+            return sHitCount;
+        }
+    }
+
+    /**
+     * @return number of lookups that resolved a style to cache, not counting styles with
+     * per-instance attributes
+     */
+    static int getMissCount() {
+        synchronized (RESOLVE_LOCK) {
+            return sMissCount;
+        }
+    }
+
+    @SuppressLint("PrivateResource")
+    private static SwitchStyle resolve(Context context, @Nullable AttributeSet attrs, int defStyleAttr) {
+        final TintTypedArray a = TintTypedArray.obtainStyledAttributes(context,
+                attrs, android.support.v7.appcompat.R.styleable.SwitchCompat, defStyleAttr, 0);
+        // Values set on the instance must not end up in a shared style, whichever instance
+        // resolves it first
+        final TypedArray v, s;
+        if (hasInstanceAttributes(attrs, R.styleable.MultiValueSwitch)) {
+            v = context.obtainStyledAttributes(null, R.styleable.MultiValueSwitch, defStyleAttr, 0);
+            // Style resource set on the instance, it goes before the default style. Theme
+            // values show up here too, only themes setting these attributes would notice
+            final int styleRes = attrs.getStyleAttribute();
+            s = styleRes != 0
+                    ? context.obtainStyledAttributes(styleRes, R.styleable.MultiValueSwitch) : null;
+        } else {
+            v = context.obtainStyledAttributes(attrs, R.styleable.MultiValueSwitch, defStyleAttr, 0);
+            s = null;
+        }
+        try {
+            return new SwitchStyle(context, a, v, s);
+        } finally {
+            a.recycle();
+            v.recycle();
+            if (s != null) {
+                s.recycle();
+            }
+        }
+    }
+
+    /**
+     * @return true if attrs set any attribute in styleable, so values resolved from
+     * style alone can't be used
+     */
+    static boolean hasInstanceAttributes(@Nullable AttributeSet attrs, int[] styleable) {
+        if (attrs == null) return false;
+        for (int i = 0, j = attrs.getAttributeCount(); i < j; i++) {
+            final int nameRes = attrs.getAttributeNameResource(i);
+            if (nameRes == 0) continue;
+            for (final int attr : styleable) {
+                if (attr == nameRes) return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(Resources res) {
+        final Configuration config = res.getConfiguration();
+        return mUiMode == config.uiMode && mOrientation == config.orientation
+                && mDensityDpi == res.getDisplayMetrics().densityDpi;
+    }
+
+    private boolean isShareable() {
+        return mThumbDrawable == null && mTrackDrawable == null;
+    }
+
+    /**
+     * @return copy of entries resolved from style
+     */
+    @Nullable
+    CharSequence[] newEntries() {
+        return mEntries != null ? mEntries.clone() : null;
+    }
+
+    @Nullable
+    Drawable newThumbDrawable(Resources res) {
+        if (mThumbState != null) {
+            synchronized (RESOLVE_LOCK) {
+                return mThumbState.newDrawable(res);
+            }
+        }
+        return mThumbDrawable;
+    }
+
+    @Nullable
+    Drawable newTrackDrawable(Resources res) {
+        if (mTrackState != null) {
+            synchronized (RESOLVE_LOCK) {
+                return mTrackState.newDrawable(res);
+            }
+        }
+        return mTrackDrawable;
+    }
+}
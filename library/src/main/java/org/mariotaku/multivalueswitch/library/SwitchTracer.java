@@ -0,0 +1,141 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.os.Build;
+import android.support.v4.os.TraceCompat;
+
+import java.lang.reflect.Method;
+
+/**
+ * Receives trace sections around {@link MultiValueSwitch} work, see
+ * {@link MultiValueSwitch#setTracer(SwitchTracer)}. Sections are nested and always ended on
+ * the thread that began them. Async sections span a whole thumb transition, they may
+ * overlap sections of other switches and are told apart by cookie.
+ */
+public abstract class SwitchTracer {
+
+    public static final String SECTION_MEASURE = "MVS:onMeasure";
+    public static final String SECTION_LAYOUT = "MVS:onLayout";
+    public static final String SECTION_DRAW = "MVS:draw";
+    public static final String SECTION_ON_DRAW = "MVS:onDraw";
+    public static final String SECTION_TOUCH_DOWN = "MVS:touchDown";
+    public static final String SECTION_TOUCH_MOVE = "MVS:touchMove";
+    public static final String SECTION_TOUCH_UP = "MVS:touchUp";
+    public static final String SECTION_ANIMATION_FRAME = "MVS:animationFrame";
+    public static final String SECTION_DRAWABLE_STATE = "MVS:drawableStateChanged";
+    public static final String SECTION_DISPATCH_CHECKED_CHANGE = "MVS:dispatchCheckedChange";
+    /**
+     * Async section from the start of a thumb animation until it settles or is cancelled.
+     */
+    public static final String ASYNC_SECTION_TRANSITION = "MVS:transition";
+
+    private static SwitchTracer sSystemTracer;
+
+    public abstract void beginSection(String name);
+
+    public abstract void endSection();
+
+    public abstract void beginAsyncSection(String name, int cookie);
+
+    public abstract void endAsyncSection(String name, int cookie);
+
+    /**
+     * @return tracer writing to systrace and Perfetto with {@link TraceCompat}. Async
+     * sections are only written where the platform supports them.
+     */
+    public static SwitchTracer system() {
+        if (sSystemTracer == null) {
+            sSystemTracer = new SystemTracer();
+        }
+        return sSystemTracer;
+    }
+
+    private static class SystemTracer extends SwitchTracer {
+
+        // Build.VERSION_CODES.Q, beginAsyncSection and isEnabled became public there
+        private static final int SDK_Q = 29;
+        private static final Object[] NO_ARGS = new Object[0];
+
+        // Async tracing is resolved reflectively once, hidden before Q and not in our SDK after
+        private boolean mAsyncResolved;
+        private Method mIsEnabled;
+        private Object[] mIsEnabledArgs;
+        /**
+         * Boxed once, only passed to the hidden methods before Q.
+         */
+        private Long mTraceTag;
+        private Method mAsyncTraceBegin;
+        private Method mAsyncTraceEnd;
+
+        @Override
+        public void beginSection(String name) {
+            TraceCompat.beginSection(name);
+        }
+
+        @Override
+        public void endSection() {
+            TraceCompat.endSection();
+        }
+
+        @Override
+        public void beginAsyncSection(String name, int cookie) {
+            invokeAsync(true, name, cookie);
+        }
+
+        @Override
+        public void endAsyncSection(String name, int cookie) {
+            invokeAsync(false, name, cookie);
+        }
+
+        private void invokeAsync(boolean begin, String name, int cookie) {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) return;
+            if (!mAsyncResolved) {
+                mAsyncResolved = true;
+                resolveAsync();
+            }
+            final Method method = begin ? mAsyncTraceBegin : mAsyncTraceEnd;
+            // Nothing boxed or allocated unless tracing is on
+            if (method == null || !isTraceEnabled()) return;
+            try {
+                if (mTraceTag != null) {
+                    method.invoke(null, mTraceTag, name, cookie);
+                } else {
+                    method.invoke(null, name, cookie);
+                }
+            } catch (Exception e) {
+                // Ignore, tracing is best effort
+            }
+        }
+
+        private boolean isTraceEnabled() {
+            try {
+                return (Boolean) mIsEnabled.invoke(null, mIsEnabledArgs);
+            } catch (Exception e) {
+                return false;
+            }
+        }
+
+        private void resolveAsync() {
+            try {
+                final Class<?> cls = Class.forName("android.os.Trace");
+                if (Build.VERSION.SDK_INT >= SDK_Q) {
+                    mIsEnabled = cls.getMethod("isEnabled");
+                    mIsEnabledArgs = NO_ARGS;
+                    mAsyncTraceBegin = cls.getMethod("beginAsyncSection", String.class,
+                            int.class);
+                    mAsyncTraceEnd = cls.getMethod("endAsyncSection", String.class, int.class);
+                } else {
+                    mTraceTag = cls.getField("TRACE_TAG_APP").getLong(null);
+                    mIsEnabled = cls.getMethod("isTagEnabled", long.class);
+                    mIsEnabledArgs = new Object[]{mTraceTag};
+                    mAsyncTraceBegin = cls.getMethod("asyncTraceBegin", long.class,
+                            String.class, int.class);
+                    mAsyncTraceEnd = cls.getMethod("asyncTraceEnd", long.class,
+                            String.class, int.class);
+                }
+            } catch (Exception e) {
+                mAsyncTraceBegin = null;
+                mAsyncTraceEnd = null;
+            }
+        }
+    }
+}
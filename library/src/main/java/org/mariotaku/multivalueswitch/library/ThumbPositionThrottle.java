@@ -0,0 +1,83 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+
+/**
+ * Limits how often thumb position changes reach listeners. Updates can be conflated to at
+ * most one per display frame, and dropped unless they moved far enough. An update arriving
+ * sooner than the minimum interval is delivered once the interval passed, with the latest
+ * position. Settled positions are always delivered.
+ */
+final class ThumbPositionThrottle implements Runnable {
+
+    private final MultiValueSwitch mView;
+
+    boolean conflatePerFrame;
+    float minDelta;
+    long minInterval;
+
+    private float mLastOffset = Float.NaN;
+    private long mLastTime;
+    private float mPendingOffset;
+    private boolean mScheduled;
+
+    ThumbPositionThrottle(MultiValueSwitch view) {
+        mView = view;
+    }
+
+    void update(float positionOffset, boolean settled) {
+        if (settled) {
+            cancel();
+            deliver(positionOffset);
+            return;
+        }
+        mPendingOffset = positionOffset;
+        // Already waiting for next frame or the end of the interval, which takes the latest
+        if (mScheduled) return;
+        if (conflatePerFrame) {
+            mScheduled = true;
+            ViewCompat.postOnAnimation(mView, this);
+        } else {
+            deliverPending();
+        }
+    }
+
+    @Override
+    public void run() {
+        mScheduled = false;
+        deliverPending();
+    }
+
+    void cancel() {
+        if (mScheduled) {
+            mView.removeCallbacks(this);
+            mScheduled = false;
+        }
+    }
+
+    /**
+     * Delivers pending position if it moved far enough, now or once the minimum interval
+     * since the last delivery passed.
+     */
+    private void deliverPending() {
+        if (Float.isNaN(mLastOffset)) {
+            deliver(mPendingOffset);
+            return;
+        }
+        if (Math.abs(mPendingOffset - mLastOffset) < minDelta) return;
+        final long wait = mLastTime + minInterval - SystemClock.uptimeMillis();
+        if (wait <= 0) {
+            deliver(mPendingOffset);
+        } else {
+            mScheduled = true;
+            mView.postDelayed(this, wait);
+        }
+    }
+
+    private void deliver(float positionOffset) {
+        mLastOffset = positionOffset;
+        mLastTime = SystemClock.uptimeMillis();
+        mView.deliverThumbPositionChange(positionOffset);
+    }
+}
@@ -0,0 +1,251 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.PorterDuff;
+import android.graphics.drawable.Drawable;
+import android.support.annotation.DrawableRes;
+import android.support.annotation.Nullable;
+import android.support.v4.graphics.drawable.DrawableCompat;
+import android.support.v7.widget.AppCompatDrawableManager;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of tinted thumb and track drawables, keyed by resource, tint, theme and
+ * configuration, as default tints applied by appcompat depend on the theme. Switches
+ * tinted the same way share one tinted {@link Drawable.ConstantState}, and only mutate
+ * their own copy once their tint differs.
+ * <p/>
+ * Call {@link #trimMemory(int)} from {@link ComponentCallbacks2#onTrimMemory(int)} to
+ * release cached states when memory is low.
+ */
+@SuppressWarnings("RestrictedApi")
+public final class TintedDrawableCache {
+
+    private static final int MAX_ENTRIES = 64;
+
+    private static final LinkedHashMap<Key, Entry> sEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private static long sEstimatedByteCount;
+    private static int sHitCount;
+    private static int sMissCount;
+
+    private TintedDrawableCache() {
+    }
+
+    /**
+     * Returns a drawable tinted with given tint list and mode, sharing its state with other
+     * drawables returned for the same arguments. A tint list or mode that is set, even to
+     * {@code null}, replaces the default tint appcompat applied to the resource, one that isn't
+     * set keeps it.
+     */
+    @Nullable
+    static Drawable get(Context context, @DrawableRes int resId, boolean hasTint,
+                        @Nullable ColorStateList tintList, boolean hasTintMode,
+                        @Nullable PorterDuff.Mode tintMode) {
+        final Configuration config = context.getResources().getConfiguration();
+        final int density = context.getResources().getDisplayMetrics().densityDpi;
+        final Key key = new Key(resId, hasTint, tintList, hasTintMode, tintMode,
+                context.getTheme(), config.uiMode, density);
+        synchronized (SwitchStyle.RESOLVE_LOCK) {
+            Entry entry = sEntries.get(key);
+            if (entry != null) {
+                sHitCount++;
+                return entry.state.newDrawable(context.getResources());
+            }
+            sMissCount++;
+            Drawable drawable = AppCompatDrawableManager.get().getDrawable(context, resId);
+            if (drawable == null) return null;
+            drawable = drawable.mutate();
+            if (hasTint) {
+                DrawableCompat.setTintList(drawable, tintList);
+            }
+            if (hasTintMode) {
+                DrawableCompat.setTintMode(drawable, tintMode);
+            }
+            final Drawable.ConstantState state = drawable.getConstantState();
+            // Can't be shared, the caller owns this one
+            if (state == null) return drawable;
+            entry = new Entry(state, estimateByteCount(drawable));
+            sEntries.put(key, entry);
+            sEstimatedByteCount += entry.byteCount;
+            trimToSize(MAX_ENTRIES);
+            // Never hand out the drawable owning the cached state, it may be mutated later
+            return state.newDrawable(context.getResources());
+        }
+    }
+
+    /**
+     * Releases cached states according to given trim level.
+     *
+     * @param level Level passed to {@link ComponentCallbacks2#onTrimMemory(int)}
+     */
+    public static void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            clear();
+            SwitchStyle.clearCache();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            synchronized (SwitchStyle.RESOLVE_LOCK) {
+                trimToSize(sEntries.size() / 2);
+            }
+        }
+    }
+
+    /**
+     * Releases all cached states. Drawables already in use are not affected.
+     */
+    public static void clear() {
+        synchronized (SwitchStyle.RESOLVE_LOCK) {
+            sEntries.clear();
+            sEstimatedByteCount = 0;
+        }
+    }
+
+    /**
+     * @return number of cached tinted states
+     */
+    public static int getEntryCount() {
+        synchronized (SwitchStyle.RESOLVE_LOCK) {
+            return sEntries.size();
+        }
+    }
+
+    /**
+     * @return rough upper bound of bytes held by cached states, counting intrinsic width
+     * &times; height &times; 4 for each entry. Entries tinting the same resource usually share
+     * its bitmap, which is counted once per entry here, and drawables without a bitmap count
+     * as if they had one. Only meant for reporting, trimming goes by entry count.
+     */
+    public static long getEstimatedByteCount() {
+        synchronized (SwitchStyle.RESOLVE_LOCK) {
+            return sEstimatedByteCount;
+        }
+    }
+
+    public static int getHitCount() {
+        synchronized (SwitchStyle.RESOLVE_LOCK) {
+            return sHitCount;
+        }
+    }
+
+    public static int getMissCount() {
+        synchronized (SwitchStyle.RESOLVE_LOCK) {
+            return sMissCount;
+        }
+    }
+
+    private static void trimToSize(int size) {
+        final Iterator<Map.Entry<Key, Entry>> iterator = sEntries.entrySet().iterator();
+        while (sEntries.size() > size && iterator.hasNext()) {
+            sEstimatedByteCount -= iterator.next().getValue().byteCount;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Size of an ARGB_8888 bitmap of the drawable's intrinsic size, whether or not the state
+     * owns one.
+     */
+    private static long estimateByteCount(Drawable drawable) {
+        final int width = drawable.getIntrinsicWidth(), height = drawable.getIntrinsicHeight();
+        if (width <= 0 || height <= 0) return 0;
+        return (long) width * height * 4;
+    }
+
+    private static class Entry {
+        final Drawable.ConstantState state;
+        final long byteCount;
+
+        Entry(Drawable.ConstantState state, long byteCount) {
+            this.state = state;
+            this.byteCount = byteCount;
+        }
+    }
+
+    private static class Key {
+        final int resId;
+        /**
+         * Whether a tint list was set, a {@code null} one clears appcompat's default tint
+         */
+        final boolean hasTint;
+        /**
+         * Stateless tint lists are compared by color, as a new one is usually created
+         * for each call. Other lists are compared by identity.
+         */
+        final ColorStateList tintList;
+        final boolean hasTintColor;
+        final int tintColor;
+        final boolean hasTintMode;
+        final PorterDuff.Mode tintMode;
+        /**
+         * Weak so the cache doesn't keep themes alive, entries of collected themes never
+         * match again and are evicted as least recently used.
+         */
+        final WeakReference<Resources.Theme> theme;
+        final int themeHash;
+        final int uiMode;
+        final int density;
+
+        Key(int resId, boolean hasTint, @Nullable ColorStateList tintList, boolean hasTintMode,
+            @Nullable PorterDuff.Mode tintMode, Resources.Theme theme, int uiMode, int density) {
+            this.resId = resId;
+            this.hasTint = hasTint;
+            if (tintList != null && !tintList.isStateful()) {
+                this.tintList = null;
+                this.hasTintColor = true;
+                this.tintColor = tintList.getDefaultColor();
+            } else {
+                this.tintList = tintList;
+                this.hasTintColor = false;
+                this.tintColor = 0;
+            }
+            this.hasTintMode = hasTintMode;
+            this.tintMode = tintMode;
+            this.theme = new WeakReference<>(theme);
+            this.themeHash = System.identityHashCode(theme);
+            this.uiMode = uiMode;
+            this.density = density;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return resId == key.resId && hasTint == key.hasTint
+                    && hasTintMode == key.hasTintMode && hasTintColor == key.hasTintColor
+                    && tintColor == key.tintColor && density == key.density
+                    && uiMode == key.uiMode && themeHash == key.themeHash
+                    && tintList == key.tintList && tintMode == key.tintMode
+                    && isSameTheme(key);
+        }
+
+        private boolean isSameTheme(Key key) {
+            final Resources.Theme theme = this.theme.get();
+            return theme != null && theme == key.theme.get();
+        }
+
+        @Override
+        public int hashCode() {
+            int result = resId;
+            result = 31 * result + (hasTint ? 1 : 0);
+            result = 31 * result + (hasTintMode ? 1 : 0);
+            result = 31 * result + (tintList != null ? System.identityHashCode(tintList) : 0);
+            result = 31 * result + (hasTintColor ? 1 : 0);
+            result = 31 * result + tintColor;
+            result = 31 * result + (tintMode != null ? tintMode.hashCode() : 0);
+            result = 31 * result + themeHash;
+            result = 31 * result + uiMode;
+            result = 31 * result + density;
+            return result;
+        }
+    }
+}
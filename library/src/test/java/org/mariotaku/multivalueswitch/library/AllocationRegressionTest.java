@@ -0,0 +1,230 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.ContextThemeWrapper;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.animation.Transformation;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fails when a path declared allocation free starts allocating. Each path is warmed up, then
+ * run repeatedly while the thread's allocated bytes are counted. One-off allocations, e.g.
+ * lazily created objects or the drawable state of a press, are tolerated as long as they
+ * stay under a byte per step.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class AllocationRegressionTest {
+
+    private static final int WARMUP_STEPS = 2000;
+    private static final int STEPS = 2000;
+    private static final long FRAME_INTERVAL = 16;
+    private static final int GESTURE_STEPS = 400;
+    private static final int SETTLE_STEPS =
+            (int) (MultiValueSwitch.THUMB_ANIMATION_DURATION / FRAME_INTERVAL) + 4;
+
+    private com.sun.management.ThreadMXBean mThreadMXBean;
+    private Activity mActivity;
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        mThreadMXBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(mThreadMXBean.isThreadAllocatedMemorySupported());
+        mThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+        mActivity = Robolectric.setupActivity(Activity.class);
+        mContext = new ContextThemeWrapper(mActivity,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+        // Keep invalidations from running traversals synchronously, they'd be counted too
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @After
+    public void tearDown() {
+        ShadowLooper.unPauseMainLooper();
+    }
+
+    @Test
+    public void drawFrame() {
+        final MultiValueSwitch view = createLaidOutSwitch(5);
+        final RecordingCanvas canvas = new RecordingCanvas();
+        assertNoAllocation("draw", new Step() {
+            @Override
+            public void run(int step) {
+                view.setCheckedPosition(step % 5, false);
+                canvas.reset();
+                RobolectricDraw.draw(view, canvas);
+            }
+        });
+    }
+
+    @Test
+    public void dragThumb() {
+        final MultiValueSwitch view = createLaidOutSwitch(5);
+        view.addOnThumbPositionChangeListener(new MultiValueSwitch.OnThumbPositionChangeListener() {
+            @Override
+            public void onThumbPositionChange(float positionOffset) {
+            }
+        });
+        final int width = view.getWidth(), y = view.getHeight() / 2;
+        final long downTime = SystemClock.uptimeMillis();
+        final MotionEvent down = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_DOWN, 1, y, 0);
+        final MotionEvent move = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_MOVE, 1, y, 0);
+        final MotionEvent up = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_UP, 1, y, 0);
+        final RecordingCanvas canvas = new RecordingCanvas();
+        assertNoAllocation("drag", new Step() {
+            @Override
+            public void run(int step) {
+                final int phase = step % GESTURE_STEPS;
+                if (phase == 0) {
+                    // Start every gesture on the thumb
+                    view.setCheckedPosition(0, false);
+                    view.onTouchEvent(down);
+                } else if (phase == GESTURE_STEPS - 1) {
+                    // Ends the drag, cancelling the press of the super class
+                    view.onTouchEvent(up);
+                } else {
+                    // Sweep back and forth across all stops
+                    final int sweep = phase % 40;
+                    move.setLocation(width * (sweep < 20 ? sweep : 40 - sweep) / 20f, y);
+                    view.onTouchEvent(move);
+                }
+                canvas.reset();
+                RobolectricDraw.draw(view, canvas);
+            }
+        });
+        assertFalse(view.hasVelocityTracker());
+        down.recycle();
+        move.recycle();
+        up.recycle();
+    }
+
+    @Test
+    public void animateAndRetarget() {
+        final MultiValueSwitch view = createAttachedSwitch(5);
+        final RecordingCanvas canvas = new RecordingCanvas();
+        final Transformation transformation = new Transformation();
+        final long[] frameTime = {0};
+        assertNoAllocation("animation", new Step() {
+            @Override
+            public void run(int step) {
+                if (step % 8 == 0) {
+                    // Retarget before the running animation settles
+                    view.setCheckedPosition(step % 16 == 0 ? 4 : 0);
+                }
+                view.getAnimation().getTransformation(frameTime[0], transformation);
+                frameTime[0] += FRAME_INTERVAL;
+                canvas.reset();
+                RobolectricDraw.draw(view, canvas);
+            }
+        });
+        assertNotNull(view.getAnimation());
+    }
+
+    @Test
+    public void animateToSettle() {
+        final MultiValueSwitch view = createAttachedSwitch(5);
+        final RecordingCanvas canvas = new RecordingCanvas();
+        final Transformation transformation = new Transformation();
+        final long[] frameTime = {0};
+        assertNoAllocation("settle", new Step() {
+            @Override
+            public void run(int step) {
+                final int frame = step % SETTLE_STEPS;
+                if (frame == 0) {
+                    // Every animation runs past its duration, so it settles before the next
+                    view.setCheckedPosition(step / SETTLE_STEPS % 2 == 0 ? 4 : 0);
+                }
+                view.getAnimation().getTransformation(frameTime[0], transformation);
+                frameTime[0] += FRAME_INTERVAL;
+                canvas.reset();
+                RobolectricDraw.draw(view, canvas);
+            }
+        });
+        assertTrue(view.getAnimation().hasEnded());
+        assertEquals((WARMUP_STEPS + STEPS - 1) / SETTLE_STEPS % 2 == 0 ? 4 : 0,
+                view.getCheckedPosition());
+    }
+
+    private void assertNoAllocation(String name, Step step) {
+        for (int i = 0; i < WARMUP_STEPS; i++) {
+            step.run(i);
+        }
+        final long baseline = measure(EMPTY_STEP);
+        final long allocated = measure(step) - baseline;
+        System.out.println("MultiValueSwitch " + name + ": " + allocated + " bytes over "
+                + STEPS + " steps");
+        assertTrue(name + " allocated " + allocated + " bytes over " + STEPS + " steps",
+                allocated < STEPS);
+    }
+
+    private long measure(Step step) {
+        final long threadId = Thread.currentThread().getId();
+        final long start = mThreadMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < STEPS; i++) {
+            step.run(WARMUP_STEPS + i);
+        }
+        return mThreadMXBean.getThreadAllocatedBytes(threadId) - start;
+    }
+
+    private MultiValueSwitch createLaidOutSwitch(int max) {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        view.setMax(max);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    /**
+     * @return switch shown in a window, so position changes animate
+     */
+    private MultiValueSwitch createAttachedSwitch(int max) {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        view.setMax(max);
+        final FrameLayout container = new FrameLayout(mActivity);
+        container.addView(view);
+        mActivity.setContentView(container);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    private static final Step EMPTY_STEP = new Step() {
+        @Override
+        public void run(int step) {
+        }
+    };
+
+    private interface Step {
+        void run(int step);
+    }
+}
@@ -0,0 +1,184 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.PorterDuff;
+import android.util.AttributeSet;
+import android.view.ContextThemeWrapper;
+import android.widget.LinearLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Constructs many {@link MultiValueSwitch}es concurrently on a thread pool, like
+ * AsyncLayoutInflater does, while the main looper is paused. Nothing may be applied to the
+ * views off the UI thread, and background tint, enabled state and style must be applied
+ * exactly once when they're attached on the main thread.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class BackgroundInflationTest {
+
+    private static final int THREAD_COUNT = 8;
+    private static final int INSTANCE_COUNT = 400;
+    private static final int TINT_COLOR = 0xFF3F51B5;
+
+    private Activity mActivity;
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.setupActivity(Activity.class);
+        mContext = new ContextThemeWrapper(mActivity,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+    }
+
+    @Test
+    public void constructOnThreadPool() throws Exception {
+        SwitchStyle.clearCache();
+        final int misses = SwitchStyle.getMissCount();
+        ShadowLooper.pauseMainLooper();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        final List<Future<CountingSwitch>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < INSTANCE_COUNT; i++) {
+                final int max = getMax(i);
+                final boolean disabled = isDisabled(i);
+                futures.add(executor.submit(new Callable<CountingSwitch>() {
+                    @Override
+                    public CountingSwitch call() throws Exception {
+                        final AttributeSet attrs = Robolectric.buildAttributeSet()
+                                .addAttribute(android.R.attr.max, String.valueOf(max))
+                                .addAttribute(R.styleable.MultiValueSwitch[
+                                        R.styleable.MultiValueSwitch_android_position],
+                                        String.valueOf(max - 1))
+                                .addAttribute(android.R.attr.enabled, String.valueOf(!disabled))
+                                .addAttribute(R.attr.backgroundTint,
+                                        String.format("#%08X", TINT_COLOR))
+                                .addAttribute(R.attr.backgroundTintMode, "src_in")
+                                .build();
+                        return new CountingSwitch(mContext, attrs);
+                    }
+                }));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // Every instance shares the style resolved once, the rest were lookups
+        assertEquals(misses + 1, SwitchStyle.getMissCount());
+        final SwitchStyle style = futures.get(0).get().getStyle();
+        final LinearLayout container = new LinearLayout(mActivity);
+        for (int i = 0; i < INSTANCE_COUNT; i++) {
+            final CountingSwitch view = futures.get(i).get();
+            assertSame(style, view.getStyle());
+            assertEquals(getMax(i), view.getMax());
+            assertEquals(getMax(i) - 1, view.getCheckedPosition());
+            // Nothing applied off the UI thread
+            assertEquals(0, view.mEnabledCount);
+            assertEquals(0, view.mTintListCount);
+            assertEquals(0, view.mTintModeCount);
+            container.addView(view);
+        }
+        mActivity.setContentView(container);
+        ShadowLooper.unPauseMainLooper();
+
+        for (int i = 0; i < INSTANCE_COUNT; i++) {
+            final CountingSwitch view = (CountingSwitch) container.getChildAt(i);
+            assertApplied(view, i);
+        }
+
+        // Attaching again applies nothing
+        mActivity.setContentView(new LinearLayout(mActivity));
+        mActivity.setContentView(container);
+        for (int i = 0; i < INSTANCE_COUNT; i++) {
+            assertApplied((CountingSwitch) container.getChildAt(i), i);
+        }
+    }
+
+    private static void assertApplied(CountingSwitch view, int i) {
+        // Enabled is left as the View constructor set it, disabled is applied when attached
+        assertEquals(isDisabled(i) ? 1 : 0, view.mEnabledCount);
+        assertEquals(!isDisabled(i), view.isEnabled());
+        assertEquals(1, view.mTintListCount);
+        assertEquals(1, view.mTintModeCount);
+        assertEquals(ColorStateList.valueOf(TINT_COLOR).getDefaultColor(),
+                view.getBackgroundTintList().getDefaultColor());
+        assertEquals(PorterDuff.Mode.SRC_IN, view.getBackgroundTintMode());
+        assertEquals(getMax(i) - 1, view.getCheckedPosition());
+    }
+
+    private static int getMax(int i) {
+        return 2 + i % 5;
+    }
+
+    private static boolean isDisabled(int i) {
+        return i % 3 == 0;
+    }
+
+    /**
+     * Counts background tint and enabled state changes, whichever of the platform and support
+     * setters {@link android.support.v4.view.ViewCompat} ends up calling. Counters have no
+     * initializers so calls from the super constructors are counted too.
+     */
+    private static class CountingSwitch extends MultiValueSwitch {
+        int mEnabledCount;
+        int mTintListCount;
+        int mTintModeCount;
+
+        CountingSwitch(Context context, AttributeSet attrs) {
+            super(context, attrs);
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            mEnabledCount++;
+            super.setEnabled(enabled);
+        }
+
+        @Override
+        public void setBackgroundTintList(ColorStateList tint) {
+            mTintListCount++;
+            super.setBackgroundTintList(tint);
+        }
+
+        @Override
+        public void setSupportBackgroundTintList(ColorStateList tint) {
+            mTintListCount++;
+            super.setSupportBackgroundTintList(tint);
+        }
+
+        @Override
+        public void setBackgroundTintMode(PorterDuff.Mode tintMode) {
+            mTintModeCount++;
+            super.setBackgroundTintMode(tintMode);
+        }
+
+        @Override
+        public void setSupportBackgroundTintMode(PorterDuff.Mode tintMode) {
+            mTintModeCount++;
+            super.setSupportBackgroundTintMode(tintMode);
+        }
+    }
+}
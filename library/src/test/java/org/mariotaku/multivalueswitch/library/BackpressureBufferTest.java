@@ -0,0 +1,73 @@
+package org.mariotaku.multivalueswitch.library;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BackpressureBufferTest {
+
+    @Test
+    public void latestConflates() {
+        final BackpressureBuffer<Integer> buffer = new BackpressureBuffer<>(
+                MultiValueSwitchStreams.BACKPRESSURE_LATEST, 16);
+        assertTrue(buffer.offer(1));
+        assertFalse(buffer.offer(2));
+        assertFalse(buffer.offer(3));
+        assertEquals(1, buffer.size());
+        assertEquals(3, (int) buffer.poll());
+        assertNull(buffer.poll());
+        assertEquals(2, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void dropKeepsOldest() {
+        final BackpressureBuffer<Integer> buffer = new BackpressureBuffer<>(
+                MultiValueSwitchStreams.BACKPRESSURE_DROP, 2);
+        buffer.offer(1);
+        buffer.offer(2);
+        assertFalse(buffer.offer(3));
+        assertEquals(1, (int) buffer.poll());
+        assertEquals(2, (int) buffer.poll());
+        assertNull(buffer.poll());
+    }
+
+    @Test
+    public void bufferKeepsNewest() {
+        final BackpressureBuffer<Integer> buffer = new BackpressureBuffer<>(
+                MultiValueSwitchStreams.BACKPRESSURE_BUFFER, 2);
+        buffer.offer(1);
+        buffer.offer(2);
+        assertFalse(buffer.offer(3));
+        assertEquals(2, (int) buffer.poll());
+        assertEquals(3, (int) buffer.poll());
+        assertNull(buffer.poll());
+        assertEquals(1, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void latestIgnoresCapacity() {
+        final BackpressureBuffer<Integer> buffer = new BackpressureBuffer<>(
+                MultiValueSwitchStreams.BACKPRESSURE_LATEST, 0);
+        assertTrue(buffer.offer(1));
+        assertFalse(buffer.offer(2));
+        assertEquals(2, (int) buffer.poll());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void dropRejectsZeroCapacity() {
+        new BackpressureBuffer<Integer>(MultiValueSwitchStreams.BACKPRESSURE_DROP, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bufferRejectsZeroCapacity() {
+        new BackpressureBuffer<Integer>(MultiValueSwitchStreams.BACKPRESSURE_BUFFER, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownStrategy() {
+        new BackpressureBuffer<Integer>(42, 1);
+    }
+}
@@ -0,0 +1,155 @@
+package org.mariotaku.multivalueswitch.library;
+
+import org.junit.Test;
+import org.mariotaku.multivalueswitch.core.SwitchGeometry;
+import org.mariotaku.multivalueswitch.core.SwitchTouchTracker;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks every class and method listed in {@code src/main/baseline-prof.txt} still exists,
+ * so renames don't silently drop them from AOT compilation.
+ */
+public class BaselineProfileTest {
+
+    private static final File PROFILE = new File("src/main/baseline-prof.txt");
+    private static final Pattern RULE = Pattern.compile(
+            "([HSP]*)(L[^;]+;)(?:->([^(]+)(\\(.*\\).+))?");
+
+    /**
+     * Called by the switch on every frame and touch event, but built in the core module, so
+     * nothing in this module fails when their rules are dropped.
+     */
+    private static final Class<?>[] CORE_CLASSES = {SwitchGeometry.class,
+            SwitchTouchTracker.class};
+
+    @Test
+    public void listedMethodsExist() throws IOException {
+        final List<String> missing = new ArrayList<>();
+        int methods = 0;
+        for (final String line : readRules()) {
+            final Matcher matcher = RULE.matcher(line);
+            if (!matcher.matches()) {
+                fail("Malformed rule: " + line);
+            }
+            final Class<?> cls = loadClass(matcher.group(2));
+            if (cls == null) {
+                missing.add(line);
+                continue;
+            }
+            final String name = matcher.group(3);
+            if (name == null) continue;
+            assertFalse("Method rule without flags: " + line, matcher.group(1).isEmpty());
+            methods++;
+            if (!getMethodSignatures(cls).contains(name + matcher.group(4))) {
+                missing.add(line);
+            }
+        }
+        assertTrue("Profile lists no methods", methods > 0);
+        if (!missing.isEmpty()) {
+            final StringBuilder sb = new StringBuilder("Not found, update baseline-prof.txt:");
+            for (final String line : missing) {
+                sb.append('\n').append(line);
+            }
+            fail(sb.toString());
+        }
+    }
+
+    @Test
+    public void listsCoreClasses() throws IOException {
+        final List<String> rules = readRules();
+        for (final Class<?> cls : CORE_CLASSES) {
+            final String descriptor = getDescriptor(cls);
+            assertTrue("Profile doesn't list " + descriptor, rules.contains(descriptor));
+            int hotMethods = 0;
+            for (final String line : rules) {
+                final Matcher matcher = RULE.matcher(line);
+                if (matcher.matches() && descriptor.equals(matcher.group(2))
+                        && matcher.group(3) != null && matcher.group(1).contains("H")) {
+                    hotMethods++;
+                }
+            }
+            assertTrue("Profile lists no hot methods of " + descriptor, hotMethods > 0);
+        }
+    }
+
+    private static List<String> readRules() throws IOException {
+        final List<String> rules = new ArrayList<>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(PROFILE), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                rules.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return rules;
+    }
+
+    private static Class<?> loadClass(String descriptor) {
+        final String name = descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+        try {
+            return Class.forName(name, false, BaselineProfileTest.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return declared methods and constructors as name followed by JVM descriptor
+     */
+    private static Set<String> getMethodSignatures(Class<?> cls) {
+        final Set<String> signatures = new HashSet<>();
+        for (final Method method : cls.getDeclaredMethods()) {
+            signatures.add(method.getName() + getDescriptor(method.getParameterTypes(),
+                    method.getReturnType()));
+        }
+        for (final Constructor<?> constructor : cls.getDeclaredConstructors()) {
+            signatures.add("<init>" + getDescriptor(constructor.getParameterTypes(),
+                    void.class));
+        }
+        return signatures;
+    }
+
+    private static String getDescriptor(Class<?>[] parameterTypes, Class<?> returnType) {
+        final StringBuilder sb = new StringBuilder("(");
+        for (final Class<?> type : parameterTypes) {
+            sb.append(getDescriptor(type));
+        }
+        return sb.append(')').append(getDescriptor(returnType)).toString();
+    }
+
+    private static String getDescriptor(Class<?> type) {
+        if (type.isArray()) return "[" + getDescriptor(type.getComponentType());
+        if (type == void.class) return "V";
+        if (type == boolean.class) return "Z";
+        if (type == byte.class) return "B";
+        if (type == char.class) return "C";
+        if (type == short.class) return "S";
+        if (type == int.class) return "I";
+        if (type == long.class) return "J";
+        if (type == float.class) return "F";
+        if (type == double.class) return "D";
+        return "L" + type.getName().replace('.', '/') + ";";
+    }
+}
@@ -0,0 +1,102 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.view.ContextThemeWrapper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the order {@link MultiValueSwitch.OnCheckedChangeListener}s are called in, and that
+ * a listener changing position while being called keeps the stale position from listeners
+ * after it.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class CheckedChangeDispatchTest {
+
+    private MultiValueSwitch mView;
+    private List<String> mCalls;
+
+    @Before
+    public void setUp() {
+        mView = new MultiValueSwitch(new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light));
+        mView.setMax(3);
+        mCalls = new ArrayList<>();
+    }
+
+    @Test
+    public void calledInOrderAdded() {
+        mView.addOnCheckedChangeListener(new RecordingListener("a"));
+        mView.setOnCheckedChangeListener(new RecordingListener("b"));
+        mView.addOnCheckedChangeListener(new RecordingListener("c"));
+        mView.setCheckedPosition(1, false);
+        assertEquals(Arrays.asList("a1", "b1", "c1"), mCalls);
+
+        // Replacing the set listener moves it after the added ones
+        mCalls.clear();
+        mView.setOnCheckedChangeListener(new RecordingListener("d"));
+        mView.setCheckedPosition(2, false);
+        assertEquals(Arrays.asList("a2", "c2", "d2"), mCalls);
+    }
+
+    @Test
+    public void reentrantChangeSkipsStalePosition() {
+        mView.addOnCheckedChangeListener(new RecordingListener("a"));
+        mView.addOnCheckedChangeListener(new RecordingListener("b") {
+            @Override
+            public void onCheckedChange(int position) {
+                super.onCheckedChange(position);
+                if (position == 1) {
+                    mView.setCheckedPosition(2, false);
+                }
+            }
+        });
+        mView.addOnCheckedChangeListener(new RecordingListener("c"));
+        mView.setCheckedPosition(1, false);
+        // c never sees 1, every listener sees 2 once
+        assertEquals(Arrays.asList("a1", "b1", "a2", "b2", "c2"), mCalls);
+        assertEquals(2, mView.getCheckedPosition());
+    }
+
+    @Test
+    public void reentrantChangeBackSkipsStalePosition() {
+        mView.addOnCheckedChangeListener(new RecordingListener("a") {
+            @Override
+            public void onCheckedChange(int position) {
+                super.onCheckedChange(position);
+                // Rejects position 2
+                if (position == 2) {
+                    mView.setCheckedPosition(0, false);
+                }
+            }
+        });
+        mView.addOnCheckedChangeListener(new RecordingListener("b"));
+        mView.setCheckedPosition(2, false);
+        assertEquals(Arrays.asList("a2", "a0", "b0"), mCalls);
+        assertEquals(0, mView.getCheckedPosition());
+    }
+
+    private class RecordingListener implements MultiValueSwitch.OnCheckedChangeListener {
+        private final String mName;
+
+        RecordingListener(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void onCheckedChange(int position) {
+            mCalls.add(mName + position);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.ContextThemeWrapper;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link MultiValueSwitch} claims a drag from its parent as soon as the movement
+ * shows horizontal intent, and otherwise waits for touch slop.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class DragIntentTest {
+
+    private MultiValueSwitch mView;
+    private RecordingParent mParent;
+    private int mTouchSlop;
+
+    @Before
+    public void setUp() {
+        final Context context = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+        mParent = new RecordingParent(context);
+        mView = new MultiValueSwitch(context);
+        // Wide enough that the far end of the track is outside of the thumb's touch area
+        mView.setSwitchMinWidth(400);
+        mParent.addView(mView);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        mParent.measure(spec, spec);
+        mParent.layout(0, 0, mParent.getMeasuredWidth(), mParent.getMeasuredHeight());
+        mTouchSlop = mView.getStyle().touchSlop;
+        mView.setDragIntentSlop(mTouchSlop / 2);
+        mView.setDragIntentAngle(30);
+    }
+
+    @Test
+    public void horizontalMoveClaimsBeforeTouchSlop() {
+        final float y = mView.getHeight() / 2f;
+        dispatch(MotionEvent.ACTION_DOWN, 1, y);
+        assertTrue(dispatch(MotionEvent.ACTION_MOVE, 1 + mTouchSlop / 2 + 1, y + 1));
+        assertTrue(mParent.mDisallowIntercept);
+        dispatch(MotionEvent.ACTION_UP, 1 + mTouchSlop / 2 + 1, y + 1);
+    }
+
+    @Test
+    public void steepMoveWaitsForTouchSlop() {
+        final float y = mView.getHeight() / 2f;
+        final int d = mTouchSlop / 2 + 1;
+        dispatch(MotionEvent.ACTION_DOWN, 1, y);
+        // 45 degrees is outside of intent angle
+        dispatch(MotionEvent.ACTION_MOVE, 1 + d, y + d);
+        assertFalse(mParent.mDisallowIntercept);
+        dispatch(MotionEvent.ACTION_MOVE, 1 + mTouchSlop + 1, y + d);
+        assertTrue(mParent.mDisallowIntercept);
+        dispatch(MotionEvent.ACTION_UP, 1 + mTouchSlop + 1, y + d);
+    }
+
+    @Test
+    public void zeroAngleDisablesIntent() {
+        mView.setDragIntentAngle(0);
+        final float y = mView.getHeight() / 2f;
+        dispatch(MotionEvent.ACTION_DOWN, 1, y);
+        dispatch(MotionEvent.ACTION_MOVE, 1 + mTouchSlop, y);
+        assertFalse(mParent.mDisallowIntercept);
+        dispatch(MotionEvent.ACTION_MOVE, 1 + mTouchSlop + 1, y);
+        assertTrue(mParent.mDisallowIntercept);
+        dispatch(MotionEvent.ACTION_UP, 1 + mTouchSlop + 1, y);
+    }
+
+    @Test
+    public void trackDragNeedsOption() {
+        final float y = mView.getHeight() / 2f;
+        final float x = mView.getWidth() - 1;
+        dispatch(MotionEvent.ACTION_DOWN, x, y);
+        dispatch(MotionEvent.ACTION_MOVE, x - mTouchSlop - 1, y);
+        assertFalse(mParent.mDisallowIntercept);
+        dispatch(MotionEvent.ACTION_CANCEL, x - mTouchSlop - 1, y);
+
+        mView.setDragFromTrackEnabled(true);
+        dispatch(MotionEvent.ACTION_DOWN, x, y);
+        dispatch(MotionEvent.ACTION_MOVE, x - mTouchSlop / 2 - 1, y);
+        assertTrue(mParent.mDisallowIntercept);
+        dispatch(MotionEvent.ACTION_CANCEL, x - mTouchSlop / 2 - 1, y);
+    }
+
+    @Test
+    public void trackDragTracksFromDownPoint() {
+        final float y = mView.getHeight() / 2f;
+        final int d = mTouchSlop / 2 + 1;
+        // Same movement starting on the thumb
+        dispatch(MotionEvent.ACTION_DOWN, 1, y);
+        dispatch(MotionEvent.ACTION_MOVE, 1 + d, y);
+        final float thumbDragOffset = mView.getThumbPositionOffset();
+        dispatch(MotionEvent.ACTION_CANCEL, 1 + d, y);
+        mView.setCheckedPosition(0, false);
+        assertTrue(thumbDragOffset > 0);
+
+        mView.setDragFromTrackEnabled(true);
+        final float x = mView.getWidth() / 2f;
+        dispatch(MotionEvent.ACTION_DOWN, x, y);
+        assertEquals(0, mView.getThumbPositionOffset(), 0);
+        assertTrue(dispatch(MotionEvent.ACTION_MOVE, x + d, y));
+        // Thumb moved by the whole distance from the down point, not from where it's drawn
+        assertEquals(thumbDragOffset, mView.getThumbPositionOffset(), 0.0001f);
+        dispatch(MotionEvent.ACTION_MOVE, x + 2 * d, y);
+        assertEquals(2 * thumbDragOffset, mView.getThumbPositionOffset(), 0.0001f);
+        dispatch(MotionEvent.ACTION_CANCEL, x + 2 * d, y);
+    }
+
+    @Test
+    public void jitteryTrackTapSelectsPosition() {
+        mView.setDragFromTrackEnabled(true);
+        final float y = mView.getHeight() / 2f;
+        final float x = mView.getWidth() - 1;
+        dispatch(MotionEvent.ACTION_DOWN, x, y);
+        dispatch(MotionEvent.ACTION_MOVE, x - 1, y + 1);
+        dispatch(MotionEvent.ACTION_MOVE, x - 2, y - 1);
+        assertFalse(mParent.mDisallowIntercept);
+        dispatch(MotionEvent.ACTION_UP, x - 2, y - 1);
+        assertEquals(mView.getMax() - 1, mView.getCheckedPosition());
+    }
+
+    @Test
+    public void angleIsClamped() {
+        mView.setDragIntentAngle(120);
+        assertEquals(90, mView.getDragIntentAngle(), 0);
+        mView.setDragIntentAngle(-10);
+        assertEquals(0, mView.getDragIntentAngle(), 0);
+    }
+
+    private boolean dispatch(int action, float x, float y) {
+        final long time = SystemClock.uptimeMillis();
+        final MotionEvent event = MotionEvent.obtain(time, time, action, x, y, 0);
+        try {
+            return mView.onTouchEvent(event);
+        } finally {
+            event.recycle();
+        }
+    }
+
+    private static class RecordingParent extends FrameLayout {
+        boolean mDisallowIntercept;
+
+        RecordingParent(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+            mDisallowIntercept = disallowIntercept;
+            super.requestDisallowInterceptTouchEvent(disallowIntercept);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.mariotaku.multivalueswitch.library;
+
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExecutorCheckedChangeListenerTest {
+
+    @Test
+    public void coalescesPendingChanges() {
+        final QueueExecutor executor = new QueueExecutor();
+        final RecordingListener listener = new RecordingListener();
+        final ExecutorCheckedChangeListener dispatcher = new ExecutorCheckedChangeListener(
+                executor, listener);
+        dispatcher.onCheckedChange(1);
+        dispatcher.onCheckedChange(2);
+        dispatcher.onCheckedChange(0);
+        assertEquals(1, executor.size());
+        executor.runAll();
+        assertEquals(Arrays.asList(0), listener.positions);
+    }
+
+    @Test
+    public void deliversInOrder() {
+        final QueueExecutor executor = new QueueExecutor();
+        final RecordingListener listener = new RecordingListener();
+        final ExecutorCheckedChangeListener dispatcher = new ExecutorCheckedChangeListener(
+                executor, listener);
+        for (int i = 0; i < 5; i++) {
+            dispatcher.onCheckedChange(i);
+            executor.runAll();
+        }
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), listener.positions);
+    }
+
+    @Test
+    public void acknowledgesLatestDelivered() {
+        final QueueExecutor executor = new QueueExecutor();
+        final QueueExecutor callbackExecutor = new QueueExecutor();
+        final List<Integer> acknowledged = new ArrayList<>();
+        final ExecutorCheckedChangeListener dispatcher = new ExecutorCheckedChangeListener(
+                executor, new RecordingListener(), callbackExecutor,
+                new ExecutorCheckedChangeListener.OnCheckedChangeDeliveredListener() {
+                    @Override
+                    public void onCheckedChangeDelivered(int position) {
+                        acknowledged.add(position);
+                    }
+                });
+        dispatcher.onCheckedChange(1);
+        executor.runAll();
+        dispatcher.onCheckedChange(2);
+        executor.runAll();
+        assertEquals(1, callbackExecutor.size());
+        callbackExecutor.runAll();
+        assertEquals(Arrays.asList(2), acknowledged);
+    }
+
+    @Test
+    public void recoversFromThrowingListener() {
+        final QueueExecutor executor = new QueueExecutor();
+        final List<Integer> positions = new ArrayList<>();
+        final ExecutorCheckedChangeListener[] dispatcher = new ExecutorCheckedChangeListener[1];
+        dispatcher[0] = new ExecutorCheckedChangeListener(
+                executor, new MultiValueSwitch.OnCheckedChangeListener() {
+                    @Override
+                    public void onCheckedChange(int position) {
+                        positions.add(position);
+                        if (position == 1) {
+                            // Changed again while this delivery is running
+                            dispatcher[0].onCheckedChange(3);
+                            throw new IllegalStateException();
+                        }
+                    }
+                });
+        dispatcher[0].onCheckedChange(1);
+        try {
+            executor.runNext();
+            fail();
+        } catch (IllegalStateException expected) {
+            // Thrown by listener
+        }
+        // Change made during the failed delivery is re-posted
+        assertEquals(1, executor.size());
+        executor.runAll();
+        assertEquals(Arrays.asList(1, 3), positions);
+
+        // Later changes are delivered exactly once
+        dispatcher[0].onCheckedChange(2);
+        assertEquals(1, executor.size());
+        executor.runAll();
+        assertEquals(0, executor.size());
+        assertEquals(Arrays.asList(1, 3, 2), positions);
+    }
+
+    @Test
+    public void recoversFromRejectedExecution() {
+        final QueueExecutor executor = new QueueExecutor();
+        final RecordingListener listener = new RecordingListener();
+        final ExecutorCheckedChangeListener dispatcher = new ExecutorCheckedChangeListener(
+                executor, listener);
+        executor.rejecting = true;
+        try {
+            dispatcher.onCheckedChange(1);
+            fail();
+        } catch (RejectedExecutionException expected) {
+            // Thrown by executor
+        }
+        executor.rejecting = false;
+        dispatcher.onCheckedChange(2);
+        executor.runAll();
+        assertEquals(Arrays.asList(2), listener.positions);
+    }
+
+    @Test
+    public void serialOnThreadPool() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        final int count = 10000;
+        final CountDownLatch done = new CountDownLatch(1);
+        final int[] last = {-1};
+        final boolean[] outOfOrder = {false};
+        final int[] concurrent = {0};
+        final ExecutorCheckedChangeListener dispatcher = new ExecutorCheckedChangeListener(executor,
+                new MultiValueSwitch.OnCheckedChangeListener() {
+                    @Override
+                    public void onCheckedChange(int position) {
+                        synchronized (this) {
+                            if (++concurrent[0] > 1 || position <= last[0]) {
+                                outOfOrder[0] = true;
+                            }
+                        }
+                        last[0] = position;
+                        synchronized (this) {
+                            concurrent[0]--;
+                        }
+                        if (position == count - 1) {
+                            done.countDown();
+                        }
+                    }
+                });
+        for (int i = 0; i < count; i++) {
+            dispatcher.onCheckedChange(i);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertEquals(false, outOfOrder[0]);
+    }
+
+    private static class RecordingListener implements MultiValueSwitch.OnCheckedChangeListener {
+        final List<Integer> positions = new ArrayList<>();
+
+        @Override
+        public void onCheckedChange(int position) {
+            positions.add(position);
+        }
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> mQueue = new ArrayDeque<>();
+        boolean rejecting;
+
+        @Override
+        public void execute(Runnable command) {
+            if (rejecting) throw new RejectedExecutionException();
+            mQueue.add(command);
+        }
+
+        int size() {
+            return mQueue.size();
+        }
+
+        void runNext() {
+            mQueue.remove().run();
+        }
+
+        void runAll() {
+            Runnable runnable;
+            while ((runnable = mQueue.poll()) != null) {
+                runnable.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package org.mariotaku.multivalueswitch.library;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FloatBackpressureBufferTest {
+
+    @Test
+    public void latestConflates() {
+        final FloatBackpressureBuffer buffer = new FloatBackpressureBuffer(
+                MultiValueSwitchStreams.BACKPRESSURE_LATEST, 16);
+        assertTrue(buffer.offer(1));
+        assertFalse(buffer.offer(2));
+        assertFalse(buffer.offer(3));
+        assertEquals(1, buffer.size());
+        assertEquals(3, buffer.poll(), 0);
+        assertTrue(buffer.isEmpty());
+        assertEquals(2, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void dropKeepsOldest() {
+        final FloatBackpressureBuffer buffer = new FloatBackpressureBuffer(
+                MultiValueSwitchStreams.BACKPRESSURE_DROP, 2);
+        buffer.offer(1);
+        buffer.offer(2);
+        assertFalse(buffer.offer(3));
+        assertEquals(1, buffer.poll(), 0);
+        assertEquals(2, buffer.poll(), 0);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void bufferKeepsNewest() {
+        final FloatBackpressureBuffer buffer = new FloatBackpressureBuffer(
+                MultiValueSwitchStreams.BACKPRESSURE_BUFFER, 3);
+        // Wraps around the ring a few times
+        for (int i = 0; i < 10; i++) {
+            buffer.offer(i);
+        }
+        assertEquals(7, buffer.poll(), 0);
+        buffer.offer(10);
+        assertEquals(8, buffer.poll(), 0);
+        assertEquals(9, buffer.poll(), 0);
+        assertEquals(10, buffer.poll(), 0);
+        assertTrue(buffer.isEmpty());
+        assertEquals(7, buffer.getDroppedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bufferRejectsZeroCapacity() {
+        new FloatBackpressureBuffer(MultiValueSwitchStreams.BACKPRESSURE_BUFFER, 0);
+    }
+}
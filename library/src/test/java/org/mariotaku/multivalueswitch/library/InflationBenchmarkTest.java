@@ -0,0 +1,132 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.ContextThemeWrapper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares constructor cost with and without the resolved style cache, and checks cached
+ * styles are used and make construction faster. Cached and uncached rounds alternate and
+ * the fastest round of each is compared, so a GC pause or JIT compilation in one round
+ * doesn't decide the result. Run with
+ * {@code ./gradlew :library:testDebugUnitTest --tests *InflationBenchmarkTest -i} to see
+ * the numbers.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class InflationBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+    private static final int ROUNDS = 5;
+    /**
+     * Cached construction must take at most this fraction of the uncached time. Resolving a
+     * style reads every SwitchCompat attribute from the theme, so the real difference is
+     * much larger, this only leaves room for noise.
+     */
+    private static final double MAX_CACHED_RATIO = 0.9;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+    }
+
+    @Test
+    public void instanceValuesNotShared() {
+        final AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(android.R.attr.max, "5")
+                .build();
+        assertEquals(5, new MultiValueSwitch(mContext, attrs).getMax());
+        assertEquals(2, new MultiValueSwitch(mContext).getMax());
+    }
+
+    @Test
+    public void styleValuesIndependentOfInflationOrder() {
+        SwitchStyle.clearCache();
+        // android:position isn't public, its id comes from the styleable
+        final int positionAttr = R.styleable.MultiValueSwitch[
+                R.styleable.MultiValueSwitch_android_position];
+        final AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(android.R.attr.max, "5")
+                .addAttribute(positionAttr, "4")
+                .build();
+        // First instance sets values itself, the style it resolves is still shared as is
+        final MultiValueSwitch first = new MultiValueSwitch(mContext, attrs);
+        assertEquals(5, first.getMax());
+        final SwitchStyle style = first.getStyle();
+        assertEquals(2, style.max);
+        assertEquals(0, style.position);
+        assertTrue(style.enabled);
+
+        final int hits = SwitchStyle.getHitCount();
+        final MultiValueSwitch second = new MultiValueSwitch(mContext);
+        assertSame(style, second.getStyle());
+        assertEquals(hits + 1, SwitchStyle.getHitCount());
+        assertEquals(2, second.getMax());
+        assertEquals(0, second.getCheckedPosition());
+    }
+
+    @Test
+    public void benchmarkWithoutAttributes() {
+        report("no attributes", null);
+    }
+
+    @Test
+    public void benchmarkWithValueAttributes() {
+        report("android:max", Robolectric.buildAttributeSet()
+                .addAttribute(android.R.attr.max, "3")
+                .build());
+    }
+
+    private void report(String name, AttributeSet attrs) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            SwitchStyle.clearCache();
+            new MultiValueSwitch(mContext, attrs);
+        }
+        long uncached = Long.MAX_VALUE, cached = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            final int uncachedHits = SwitchStyle.getHitCount();
+            uncached = Math.min(uncached, measure(attrs, true));
+            assertEquals("Cleared cache served a style", uncachedHits, SwitchStyle.getHitCount());
+
+            final int cachedHits = SwitchStyle.getHitCount();
+            final int cachedMisses = SwitchStyle.getMissCount();
+            cached = Math.min(cached, measure(attrs, false));
+            // Only the first construction of a round may resolve the style
+            assertTrue(SwitchStyle.getMissCount() - cachedMisses <= 1);
+            assertTrue(SwitchStyle.getHitCount() - cachedHits >= ITERATIONS - 1);
+        }
+
+        System.out.println("MultiValueSwitch construction (" + name + "): uncached "
+                + uncached / ITERATIONS + " ns/op, cached " + cached / ITERATIONS + " ns/op");
+        assertTrue("Cached construction " + cached / ITERATIONS + " ns/op not faster than "
+                + "uncached " + uncached / ITERATIONS + " ns/op",
+                cached <= uncached * MAX_CACHED_RATIO);
+    }
+
+    private long measure(AttributeSet attrs, boolean clearCache) {
+        long elapsed = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            if (clearCache) SwitchStyle.clearCache();
+            final long start = System.nanoTime();
+            new MultiValueSwitch(mContext, attrs);
+            elapsed += System.nanoTime() - start;
+        }
+        return elapsed;
+    }
+}
@@ -0,0 +1,45 @@
+package org.mariotaku.multivalueswitch.library;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ListenerListTest {
+
+    @Test
+    public void keepsInsertionOrder() {
+        final ListenerList<Object> list = new ListenerList<>();
+        final Object a = new Object(), b = new Object(), c = new Object();
+        list.add(a);
+        list.add(b);
+        list.add(c);
+        list.add(b);
+        assertArrayEquals(new Object[]{a, b, c}, list.array());
+        list.remove(b);
+        assertArrayEquals(new Object[]{a, c}, list.array());
+        list.remove(a);
+        list.remove(c);
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void snapshotUnaffectedByChanges() {
+        final ListenerList<Object> list = new ListenerList<>();
+        final Object a = new Object(), b = new Object();
+        list.add(a);
+        final Object[] snapshot = list.array();
+        list.add(b);
+        list.remove(a);
+        assertArrayEquals(new Object[]{a}, snapshot);
+        assertArrayEquals(new Object[]{b}, list.array());
+    }
+
+    @Test
+    public void arrayReusedWithoutChanges() {
+        final ListenerList<Object> list = new ListenerList<>();
+        list.add(new Object());
+        assertSame(list.array(), list.array());
+    }
+}
@@ -0,0 +1,127 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that {@link MultiValueSwitchCoordinator} applies positions in batches and delivers
+ * one aggregated change callback for them.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class MultiValueSwitchCoordinatorTest {
+
+    private Context mContext;
+    private MultiValueSwitchCoordinator mCoordinator;
+    private final List<int[]> mDeliveries = new ArrayList<>();
+    private final List<MultiValueSwitch> mDeliveredSwitches = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+        mCoordinator = new MultiValueSwitchCoordinator();
+        mCoordinator.setOnCheckedChangeListener(new MultiValueSwitchCoordinator.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChange(MultiValueSwitch[] switches, int[] positions, int count) {
+                final int[] copy = new int[count];
+                System.arraycopy(positions, 0, copy, 0, count);
+                mDeliveries.add(copy);
+                for (int i = 0; i < count; i++) {
+                    mDeliveredSwitches.add(switches[i]);
+                }
+            }
+        });
+    }
+
+    @Test
+    public void positionsAppliedAtNextFrame() {
+        final MultiValueSwitch[] switches = createSwitches(10);
+        for (final MultiValueSwitch view : switches) {
+            mCoordinator.setCheckedPosition(view, 2);
+        }
+        assertEquals(0, switches[0].getCheckedPosition());
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        for (final MultiValueSwitch view : switches) {
+            assertEquals(2, view.getCheckedPosition());
+        }
+    }
+
+    @Test
+    public void changesDeliveredOnce() {
+        final MultiValueSwitch[] switches = createSwitches(10);
+        for (final MultiValueSwitch view : switches) {
+            mCoordinator.setCheckedPosition(view, 1);
+            // Only the latest position is applied
+            mCoordinator.setCheckedPosition(view, 2);
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(1, mDeliveries.size());
+        assertEquals(10, mDeliveries.get(0).length);
+        for (int i = 0; i < 10; i++) {
+            assertSame(switches[i], mDeliveredSwitches.get(i));
+            assertEquals(2, mDeliveries.get(0)[i]);
+        }
+    }
+
+    @Test
+    public void staggeredPositionsAllApplied() {
+        final MultiValueSwitch[] switches = createSwitches(5);
+        mCoordinator.setStaggerDelay(50);
+        for (final MultiValueSwitch view : switches) {
+            mCoordinator.setCheckedPosition(view, 2);
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        for (final MultiValueSwitch view : switches) {
+            assertEquals(2, view.getCheckedPosition());
+        }
+    }
+
+    @Test
+    public void staggeredBatchDeliveredOnce() {
+        final MultiValueSwitch[] switches = createSwitches(5);
+        mCoordinator.setStaggerDelay(50);
+        for (final MultiValueSwitch view : switches) {
+            mCoordinator.setCheckedPosition(view, 2);
+        }
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(1, mDeliveries.size());
+        assertEquals(5, mDeliveries.get(0).length);
+    }
+
+    @Test
+    public void unregisteredSwitchDropped() {
+        final MultiValueSwitch[] switches = createSwitches(2);
+        mCoordinator.setCheckedPosition(switches[0], 2);
+        mCoordinator.setCheckedPosition(switches[1], 2);
+        mCoordinator.unregister(switches[1]);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(2, switches[0].getCheckedPosition());
+        assertEquals(0, switches[1].getCheckedPosition());
+        assertEquals(1, mDeliveries.get(0).length);
+    }
+
+    private MultiValueSwitch[] createSwitches(int count) {
+        final MultiValueSwitch[] switches = new MultiValueSwitch[count];
+        for (int i = 0; i < count; i++) {
+            switches[i] = new MultiValueSwitch(mContext);
+            switches[i].setMax(3);
+            mCoordinator.register(switches[i]);
+        }
+        return switches;
+    }
+}
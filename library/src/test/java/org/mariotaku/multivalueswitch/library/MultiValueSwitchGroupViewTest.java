@@ -0,0 +1,270 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.support.v7.widget.ViewUtils;
+import android.view.ContextThemeWrapper;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.reflect.Field;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks layout, hit testing and touch handling of {@link MultiValueSwitchGroupView}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class MultiValueSwitchGroupViewTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+    }
+
+    @Test
+    public void switchesLaidOutInGrid() {
+        final MultiValueSwitchGroupView group = createLaidOutGroup(5, 2);
+        final Rect first = group.getSwitchBounds(0);
+        final Rect second = group.getSwitchBounds(1);
+        final Rect third = group.getSwitchBounds(2);
+        assertFalse(first.isEmpty());
+        assertEquals(first.top, second.top);
+        assertTrue(second.left >= first.right);
+        assertTrue(third.top >= first.bottom);
+        assertEquals(first.left, third.left);
+    }
+
+    @Test
+    public void fewerSwitchesThanColumns() {
+        for (final boolean rtl : new boolean[]{false, true}) {
+            final MultiValueSwitchGroupView group = new MultiValueSwitchGroupView(mContext);
+            group.setModels(new MultiValueSwitchModel[]{new MultiValueSwitchModel(3),
+                    new MultiValueSwitchModel(3)});
+            group.setColumnCount(4);
+            group.setLayoutDirection(rtl ? View.LAYOUT_DIRECTION_RTL : View.LAYOUT_DIRECTION_LTR);
+            final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+            group.measure(spec, spec);
+            group.layout(0, 0, group.getMeasuredWidth(), group.getMeasuredHeight());
+            // Needs supportsRtl from the debug manifest
+            assertEquals(rtl, ViewUtils.isLayoutRtl(group));
+
+            final Rect first = group.getSwitchBounds(0);
+            final Rect second = group.getSwitchBounds(1);
+            // Measured for two columns, laid out in two columns
+            assertEquals(group.getPaddingLeft() + group.getPaddingRight() + first.width()
+                    + group.getSpacing() + second.width(), group.getWidth());
+            for (final Rect bounds : new Rect[]{first, second}) {
+                assertTrue(bounds.left >= group.getPaddingLeft());
+                assertTrue(bounds.right <= group.getWidth() - group.getPaddingRight());
+            }
+            assertEquals(first.top, second.top);
+            if (rtl) {
+                assertTrue(second.right <= first.left);
+            } else {
+                assertTrue(second.left >= first.right);
+            }
+        }
+    }
+
+    @Test
+    public void touchesHitRightSwitch() {
+        final MultiValueSwitchGroupView group = createLaidOutGroup(6, 3);
+        for (int i = 0; i < 6; i++) {
+            final Rect bounds = group.getSwitchBounds(i);
+            assertEquals(i, group.findSwitchAt(bounds.centerX(), bounds.centerY(), 0));
+        }
+        assertEquals(-1, group.findSwitchAt(-100, -100, 0));
+    }
+
+    @Test
+    public void tapChangesOnlyTappedModel() {
+        final MultiValueSwitchGroupView group = createLaidOutGroup(4, 2);
+        final Rect bounds = group.getSwitchBounds(3);
+        final float x = bounds.right - 1, y = bounds.centerY();
+        dispatch(group, MotionEvent.ACTION_DOWN, x, y);
+        dispatch(group, MotionEvent.ACTION_UP, x, y);
+        final MultiValueSwitchModel[] models = group.getModels();
+        assertEquals(models[3].getMax() - 1, models[3].getPosition());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, models[i].getPosition());
+        }
+    }
+
+    @Test
+    public void flingMovesOneStop() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        final MultiValueSwitchGroupView group = new MultiValueSwitchGroupView(
+                new ContextThemeWrapper(activity,
+                        android.support.v7.appcompat.R.style.Theme_AppCompat_Light));
+        final MultiValueSwitchModel model = new MultiValueSwitchModel(3);
+        group.setModels(new MultiValueSwitchModel[]{model});
+        final RecordingParent parent = new RecordingParent(activity);
+        parent.addView(group);
+        activity.setContentView(parent);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        group.measure(spec, spec);
+        group.layout(0, 0, group.getMeasuredWidth(), group.getMeasuredHeight());
+
+        final Rect bounds = group.getSwitchBounds(0);
+        final int slop = new MultiValueSwitch(mContext).getStyle().touchSlop;
+        final float x = bounds.left + 1, y = bounds.centerY();
+        final long time = SystemClock.uptimeMillis();
+        dispatch(group, MotionEvent.ACTION_DOWN, x, y, time, time);
+        // Horizontal move claims the gesture before touch slop, like MultiValueSwitch
+        dispatch(group, MotionEvent.ACTION_MOVE, x + slop / 2 + 1, y, time, time + 10);
+        assertTrue(parent.mDisallowIntercept);
+        // Far less than half way to the next stop, but fast
+        dispatch(group, MotionEvent.ACTION_MOVE, x + slop, y, time, time + 20);
+        dispatch(group, MotionEvent.ACTION_UP, x + slop, y, time, time + 30);
+        assertEquals(1, model.getPosition());
+    }
+
+    @Test
+    public void slowDragSnapsBack() {
+        final MultiValueSwitchGroupView group = createLaidOutGroup(1, 1);
+        final MultiValueSwitchModel model = group.getModels()[0];
+        final Rect bounds = group.getSwitchBounds(0);
+        final int slop = new MultiValueSwitch(mContext).getStyle().touchSlop;
+        final float x = bounds.left + 1, y = bounds.centerY();
+        final long time = SystemClock.uptimeMillis();
+        dispatch(group, MotionEvent.ACTION_DOWN, x, y, time, time);
+        dispatch(group, MotionEvent.ACTION_MOVE, x + slop + 1, y, time, time + 1000);
+        dispatch(group, MotionEvent.ACTION_UP, x + slop + 1, y, time, time + 2000);
+        assertEquals(0, model.getPosition());
+    }
+
+    @Test
+    public void drawsAllSwitches() {
+        final MultiValueSwitchGroupView group = createLaidOutGroup(50, 5);
+        final Bitmap bitmap = Bitmap.createBitmap(group.getWidth(), group.getHeight(),
+                Bitmap.Config.ARGB_8888);
+        RobolectricDraw.draw(group, new Canvas(bitmap));
+        bitmap.recycle();
+    }
+
+    @Test
+    public void drawingLeavesNoInvalidation() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        final MultiValueSwitchGroupView group = new MultiValueSwitchGroupView(
+                new ContextThemeWrapper(activity,
+                        android.support.v7.appcompat.R.style.Theme_AppCompat_Light));
+        final MultiValueSwitchModel highlighted = new MultiValueSwitchModel(3);
+        highlighted.setHighlightCheckedPositions(new int[]{0});
+        group.setModels(new MultiValueSwitchModel[]{highlighted, new MultiValueSwitchModel(3)});
+        group.setColumnCount(2);
+        final FrameLayout container = new FrameLayout(activity);
+        container.addView(group);
+        activity.setContentView(container);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        group.measure(spec, spec);
+        group.layout(0, 0, group.getMeasuredWidth(), group.getMeasuredHeight());
+
+        final Bitmap bitmap = Bitmap.createBitmap(group.getWidth(), group.getHeight(),
+                Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        // Drawables switch between checked and normal state for every cell
+        for (int i = 0; i < 2; i++) {
+            RobolectricDraw.draw(group, canvas);
+            assertFalse(group.isDirty());
+        }
+        bitmap.recycle();
+    }
+
+    @Test
+    public void modelEchoKeepsRunningAnimation() throws Exception {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        final MultiValueSwitchGroupView group = new MultiValueSwitchGroupView(
+                new ContextThemeWrapper(activity,
+                        android.support.v7.appcompat.R.style.Theme_AppCompat_Light));
+        final MultiValueSwitchModel model = new MultiValueSwitchModel(3);
+        group.setModels(new MultiValueSwitchModel[]{model});
+        activity.setContentView(group);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        group.measure(spec, spec);
+        group.layout(0, 0, group.getMeasuredWidth(), group.getMeasuredHeight());
+
+        final Rect bounds = group.getSwitchBounds(0);
+        dispatch(group, MotionEvent.ACTION_DOWN, bounds.right - 1, bounds.centerY());
+        dispatch(group, MotionEvent.ACTION_UP, bounds.right - 1, bounds.centerY());
+        assertEquals(2, model.getPosition());
+        final long start = readAnimationStart(group, 0);
+        assertTrue(start > 0);
+
+        // Model reports the change back on next frame
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(start, readAnimationStart(group, 0));
+
+        // Neither does a change of another attribute restart it
+        model.setHighlightCheckedPositions(new int[]{1});
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(start, readAnimationStart(group, 0));
+    }
+
+    private static long readAnimationStart(MultiValueSwitchGroupView group, int index)
+            throws Exception {
+        final Field field = MultiValueSwitchGroupView.class.getDeclaredField("mAnimationStart");
+        field.setAccessible(true);
+        return ((long[]) field.get(group))[index];
+    }
+
+    private MultiValueSwitchGroupView createLaidOutGroup(int count, int columns) {
+        final MultiValueSwitchGroupView group = new MultiValueSwitchGroupView(mContext);
+        final MultiValueSwitchModel[] models = new MultiValueSwitchModel[count];
+        for (int i = 0; i < count; i++) {
+            models[i] = new MultiValueSwitchModel(3);
+        }
+        group.setModels(models);
+        group.setColumnCount(columns);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        group.measure(spec, spec);
+        group.layout(0, 0, group.getMeasuredWidth(), group.getMeasuredHeight());
+        return group;
+    }
+
+    private static void dispatch(View view, int action, float x, float y) {
+        final long time = SystemClock.uptimeMillis();
+        dispatch(view, action, x, y, time, time);
+    }
+
+    private static void dispatch(View view, int action, float x, float y, long downTime,
+                                 long eventTime) {
+        final MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+        view.onTouchEvent(event);
+        event.recycle();
+    }
+
+    private static class RecordingParent extends FrameLayout {
+        boolean mDisallowIntercept;
+
+        RecordingParent(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void requestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+            mDisallowIntercept = disallowIntercept;
+            super.requestDisallowInterceptTouchEvent(disallowIntercept);
+        }
+    }
+}
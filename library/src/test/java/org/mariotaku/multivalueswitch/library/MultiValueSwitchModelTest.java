@@ -0,0 +1,123 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.app.Activity;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks switches sharing a {@link MultiValueSwitchModel} follow each other without echoing
+ * changes back, and only observe it while attached.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class MultiValueSwitchModelTest {
+
+    private FrameLayout mContainer;
+    private MultiValueSwitchModel mModel;
+    private MultiValueSwitch mFirst;
+    private MultiValueSwitch mSecond;
+    private final List<Integer> mFirstChanges = new ArrayList<>();
+    private final List<Integer> mSecondChanges = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        final ContextThemeWrapper context = new ContextThemeWrapper(activity,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+        mContainer = new FrameLayout(activity);
+        // Attached but not shown, so model changes apply without animating
+        mContainer.setVisibility(View.INVISIBLE);
+        activity.setContentView(mContainer);
+        mModel = new MultiValueSwitchModel(3);
+        mFirst = createSwitch(context, mFirstChanges);
+        mSecond = createSwitch(context, mSecondChanges);
+    }
+
+    @Test
+    public void followsWithoutEcho() {
+        mFirst.setCheckedPosition(2, false);
+        assertEquals(2, mModel.getPosition());
+        assertEquals(0, mSecond.getCheckedPosition());
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(2, mSecond.getCheckedPosition());
+        // Switch that made the change isn't notified of it again
+        assertEquals(Arrays.asList(2), mFirstChanges);
+        assertEquals(Arrays.asList(2), mSecondChanges);
+
+        // Following switch doesn't write back, nothing more is scheduled
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Arrays.asList(2), mFirstChanges);
+        assertEquals(Arrays.asList(2), mSecondChanges);
+    }
+
+    @Test
+    public void changesConflatedPerFrame() {
+        mModel.setPosition(1);
+        mModel.setPosition(2);
+        mModel.setPosition(1);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(Arrays.asList(1), mFirstChanges);
+        assertEquals(Arrays.asList(1), mSecondChanges);
+    }
+
+    @Test
+    public void observesOnlyWhileAttached() {
+        assertEquals(2, mModel.getObserverCount());
+        mContainer.removeView(mSecond);
+        assertEquals(1, mModel.getObserverCount());
+
+        mFirst.setCheckedPosition(1, false);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(0, mSecond.getCheckedPosition());
+        assertEquals(0, mSecondChanges.size());
+
+        // Picks up changes missed while detached
+        mContainer.addView(mSecond);
+        assertEquals(2, mModel.getObserverCount());
+        assertEquals(1, mSecond.getCheckedPosition());
+
+        mFirst.setCheckedPosition(2, false);
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        assertEquals(2, mSecond.getCheckedPosition());
+        assertEquals(Arrays.asList(1, 2), mSecondChanges);
+    }
+
+    @Test
+    public void unbindRemovesObserver() {
+        mSecond.setModel(null);
+        assertEquals(1, mModel.getObserverCount());
+        mContainer.removeView(mFirst);
+        assertEquals(0, mModel.getObserverCount());
+        mContainer.addView(mFirst);
+        assertEquals(1, mModel.getObserverCount());
+    }
+
+    private MultiValueSwitch createSwitch(ContextThemeWrapper context,
+                                          final List<Integer> changes) {
+        final MultiValueSwitch view = new MultiValueSwitch(context);
+        view.setModel(mModel);
+        view.addOnCheckedChangeListener(new MultiValueSwitch.OnCheckedChangeListener() {
+            @Override
+            public void onCheckedChange(int position) {
+                changes.add(position);
+            }
+        });
+        mContainer.addView(view);
+        return view;
+    }
+}
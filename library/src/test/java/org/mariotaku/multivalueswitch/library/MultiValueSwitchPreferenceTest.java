@@ -0,0 +1,103 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.support.v7.preference.PreferenceManager;
+import android.support.v7.preference.PreferenceScreen;
+import android.view.ContextThemeWrapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+@SuppressWarnings("RestrictedApi")
+public class MultiValueSwitchPreferenceTest {
+
+    private static final String KEY = "mode";
+    private static final long DELAY = 300;
+
+    private Context mContext;
+    private PreferenceManager mManager;
+    private PreferenceScreen mScreen;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+        mManager = new PreferenceManager(mContext);
+        mManager.getSharedPreferences().edit().clear().commit();
+        mScreen = mManager.createPreferenceScreen(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        // Batcher is shared, don't leave writes for other tests
+        MultiValueSwitchPreference.flushPendingWrites();
+    }
+
+    @Test
+    public void persistsAfterDelay() {
+        final MultiValueSwitchPreference preference = addPreference();
+        preference.setValue("b");
+        preference.setValue("c");
+        assertNull(getPersisted());
+        ShadowLooper.idleMainLooper(DELAY);
+        assertEquals("c", getPersisted());
+    }
+
+    @Test
+    public void restoresPendingValue() {
+        final MultiValueSwitchPreference preference = addPreference();
+        preference.setValue("a");
+        MultiValueSwitchPreference.flushPendingWrites();
+        preference.setValue("b");
+        // Row rebuilt before the write was applied
+        final MultiValueSwitchPreference restored = addPreference();
+        assertEquals("b", restored.getValue());
+        assertEquals("a", getPersisted());
+    }
+
+    @Test
+    public void flushedOnDetach() {
+        final MultiValueSwitchPreference preference = addPreference();
+        preference.setValue("b");
+        mScreen.removePreference(preference);
+        assertEquals("b", getPersisted());
+    }
+
+    @Test
+    public void steadyChangesStillPersisted() {
+        final MultiValueSwitchPreference preference = addPreference();
+        final String[] values = {"a", "b", "c"};
+        for (int i = 0; i < 10; i++) {
+            preference.setValue(values[i % values.length]);
+            ShadowLooper.idleMainLooper(DELAY / 3);
+        }
+        // Written while values kept changing
+        assertNotNull(getPersisted());
+    }
+
+    private MultiValueSwitchPreference addPreference() {
+        final MultiValueSwitchPreference preference = new MultiValueSwitchPreference(mContext);
+        preference.setKey(KEY);
+        preference.setEntryValues(new CharSequence[]{"a", "b", "c"});
+        preference.setWriteDelay(DELAY);
+        mScreen.addPreference(preference);
+        return preference;
+    }
+
+    private String getPersisted() {
+        return mManager.getSharedPreferences().getString(KEY, null);
+    }
+}
@@ -0,0 +1,202 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.app.Activity;
+import android.view.ContextThemeWrapper;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class MultiValueSwitchStreamsTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private ContextThemeWrapper mContext;
+    private FrameLayout mContainer;
+    private MultiValueSwitch mView;
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        mContext = new ContextThemeWrapper(activity,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+        mContainer = new FrameLayout(activity);
+        activity.setContentView(mContainer);
+        mView = new MultiValueSwitch(mContext);
+        mView.setMax(3);
+        mContainer.addView(mView);
+    }
+
+    @Test
+    public void startsWithCurrentValue() {
+        mView.setCheckedPosition(2, false);
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        MultiValueSwitchStreams.checkedPositions(mView).subscribe(DIRECT,
+                MultiValueSwitchStreams.BACKPRESSURE_BUFFER, 16, subscriber);
+        assertEquals(Arrays.asList(2), subscriber.values);
+
+        mView.setCheckedPosition(1, false);
+        assertEquals(Arrays.asList(2, 1), subscriber.values);
+    }
+
+    @Test
+    public void completesOnDetach() {
+        final RecordingFloatSubscriber subscriber = new RecordingFloatSubscriber();
+        final MultiValueSwitchStreams.Subscription subscription = MultiValueSwitchStreams
+                .thumbPositions(mView).subscribe(DIRECT,
+                        MultiValueSwitchStreams.BACKPRESSURE_LATEST, 1, subscriber);
+        assertFalse(subscriber.completed);
+        mContainer.removeView(mView);
+        assertTrue(subscriber.completed);
+        assertFalse(subscription.isCancelled());
+
+        // Nothing delivered after completion
+        mView.setCheckedPosition(2, false);
+        assertEquals(Arrays.asList(0f), subscriber.values);
+    }
+
+    @Test
+    public void startsWhenAttached() {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        view.setMax(3);
+        view.setCheckedPosition(1, false);
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        MultiValueSwitchStreams.checkedPositions(view).subscribe(DIRECT,
+                MultiValueSwitchStreams.BACKPRESSURE_BUFFER, 16, subscriber);
+        final RecordingFloatSubscriber thumbSubscriber = new RecordingFloatSubscriber();
+        MultiValueSwitchStreams.thumbPositions(view).subscribe(DIRECT,
+                MultiValueSwitchStreams.BACKPRESSURE_BUFFER, 16, thumbSubscriber);
+        // Nothing delivered while detached, and not completed either
+        view.setCheckedPosition(2, false);
+        assertEquals(0, subscriber.values.size());
+        assertEquals(0, thumbSubscriber.values.size());
+        assertFalse(subscriber.completed);
+
+        // Starts with the value current when attached
+        mContainer.addView(view);
+        assertEquals(Arrays.asList(2), subscriber.values);
+        assertEquals(Arrays.asList(2f), thumbSubscriber.values);
+        view.setCheckedPosition(0, false);
+        assertEquals(Arrays.asList(2, 0), subscriber.values);
+
+        mContainer.removeView(view);
+        assertTrue(subscriber.completed);
+        assertTrue(thumbSubscriber.completed);
+
+        // Attaching again doesn't restart completed subscriptions
+        mContainer.addView(view);
+        view.setCheckedPosition(1, false);
+        assertEquals(Arrays.asList(2, 0), subscriber.values);
+    }
+
+    @Test
+    public void cancelWhileDetached() {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        MultiValueSwitchStreams.checkedPositions(view).subscribe(DIRECT,
+                MultiValueSwitchStreams.BACKPRESSURE_LATEST, 1, subscriber).cancel();
+        mContainer.addView(view);
+        mContainer.removeView(view);
+        assertEquals(0, subscriber.values.size());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void cancelFromBackgroundThread() throws InterruptedException {
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        final MultiValueSwitchStreams.Subscription subscription = MultiValueSwitchStreams
+                .checkedPositions(mView).subscribe(DIRECT,
+                        MultiValueSwitchStreams.BACKPRESSURE_LATEST, 1, subscriber);
+        ShadowLooper.pauseMainLooper();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                subscription.cancel();
+            }
+        });
+        thread.start();
+        thread.join();
+        assertTrue(subscription.isCancelled());
+
+        // Stops delivering at once, stops listening once main thread gets to it
+        mView.setCheckedPosition(1, false);
+        ShadowLooper.idleMainLooper();
+        mView.setCheckedPosition(2, false);
+        mContainer.removeView(mView);
+        assertEquals(Arrays.asList(0), subscriber.values);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void streamDoesNotRetainView() {
+        MultiValueSwitch view = new MultiValueSwitch(mContext);
+        final WeakReference<MultiValueSwitch> viewRef = new WeakReference<>(view);
+        final MultiValueSwitchStreams.Stream<Integer> stream =
+                MultiValueSwitchStreams.checkedPositions(view);
+        //noinspection UnusedAssignment
+        view = null;
+        for (int i = 0; i < 10 && viewRef.get() != null; i++) {
+            System.gc();
+        }
+        assertNull(viewRef.get());
+
+        // Subscribing after the view is gone completes at once
+        final RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+        stream.subscribe(DIRECT, MultiValueSwitchStreams.BACKPRESSURE_LATEST, 1, subscriber);
+        assertEquals(0, subscriber.values.size());
+        assertTrue(subscriber.completed);
+    }
+
+    private static class RecordingSubscriber<T> implements MultiValueSwitchStreams.Subscriber<T> {
+        final List<T> values = new ArrayList<>();
+        boolean completed;
+
+        @Override
+        public void onNext(T value) {
+            values.add(value);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private static class RecordingFloatSubscriber implements MultiValueSwitchStreams.FloatSubscriber {
+        final List<Float> values = new ArrayList<>();
+        boolean completed;
+
+        @Override
+        public void onNext(float value) {
+            values.add(value);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class PreferenceWriteBatcherTest {
+
+    private static final long DELAY = 300;
+
+    private PreferenceWriteBatcher mBatcher;
+    private SharedPreferences mPreferences;
+    private SharedPreferences mOtherPreferences;
+
+    @Before
+    public void setUp() {
+        ShadowLooper.pauseMainLooper();
+        mBatcher = new PreferenceWriteBatcher();
+        mPreferences = RuntimeEnvironment.application.getSharedPreferences("first",
+                Context.MODE_PRIVATE);
+        mOtherPreferences = RuntimeEnvironment.application.getSharedPreferences("second",
+                Context.MODE_PRIVATE);
+    }
+
+    @Test
+    public void latestValueWrittenAfterDelay() {
+        mBatcher.put(mPreferences, "key", "a", DELAY);
+        mBatcher.put(mPreferences, "key", "b", DELAY);
+        assertEquals("b", mBatcher.getPending(mPreferences, "key"));
+        ShadowLooper.idleMainLooper(DELAY - 1);
+        assertNull(mPreferences.getString("key", null));
+        ShadowLooper.idleMainLooper(1);
+        assertEquals("b", mPreferences.getString("key", null));
+        assertNull(mBatcher.getPending(mPreferences, "key"));
+    }
+
+    @Test
+    public void steadyWritesDontPostponeFlush() {
+        mBatcher.put(mPreferences, "key", "0", DELAY);
+        // A write every 100ms, forever with a debounce
+        for (int i = 1; i <= 3; i++) {
+            ShadowLooper.idleMainLooper(100);
+            mBatcher.put(mPreferences, "key", String.valueOf(i), DELAY);
+        }
+        assertEquals("2", mPreferences.getString("key", null));
+        ShadowLooper.idleMainLooper(DELAY);
+        assertEquals("3", mPreferences.getString("key", null));
+    }
+
+    @Test
+    public void shorterDelayFlushesSooner() {
+        mBatcher.put(mPreferences, "key", "a", DELAY);
+        mBatcher.put(mOtherPreferences, "key", "b", 0);
+        ShadowLooper.idleMainLooper(0);
+        assertEquals("a", mPreferences.getString("key", null));
+        assertEquals("b", mOtherPreferences.getString("key", null));
+    }
+
+    @Test
+    public void flushWritesAllPending() {
+        mBatcher.put(mPreferences, "key", "a", DELAY);
+        mBatcher.put(mOtherPreferences, "other", "b", DELAY);
+        mBatcher.flush();
+        assertEquals("a", mPreferences.getString("key", null));
+        assertEquals("b", mOtherPreferences.getString("other", null));
+
+        // Schedules again after flushing
+        mBatcher.put(mPreferences, "key", "c", DELAY);
+        ShadowLooper.idleMainLooper(DELAY);
+        assertEquals("c", mPreferences.getString("key", null));
+    }
+}
@@ -0,0 +1,142 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.NinePatch;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Canvas counting draw calls instead of rasterizing them. Clip and matrix operations still
+ * go to the real canvas.
+ */
+class RecordingCanvas extends Canvas {
+
+    private int mDrawCount;
+    private int mCircleCount;
+    private int mBitmapCount;
+    private int mPatchCount;
+
+    RecordingCanvas() {
+    }
+
+    /**
+     * @return number of draw calls of any kind since last {@link #reset()}
+     */
+    int getDrawCount() {
+        return mDrawCount;
+    }
+
+    int getCircleCount() {
+        return mCircleCount;
+    }
+
+    int getBitmapCount() {
+        return mBitmapCount;
+    }
+
+    int getPatchCount() {
+        return mPatchCount;
+    }
+
+    void reset() {
+        mDrawCount = 0;
+        mCircleCount = 0;
+        mBitmapCount = 0;
+        mPatchCount = 0;
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        mCircleCount++;
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        mBitmapCount++;
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+        mBitmapCount++;
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+        mBitmapCount++;
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
+        mBitmapCount++;
+        mDrawCount++;
+    }
+
+    /**
+     * Hidden in the SDK, called by NinePatch.
+     */
+    public void drawPatch(NinePatch patch, Rect dst, Paint paint) {
+        mPatchCount++;
+        mDrawCount++;
+    }
+
+    /**
+     * Hidden in the SDK, called by NinePatch.
+     */
+    public void drawPatch(NinePatch patch, RectF dst, Paint paint) {
+        mPatchCount++;
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawRect(RectF rect, Paint paint) {
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawRect(Rect r, Paint paint) {
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawOval(RectF oval, Paint paint) {
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawColor(int color) {
+        mDrawCount++;
+    }
+
+    @Override
+    public void drawPaint(Paint paint) {
+        mDrawCount++;
+    }
+}
@@ -0,0 +1,100 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Region;
+import android.graphics.drawable.Drawable;
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.MVS_DrawableUtilsAccessor;
+
+/**
+ * Straightforward rendering of a laid out {@link MultiValueSwitch}, the way SwitchCompat
+ * draws it: everything recomputed from the drawables on every call, no shared helpers and
+ * no caches. Faster rendering paths are checked against this, see
+ * {@link RenderEquivalenceTest}.
+ */
+final class ReferenceSwitchRenderer {
+
+    private ReferenceSwitchRenderer() {
+    }
+
+    static void draw(MultiValueSwitch view, Canvas canvas) {
+        final Drawable thumb = view.getThumbDrawable();
+        final Drawable track = view.getTrackDrawable();
+        final int max = view.getMax();
+        final boolean rtl = ViewCompat.getLayoutDirection(view) == ViewCompat.LAYOUT_DIRECTION_RTL;
+        final int thumbWidth = view.getThumbWidth();
+        final Rect switchBounds = new Rect();
+        view.getSwitchBounds(switchBounds);
+
+        final Rect thumbInsets = thumb != null ? MVS_DrawableUtilsAccessor.getOpticalBounds(thumb)
+                : MVS_DrawableUtilsAccessor.INSETS_NONE;
+        final Rect trackPadding = new Rect();
+        if (track != null) {
+            track.getPadding(trackPadding);
+        }
+
+        // Thumb offset from its position and scroll range
+        int thumbOffset = 0;
+        if (track != null) {
+            final int scrollRange = switchBounds.width() - thumbWidth - trackPadding.left
+                    - trackPadding.right - thumbInsets.left - thumbInsets.right;
+            final float position = view.getThumbPositionOffset() / (max - 1);
+            thumbOffset = (int) ((rtl ? 1 - position : position) * scrollRange + 0.5f);
+        }
+
+        // Track, offset by thumb optical insets exceeding its padding
+        if (track != null) {
+            track.setBounds(switchBounds.left + Math.max(0, thumbInsets.left - trackPadding.left),
+                    switchBounds.top + Math.max(0, thumbInsets.top - trackPadding.top),
+                    switchBounds.right - Math.max(0, thumbInsets.right - trackPadding.right),
+                    switchBounds.bottom - Math.max(0, thumbInsets.bottom - trackPadding.bottom));
+        }
+
+        // Thumb, its content starting after track padding
+        if (thumb != null) {
+            final Rect thumbPadding = new Rect();
+            thumb.getPadding(thumbPadding);
+            final int thumbLeft = switchBounds.left + thumbOffset + trackPadding.left;
+            thumb.setBounds(thumbLeft - thumbPadding.left, switchBounds.top,
+                    thumbLeft + thumbWidth + thumbPadding.right, switchBounds.bottom);
+        }
+
+        final Drawable background = view.getBackground();
+        if (background != null) {
+            background.setBounds(0, 0, view.getWidth(), view.getHeight());
+            background.draw(canvas);
+        }
+
+        if (track != null) {
+            if (view.getSplitTrack() && thumb != null) {
+                final Rect gap = new Rect(thumb.getBounds());
+                gap.left += thumbInsets.left;
+                gap.right -= thumbInsets.right;
+                final int saveCount = canvas.save();
+                canvas.clipRect(gap, Region.Op.DIFFERENCE);
+                track.draw(canvas);
+                canvas.restoreToCount(saveCount);
+            } else {
+                track.draw(canvas);
+            }
+
+            // Ticks between the first and the last stop
+            final int scrollStart = switchBounds.left + thumbWidth - thumbWidth / 2;
+            final int scrollRange = switchBounds.width() - thumbWidth;
+            final int y = track.getBounds().centerY();
+            final SwitchStyle style = view.getStyle();
+            final Paint pointPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            pointPaint.setColor(style.pointColor);
+            for (int i = 1; i < max - 1; i++) {
+                canvas.drawCircle(scrollStart + i * (scrollRange / (max - 1)), y,
+                        style.pointRadius, pointPaint);
+            }
+        }
+
+        if (thumb != null) {
+            thumb.draw(canvas);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.animation.Animation;
+import android.view.animation.Transformation;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures measure, layout, draw and drawable state passes of {@link MultiValueSwitch} with
+ * appcompat drawables, and draw calls per frame of thumb animations. Run with
+ * {@code ./gradlew :library:testDebugUnitTest --tests *RenderBenchmarkTest -i} to see
+ * the numbers.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class RenderBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 200;
+    private static final int ITERATIONS = 1000;
+    private static final int[] MAXES = {2, 5, 20};
+    private static final long FRAME_INTERVAL = 16;
+
+    private Activity mActivity;
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.setupActivity(Activity.class);
+        mContext = new ContextThemeWrapper(mActivity,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+    }
+
+    @Test
+    public void benchmarkMeasure() {
+        for (final int max : MAXES) {
+            final MultiValueSwitch view = createSwitch(max);
+            final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+            long elapsed = 0;
+            for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+                // Skip the measure cache, every pass reaches onMeasure
+                view.forceLayout();
+                final long start = System.nanoTime();
+                view.measure(spec, spec);
+                if (i >= 0) elapsed += System.nanoTime() - start;
+            }
+            report("measure", max, elapsed);
+        }
+    }
+
+    @Test
+    public void benchmarkLayout() {
+        for (final int max : MAXES) {
+            final MultiValueSwitch view = createLaidOutSwitch(max);
+            final int width = view.getMeasuredWidth(), height = view.getMeasuredHeight();
+            long elapsed = 0;
+            for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+                // Alternate bounds so every pass reaches onLayout
+                final int left = i & 1;
+                final long start = System.nanoTime();
+                view.layout(left, 0, left + width, height);
+                if (i >= 0) elapsed += System.nanoTime() - start;
+            }
+            report("layout", max, elapsed);
+        }
+    }
+
+    @Test
+    public void benchmarkDraw() {
+        final RecordingCanvas canvas = new RecordingCanvas();
+        for (final int max : MAXES) {
+            final MultiValueSwitch view = createLaidOutSwitch(max);
+            long elapsed = 0;
+            for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+                canvas.reset();
+                final long start = System.nanoTime();
+                RobolectricDraw.draw(view, canvas);
+                if (i >= 0) elapsed += System.nanoTime() - start;
+            }
+            // Only ticks between the first and last stop are drawn
+            assertEquals(max - 2, canvas.getCircleCount());
+            report("draw", max, elapsed);
+            System.out.println("MultiValueSwitch draw (max " + max + "): "
+                    + canvas.getDrawCount() + " draw calls/frame, " + canvas.getBitmapCount()
+                    + " bitmaps, " + canvas.getPatchCount() + " nine-patches");
+        }
+    }
+
+    @Test
+    public void benchmarkDrawableStateChanged() {
+        for (final int max : MAXES) {
+            final MultiValueSwitch view = createLaidOutSwitch(max);
+            long elapsed = 0;
+            for (int i = -WARMUP_ITERATIONS; i < ITERATIONS; i++) {
+                final boolean pressed = (i & 1) == 0;
+                final long start = System.nanoTime();
+                view.setPressed(pressed);
+                if (i >= 0) elapsed += System.nanoTime() - start;
+            }
+            report("drawableStateChanged", max, elapsed);
+        }
+    }
+
+    @Test
+    public void benchmarkAnimationTimeline() {
+        final RecordingCanvas canvas = new RecordingCanvas();
+        for (final int max : MAXES) {
+            final MultiValueSwitch view = createAttachedSwitch(max);
+            RobolectricDraw.draw(view, canvas);
+            final int restingDrawCount = canvas.getDrawCount();
+
+            final Transformation transformation = new Transformation();
+            long elapsed = 0;
+            int frames = 0;
+            for (int i = 0; i < ITERATIONS / 10; i++) {
+                // Swing between both ends
+                view.setCheckedPosition((i & 1) == 0 ? max - 1 : 0);
+                final Animation animation = view.getAnimation();
+                assertNotNull(animation);
+                long frameTime = 0;
+                boolean more = true;
+                while (more) {
+                    canvas.reset();
+                    final long start = System.nanoTime();
+                    more = animation.getTransformation(frameTime, transformation);
+                    RobolectricDraw.draw(view, canvas);
+                    elapsed += System.nanoTime() - start;
+                    frameTime += FRAME_INTERVAL;
+                    frames++;
+                    // A moving thumb doesn't cost extra draw calls
+                    assertEquals(restingDrawCount, canvas.getDrawCount());
+                }
+                assertEquals((i & 1) == 0 ? max - 1 : 0, view.getCheckedPosition());
+            }
+            assertTrue(frames > ITERATIONS / 10);
+            System.out.println("MultiValueSwitch animation frame (max " + max + "): "
+                    + elapsed / frames + " ns/frame, " + frames * 10 / ITERATIONS
+                    + " frames/transition, " + restingDrawCount + " draw calls/frame");
+        }
+    }
+
+    private MultiValueSwitch createSwitch(int max) {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        view.setMax(max);
+        return view;
+    }
+
+    private MultiValueSwitch createLaidOutSwitch(int max) {
+        final MultiValueSwitch view = createSwitch(max);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    /**
+     * @return switch shown in a window, so position changes animate
+     */
+    private MultiValueSwitch createAttachedSwitch(int max) {
+        final MultiValueSwitch view = createSwitch(max);
+        final FrameLayout container = new FrameLayout(mActivity);
+        container.addView(view);
+        mActivity.setContentView(container);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    private static void report(String name, int max, long elapsed) {
+        System.out.println("MultiValueSwitch " + name + " (max " + max + "): "
+                + elapsed / ITERATIONS + " ns/op");
+    }
+}
@@ -0,0 +1,357 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.drawable.ColorDrawable;
+import android.support.v7.widget.ViewUtils;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.animation.Animation;
+import android.view.animation.Transformation;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mariotaku.multivalueswitch.library.RenderOpCanvas.RenderOp;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Renders {@link MultiValueSwitch} across max, checked position, thumb offset, RTL, split
+ * track, tint and enabled state, and checks every frame against
+ * {@link ReferenceSwitchRenderer}. Changes to the rendering path must keep this passing.
+ * <p>
+ * Robolectric canvases don't rasterize, so frames are compared as recorded draw operations,
+ * see {@link RenderOpCanvas}. Switches with plain color drawables of fixed size are also
+ * checked against goldens in {@code src/test/resources/render-goldens}, which pin the output
+ * of the reference too. Record them again by passing {@code -PrecordRenderGoldens} to
+ * {@code ./gradlew :library:testDebugUnitTest --tests *RenderEquivalenceTest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class RenderEquivalenceTest {
+
+    private static final int[] MAXES = {2, 3, 5};
+    private static final float[] ANIMATION_FRACTIONS = {0.25f, 0.5f, 0.75f};
+    private static final float POSITION_TOLERANCE = 1;
+    private static final int COLOR_TOLERANCE = 2;
+    private static final int TINT_COLOR = 0xFF3F51B5;
+
+    /**
+     * Set by the build to the golden directory when recording.
+     */
+    private static final String PROPERTY_GOLDENS_DIR = "mvs.goldensDir";
+    private static final String GOLDENS_FILE_NAME = "fixed-drawables.txt";
+    private static final float GOLDEN_ANIMATION_FRACTION = 0.5f;
+    private static final int GOLDEN_THUMB_SIZE = 20;
+    private static final int GOLDEN_TRACK_HEIGHT = 12;
+    private static final int GOLDEN_THUMB_COLOR = 0xFF3F51B5;
+    private static final int GOLDEN_TRACK_COLOR = 0xFF9E9E9E;
+
+    private Activity mActivity;
+    private Context mContext;
+    private RenderOpCanvas mCanvas;
+    private RenderOpCanvas mReferenceCanvas;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.setupActivity(Activity.class);
+        mContext = new ContextThemeWrapper(mActivity,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+        mCanvas = new RenderOpCanvas();
+        mReferenceCanvas = new RenderOpCanvas();
+    }
+
+    @Test
+    public void matchesReference() {
+        final List<String> failures = new ArrayList<>();
+        int cases = 0;
+        for (final int max : MAXES) {
+            for (int flags = 0; flags < 16; flags++) {
+                final boolean rtl = (flags & 1) != 0, split = (flags & 2) != 0;
+                final boolean tint = (flags & 4) != 0, disabled = (flags & 8) != 0;
+                final MultiValueSwitch view = createAttachedSwitch(max, rtl, split, tint,
+                        disabled);
+                final String config = "max=" + max + (rtl ? " rtl" : "")
+                        + (split ? " split" : "") + (tint ? " tint" : "")
+                        + (disabled ? " disabled" : "");
+                // Resting at each stop, then mid-way through an animation across the track
+                for (int i = 0, j = max + ANIMATION_FRACTIONS.length; i < j; i++) {
+                    final String name;
+                    if (i < max) {
+                        view.setCheckedPosition(i, false);
+                        name = config + " position=" + i;
+                    } else {
+                        final float fraction = ANIMATION_FRACTIONS[i - max];
+                        seekAnimation(view, max - 1, fraction);
+                        name = config + " animation=" + fraction;
+                    }
+                    cases++;
+                    final String reference = RenderOpCanvas.compare(renderReference(view),
+                            render(view), POSITION_TOLERANCE, COLOR_TOLERANCE);
+                    if (reference != null) {
+                        failures.add(name + " differs from reference, " + reference);
+                    }
+                }
+                view.setCheckedPosition(0, false);
+            }
+        }
+        System.out.println("Render equivalence: " + cases + " cases");
+        if (!failures.isEmpty()) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(failures.size()).append(" cases differ:");
+            for (final String failure : failures) {
+                sb.append('\n').append(failure);
+            }
+            fail(sb.toString());
+        }
+    }
+
+    @Test
+    public void matchesGoldens() throws IOException {
+        final String goldensDir = System.getProperty(PROPERTY_GOLDENS_DIR);
+        final Map<String, List<RenderOp>> goldens = goldensDir != null
+                ? new LinkedHashMap<String, List<RenderOp>>() : readGoldens();
+        final List<String> failures = new ArrayList<>();
+        int cases = 0;
+        for (final int max : MAXES) {
+            for (int flags = 0; flags < 4; flags++) {
+                final boolean rtl = (flags & 1) != 0, split = (flags & 2) != 0;
+                final MultiValueSwitch view = createGoldenSwitch(max, rtl, split);
+                final String config = "max=" + max + (rtl ? " rtl" : "")
+                        + (split ? " split" : "");
+                // Resting at each stop, then half way through an animation across the track
+                for (int i = 0; i <= max; i++) {
+                    final String name;
+                    if (i < max) {
+                        view.setCheckedPosition(i, false);
+                        name = config + " position=" + i;
+                    } else {
+                        seekAnimation(view, max - 1, GOLDEN_ANIMATION_FRACTION);
+                        name = config + " animation=" + GOLDEN_ANIMATION_FRACTION;
+                    }
+                    cases++;
+                    final List<RenderOp> reference = new ArrayList<>(renderReference(view));
+                    if (goldensDir != null) {
+                        goldens.put(name, reference);
+                        continue;
+                    }
+                    final List<RenderOp> golden = goldens.get(name);
+                    if (golden == null) {
+                        failures.add(name + " has no golden");
+                        continue;
+                    }
+                    final String referenceDiff = RenderOpCanvas.compare(golden, reference,
+                            POSITION_TOLERANCE, COLOR_TOLERANCE);
+                    if (referenceDiff != null) {
+                        failures.add(name + " reference differs from golden, " + referenceDiff);
+                    }
+                    final String diff = RenderOpCanvas.compare(golden, render(view),
+                            POSITION_TOLERANCE, COLOR_TOLERANCE);
+                    if (diff != null) {
+                        failures.add(name + " differs from golden, " + diff);
+                    }
+                }
+            }
+        }
+        if (goldensDir != null) {
+            writeGoldens(new File(goldensDir), goldens);
+        }
+        System.out.println("Render goldens: " + cases + " cases"
+                + (goldensDir != null ? " recorded" : ""));
+        if (!failures.isEmpty()) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append(failures.size()).append(" cases differ:");
+            for (final String failure : failures) {
+                sb.append('\n').append(failure);
+            }
+            fail(sb.toString());
+        }
+    }
+
+    @Test
+    public void opsSurviveSerialization() {
+        final MultiValueSwitch view = createAttachedSwitch(5, true, true, true, false);
+        seekAnimation(view, 4, 0.5f);
+        for (final RenderOp op : render(view)) {
+            final RenderOp parsed = RenderOp.parse(op.toString());
+            assertEquals(op.toString(), parsed.toString());
+            assertTrue(op.matches(parsed, 0.01f, 0));
+        }
+    }
+
+    @Test
+    public void detectsDrift() {
+        final MultiValueSwitch view = createAttachedSwitch(3, false, false, false, false);
+        final List<RenderOp> resting = new ArrayList<>(render(view));
+        assertTrue(!resting.isEmpty());
+        assertNull(RenderOpCanvas.compare(resting, render(view), POSITION_TOLERANCE,
+                COLOR_TOLERANCE));
+
+        // Thumb moved
+        view.setCheckedPosition(1, false);
+        assertNotNull(RenderOpCanvas.compare(resting, render(view), POSITION_TOLERANCE,
+                COLOR_TOLERANCE));
+
+        // Track split by the thumb
+        view.setCheckedPosition(0, false);
+        view.setSplitTrack(true);
+        assertNotNull(RenderOpCanvas.compare(resting, render(view), POSITION_TOLERANCE,
+                COLOR_TOLERANCE));
+    }
+
+    private List<RenderOp> render(MultiValueSwitch view) {
+        mCanvas.reset();
+        RobolectricDraw.draw(view, mCanvas);
+        return mCanvas.getOps();
+    }
+
+    private List<RenderOp> renderReference(MultiValueSwitch view) {
+        mReferenceCanvas.reset();
+        ReferenceSwitchRenderer.draw(view, mReferenceCanvas);
+        return mReferenceCanvas.getOps();
+    }
+
+    /**
+     * Animates the thumb from the first stop towards position and stops at given fraction of
+     * the animation.
+     */
+    private static void seekAnimation(MultiValueSwitch view, int position, float fraction) {
+        view.setCheckedPosition(0, false);
+        view.setCheckedPosition(position);
+        final Animation animation = view.getAnimation();
+        assertNotNull(animation);
+        final Transformation transformation = new Transformation();
+        animation.getTransformation(0, transformation);
+        animation.getTransformation((long) (animation.getDuration() * fraction), transformation);
+    }
+
+    private static Map<String, List<RenderOp>> readGoldens() throws IOException {
+        final Map<String, List<RenderOp>> goldens = new LinkedHashMap<>();
+        final InputStream is = RenderEquivalenceTest.class.getResourceAsStream(
+                "/render-goldens/" + GOLDENS_FILE_NAME);
+        assertNotNull("Missing goldens " + GOLDENS_FILE_NAME, is);
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(is, "UTF-8"));
+        try {
+            List<RenderOp> ops = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("# ")) {
+                    ops = new ArrayList<>();
+                    goldens.put(line.substring(2), ops);
+                } else if (ops != null && !line.isEmpty()) {
+                    ops.add(RenderOp.parse(line));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return goldens;
+    }
+
+    private static void writeGoldens(File dir, Map<String, List<RenderOp>> goldens)
+            throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create " + dir);
+        }
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(new File(dir,
+                GOLDENS_FILE_NAME)), "UTF-8");
+        try {
+            for (final Map.Entry<String, List<RenderOp>> entry : goldens.entrySet()) {
+                writer.write("# " + entry.getKey() + "\n");
+                for (final RenderOp op : entry.getValue()) {
+                    writer.write(op + "\n");
+                }
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * @return switch drawn with color drawables of fixed size and no background, so its
+     * geometry doesn't depend on appcompat's drawables
+     */
+    private MultiValueSwitch createGoldenSwitch(int max, boolean rtl, boolean split) {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        view.setBackgroundDrawable(null);
+        view.setPadding(0, 0, 0, 0);
+        view.setSwitchMinWidth(0);
+        view.setThumbDrawable(new SizedColorDrawable(GOLDEN_THUMB_COLOR, GOLDEN_THUMB_SIZE,
+                GOLDEN_THUMB_SIZE));
+        view.setTrackDrawable(new SizedColorDrawable(GOLDEN_TRACK_COLOR, -1,
+                GOLDEN_TRACK_HEIGHT));
+        view.setMax(max);
+        view.setSplitTrack(split);
+        return attach(view, rtl);
+    }
+
+    private MultiValueSwitch createAttachedSwitch(int max, boolean rtl, boolean split,
+                                                  boolean tint, boolean disabled) {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        view.setMax(max);
+        view.setSplitTrack(split);
+        if (tint) {
+            view.setThumbTintList(ColorStateList.valueOf(TINT_COLOR));
+            view.setTrackTintList(ColorStateList.valueOf(TINT_COLOR & 0x4DFFFFFF));
+        }
+        view.setEnabled(!disabled);
+        return attach(view, rtl);
+    }
+
+    private MultiValueSwitch attach(MultiValueSwitch view, boolean rtl) {
+        final FrameLayout container = new FrameLayout(mActivity);
+        container.setLayoutDirection(rtl ? View.LAYOUT_DIRECTION_RTL : View.LAYOUT_DIRECTION_LTR);
+        container.addView(view);
+        mActivity.setContentView(container);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        // Needs supportsRtl from the debug manifest, else every case runs left-to-right
+        assertEquals(rtl, ViewUtils.isLayoutRtl(view));
+        return view;
+    }
+
+    private static class SizedColorDrawable extends ColorDrawable {
+        private final int mWidth;
+        private final int mHeight;
+
+        SizedColorDrawable(int color, int width, int height) {
+            super(color);
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public int getIntrinsicWidth() {
+            return mWidth;
+        }
+
+        @Override
+        public int getIntrinsicHeight() {
+            return mHeight;
+        }
+    }
+}
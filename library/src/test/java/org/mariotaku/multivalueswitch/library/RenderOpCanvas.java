@@ -0,0 +1,363 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.NinePatch;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Region;
+import android.support.annotation.Nullable;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Canvas recording draw, clip and transform operations with their geometry, color and color
+ * filter, so two rendering paths can be compared without rasterizing. Robolectric canvases
+ * don't produce pixels, this is what they would be rendered from.
+ */
+class RenderOpCanvas extends Canvas {
+
+    private final List<RenderOp> mOps = new ArrayList<>();
+    private final RectF mTempRect = new RectF();
+    private int mSaveCount = 1;
+
+    RenderOpCanvas() {
+    }
+
+    List<RenderOp> getOps() {
+        return mOps;
+    }
+
+    void reset() {
+        mOps.clear();
+        mSaveCount = 1;
+    }
+
+    @Override
+    public int save() {
+        mOps.add(new RenderOp("save"));
+        return mSaveCount++;
+    }
+
+    @Override
+    public int save(int saveFlags) {
+        return save();
+    }
+
+    @Override
+    public void restore() {
+        mOps.add(new RenderOp("restore"));
+        mSaveCount--;
+    }
+
+    @Override
+    public void restoreToCount(int saveCount) {
+        while (mSaveCount > saveCount) {
+            restore();
+        }
+    }
+
+    @Override
+    public int getSaveCount() {
+        return mSaveCount;
+    }
+
+    @Override
+    public void translate(float dx, float dy) {
+        mOps.add(new RenderOp("translate", dx, dy, 0, 0, null));
+    }
+
+    @Override
+    public void scale(float sx, float sy) {
+        mOps.add(new RenderOp("scale", sx, sy, 0, 0, null));
+    }
+
+    @Override
+    public boolean clipRect(RectF rect, Region.Op op) {
+        return clipRect(rect.left, rect.top, rect.right, rect.bottom, op);
+    }
+
+    @Override
+    public boolean clipRect(Rect rect, Region.Op op) {
+        return clipRect(rect.left, rect.top, rect.right, rect.bottom, op);
+    }
+
+    @Override
+    public boolean clipRect(RectF rect) {
+        return clipRect(rect, Region.Op.INTERSECT);
+    }
+
+    @Override
+    public boolean clipRect(Rect rect) {
+        return clipRect(rect, Region.Op.INTERSECT);
+    }
+
+    @Override
+    public boolean clipRect(float left, float top, float right, float bottom) {
+        return clipRect(left, top, right, bottom, Region.Op.INTERSECT);
+    }
+
+    @Override
+    public boolean clipRect(int left, int top, int right, int bottom) {
+        return clipRect(left, top, right, bottom, Region.Op.INTERSECT);
+    }
+
+    @Override
+    public boolean clipRect(float left, float top, float right, float bottom, Region.Op op) {
+        mOps.add(new RenderOp("clipRect", op.name(), left, top, right, bottom, null));
+        return true;
+    }
+
+    @Override
+    public void drawCircle(float cx, float cy, float radius, Paint paint) {
+        mOps.add(new RenderOp("circle", cx - radius, cy - radius, cx + radius, cy + radius, paint));
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+        mOps.add(new RenderOp("bitmap", describe(bitmap), left, top, left + bitmap.getWidth(),
+                top + bitmap.getHeight(), paint));
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+        mOps.add(new RenderOp("bitmap", describe(bitmap), dst.left, dst.top, dst.right,
+                dst.bottom, paint));
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+        mOps.add(new RenderOp("bitmap", describe(bitmap), dst.left, dst.top, dst.right,
+                dst.bottom, paint));
+    }
+
+    @Override
+    public void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
+        final RectF dst = mTempRect;
+        dst.set(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        matrix.mapRect(dst);
+        mOps.add(new RenderOp("bitmap", describe(bitmap), dst.left, dst.top, dst.right,
+                dst.bottom, paint));
+    }
+
+    /**
+     * Hidden in the SDK, called by NinePatch.
+     */
+    public void drawPatch(NinePatch patch, Rect dst, Paint paint) {
+        mOps.add(new RenderOp("patch", describe(patch.getBitmap()), dst.left, dst.top,
+                dst.right, dst.bottom, paint));
+    }
+
+    /**
+     * Hidden in the SDK, called by NinePatch.
+     */
+    public void drawPatch(NinePatch patch, RectF dst, Paint paint) {
+        mOps.add(new RenderOp("patch", describe(patch.getBitmap()), dst.left, dst.top,
+                dst.right, dst.bottom, paint));
+    }
+
+    @Override
+    public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+        mOps.add(new RenderOp("rect", left, top, right, bottom, paint));
+    }
+
+    @Override
+    public void drawRect(RectF rect, Paint paint) {
+        drawRect(rect.left, rect.top, rect.right, rect.bottom, paint);
+    }
+
+    @Override
+    public void drawRect(Rect r, Paint paint) {
+        drawRect(r.left, r.top, r.right, r.bottom, paint);
+    }
+
+    @Override
+    public void drawRoundRect(RectF rect, float rx, float ry, Paint paint) {
+        drawRoundRect(rect.left, rect.top, rect.right, rect.bottom, rx, ry, paint);
+    }
+
+    @Override
+    public void drawRoundRect(float left, float top, float right, float bottom, float rx,
+                              float ry, Paint paint) {
+        mOps.add(new RenderOp("roundRect", left, top, right, bottom, paint));
+    }
+
+    @Override
+    public void drawOval(RectF oval, Paint paint) {
+        drawOval(oval.left, oval.top, oval.right, oval.bottom, paint);
+    }
+
+    @Override
+    public void drawOval(float left, float top, float right, float bottom, Paint paint) {
+        mOps.add(new RenderOp("oval", left, top, right, bottom, paint));
+    }
+
+    @Override
+    public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+        mOps.add(new RenderOp("line", startX, startY, stopX, stopY, paint));
+    }
+
+    @Override
+    public void drawPath(Path path, Paint paint) {
+        final RectF bounds = mTempRect;
+        path.computeBounds(bounds, true);
+        mOps.add(new RenderOp("path", bounds.left, bounds.top, bounds.right, bounds.bottom,
+                paint));
+    }
+
+    @Override
+    public void drawColor(int color) {
+        drawColor(color, PorterDuff.Mode.SRC_OVER);
+    }
+
+    @Override
+    public void drawColor(int color, PorterDuff.Mode mode) {
+        mOps.add(new RenderOp("color", mode.name(), 0, 0, 0, 0, color, "-", 0));
+    }
+
+    @Override
+    public void drawPaint(Paint paint) {
+        mOps.add(new RenderOp("paint", 0, 0, 0, 0, paint));
+    }
+
+    private static String describe(@Nullable Bitmap bitmap) {
+        if (bitmap == null) return "-";
+        return bitmap.getWidth() + "x" + bitmap.getHeight();
+    }
+
+    /**
+     * Compares two operation lists, allowing positions and color channels to differ by given
+     * amounts.
+     *
+     * @return description of the first difference, or null if equivalent
+     */
+    @Nullable
+    static String compare(List<RenderOp> expected, List<RenderOp> actual,
+                          float positionTolerance, int colorTolerance) {
+        for (int i = 0, j = Math.min(expected.size(), actual.size()); i < j; i++) {
+            final RenderOp e = expected.get(i), a = actual.get(i);
+            if (!e.matches(a, positionTolerance, colorTolerance)) {
+                return "op " + i + ": expected <" + e + "> but was <" + a + ">";
+            }
+        }
+        if (expected.size() != actual.size()) {
+            return "expected " + expected.size() + " ops but was " + actual.size();
+        }
+        return null;
+    }
+
+    /**
+     * Single recorded operation. Draw operations keep their bounds, transforms keep their
+     * arguments in left and top.
+     */
+    static final class RenderOp {
+        final String kind;
+        final String source;
+        final float left, top, right, bottom;
+        final int color;
+        final String filterMode;
+        final int filterColor;
+
+        RenderOp(String kind) {
+            this(kind, 0, 0, 0, 0, null);
+        }
+
+        RenderOp(String kind, float left, float top, float right, float bottom,
+                 @Nullable Paint paint) {
+            this(kind, "-", left, top, right, bottom, paint);
+        }
+
+        RenderOp(String kind, String source, float left, float top, float right, float bottom,
+                 @Nullable Paint paint) {
+            this.kind = kind;
+            this.source = source;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            final ColorFilter filter = paint != null ? paint.getColorFilter() : null;
+            this.color = paint != null ? paint.getColor() : 0;
+            if (filter instanceof PorterDuffColorFilter) {
+                this.filterMode = String.valueOf(readField(filter, "mMode"));
+                final Object filterColor = readField(filter, "mColor");
+                this.filterColor = filterColor instanceof Integer ? (Integer) filterColor : 0;
+            } else {
+                this.filterMode = filter != null ? filter.getClass().getSimpleName() : "-";
+                this.filterColor = 0;
+            }
+        }
+
+        RenderOp(String kind, String source, float left, float top, float right, float bottom,
+                 int color, String filterMode, int filterColor) {
+            this.kind = kind;
+            this.source = source;
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.color = color;
+            this.filterMode = filterMode;
+            this.filterColor = filterColor;
+        }
+
+        boolean matches(RenderOp other, float positionTolerance, int colorTolerance) {
+            return kind.equals(other.kind) && source.equals(other.source)
+                    && filterMode.equals(other.filterMode)
+                    && Math.abs(left - other.left) <= positionTolerance
+                    && Math.abs(top - other.top) <= positionTolerance
+                    && Math.abs(right - other.right) <= positionTolerance
+                    && Math.abs(bottom - other.bottom) <= positionTolerance
+                    && colorMatches(color, other.color, colorTolerance)
+                    && colorMatches(filterColor, other.filterColor, colorTolerance);
+        }
+
+        /**
+         * @return tab separated line, read back by {@link #parse(String)}
+         */
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s\t%s\t%.2f\t%.2f\t%.2f\t%.2f\t%08x\t%s\t%08x",
+                    kind, source, left, top, right, bottom, color, filterMode, filterColor);
+        }
+
+        static RenderOp parse(String line) {
+            final String[] segs = line.split("\t");
+            if (segs.length != 9) {
+                throw new IllegalArgumentException("Malformed render op: " + line);
+            }
+            return new RenderOp(segs[0], segs[1], Float.parseFloat(segs[2]),
+                    Float.parseFloat(segs[3]), Float.parseFloat(segs[4]),
+                    Float.parseFloat(segs[5]), (int) Long.parseLong(segs[6], 16), segs[7],
+                    (int) Long.parseLong(segs[8], 16));
+        }
+
+        private static boolean colorMatches(int a, int b, int tolerance) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                if (Math.abs(((a >>> shift) & 0xFF) - ((b >>> shift) & 0xFF)) > tolerance) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Nullable
+        private static Object readField(Object obj, String name) {
+            try {
+                final Field field = obj.getClass().getDeclaredField(name);
+                field.setAccessible(true);
+                return field.get(obj);
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                return null;
+            }
+        }
+    }
+}
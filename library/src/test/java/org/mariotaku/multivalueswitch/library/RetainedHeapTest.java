@@ -0,0 +1,262 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.widget.AppCompatDrawableManager;
+import android.util.AttributeSet;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewParent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks {@link MultiValueSwitch} instances share their resolved style and keep no
+ * per-instance copies of it, which is what kept retained heap per instance down.
+ * <p>
+ * Retained size is measured as the objects reachable from one switch but not from another,
+ * sized with ART's layout: 8-byte object header, 4-byte references, 12-byte array header,
+ * 8-byte alignment. View's own fields, drawables, views and contexts aren't counted, they
+ * don't depend on how the style is held. Figures from MultiValueSwitch's fields with the
+ * same layout, before (2b3a992) and after (32c4a89) the style was shared:
+ * <pre>
+ *                              before   after
+ * MultiValueSwitch fields       165 B   123 B
+ * temp Rect                      24 B     -
+ * point Paint (Java object)      88 B     -
+ * total                         277 B   123 B
+ * </pre>
+ * The Paint also owned a native paint, which isn't included.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class RetainedHeapTest {
+
+    /**
+     * Per-instance bound, a few times what the switch retains with a shared style so
+     * unrelated fields don't break it.
+     */
+    private static final long MAX_RETAINED_BYTES = 1024;
+
+    private static final int HEADER_SIZE = 8, ARRAY_HEADER_SIZE = 12, REFERENCE_SIZE = 4;
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+    }
+
+    @Test
+    public void styleSharedBetweenInstances() {
+        final MultiValueSwitch first = new MultiValueSwitch(mContext);
+        final MultiValueSwitch second = new MultiValueSwitch(mContext);
+        assertSame(first.getStyle(), second.getStyle());
+        if (first.getThumbDrawable() != null) {
+            assertNotSame(first.getThumbDrawable(), second.getThumbDrawable());
+        }
+    }
+
+    @Test
+    public void retainedSizeBounded() {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        final long retained = retainedSize(view, new MultiValueSwitch(mContext));
+        System.out.println("Retained per switch: " + retained + " B");
+        assertTrue(retained + " B", retained <= MAX_RETAINED_BYTES);
+    }
+
+    @Test
+    public void sharedStyleRetainsLess() {
+        // Setting a SwitchCompat attribute makes the switch resolve a style of its own
+        final AttributeSet attrs = Robolectric.buildAttributeSet()
+                .addAttribute(R.attr.switchMinWidth, "100dp")
+                .build();
+        final MultiValueSwitch own = new MultiValueSwitch(mContext, attrs);
+        final MultiValueSwitch shared = new MultiValueSwitch(mContext);
+        final MultiValueSwitch other = new MultiValueSwitch(mContext);
+        assertNotSame(own.getStyle(), other.getStyle());
+        final long ownRetained = retainedSize(own, other);
+        final long sharedRetained = retainedSize(shared, other);
+        System.out.println("Retained per switch: " + sharedRetained + " B with shared style, "
+                + ownRetained + " B with its own");
+        assertTrue(sharedRetained + " B, " + ownRetained + " B", sharedRetained < ownRetained);
+    }
+
+    @Test
+    public void noTintBookkeepingUntilTinted() throws Exception {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        assertNull(readField(view, "mThumbTint"));
+        assertNull(readField(view, "mTrackTint"));
+        view.setThumbTintList(ColorStateList.valueOf(0xFF000000));
+        assertNotNull(readField(view, "mThumbTint"));
+        assertNull(readField(view, "mTrackTint"));
+        assertSame(view.getStyle(), new MultiValueSwitch(mContext).getStyle());
+    }
+
+    @Test
+    public void noPerInstanceStyleObjects() {
+        // Resolved values live in the shared style, an instance must not hold its own copies
+        for (final Field field : MultiValueSwitch.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers())) continue;
+            assertFalse(field.getName(), isStyleType(field.getType()));
+        }
+    }
+
+    @Test
+    public void styleResolvedAgainAfterConfigurationChange() {
+        final SwitchStyle style = new MultiValueSwitch(mContext).getStyle();
+        final Resources res = mContext.getResources();
+        final Configuration config = new Configuration(res.getConfiguration());
+        config.uiMode = (config.uiMode & ~Configuration.UI_MODE_NIGHT_MASK)
+                | ((config.uiMode & Configuration.UI_MODE_NIGHT_YES) != 0
+                ? Configuration.UI_MODE_NIGHT_NO : Configuration.UI_MODE_NIGHT_YES);
+        res.updateConfiguration(config, res.getDisplayMetrics());
+        final SwitchStyle changed = new MultiValueSwitch(mContext).getStyle();
+        assertNotSame(style, changed);
+        assertSame(changed, new MultiValueSwitch(mContext).getStyle());
+    }
+
+    private static boolean isStyleType(Class<?> type) {
+        return Paint.class.isAssignableFrom(type) || Rect.class.isAssignableFrom(type)
+                || ViewConfiguration.class.isAssignableFrom(type)
+                || AppCompatDrawableManager.class.isAssignableFrom(type);
+    }
+
+    /**
+     * @return bytes of objects reachable from view's own fields but not from other's
+     */
+    private static long retainedSize(MultiValueSwitch view, MultiValueSwitch other) {
+        final Set<Object> shared = reachable(other);
+        long size = 0;
+        for (final Object obj : reachable(view)) {
+            if (shared.contains(obj)) continue;
+            size += shallowSize(obj, obj == view ? MultiValueSwitch.class : null);
+        }
+        return size;
+    }
+
+    private static Set<Object> reachable(MultiValueSwitch root) {
+        final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+        final ArrayDeque<Object> queue = new ArrayDeque<>();
+        seen.add(root);
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            final Object obj = queue.poll();
+            final Class<?> type = obj.getClass();
+            if (type.isArray()) {
+                if (type.getComponentType().isPrimitive()) continue;
+                for (int i = 0, j = Array.getLength(obj); i < j; i++) {
+                    visit(Array.get(obj, i), seen, queue);
+                }
+                continue;
+            }
+            // Only what the switch adds, not View's state
+            final Class<?> stop = obj == root ? View.class : null;
+            for (Class<?> c = type; c != null && c != stop; c = c.getSuperclass()) {
+                for (final Field field : c.getDeclaredFields()) {
+                    if (!isCounted(field) || field.getType().isPrimitive()) continue;
+                    try {
+                        field.setAccessible(true);
+                        visit(field.get(obj), seen, queue);
+                    } catch (IllegalAccessException | RuntimeException e) {
+                        // Platform internals, counted by shallow size only
+                    }
+                }
+            }
+        }
+        return seen;
+    }
+
+    private static void visit(Object obj, Set<Object> seen, ArrayDeque<Object> queue) {
+        if (obj == null || isExternal(obj) || !seen.add(obj)) return;
+        queue.add(obj);
+    }
+
+    /**
+     * @return true for objects the switch only points to, sized and owned elsewhere
+     */
+    private static boolean isExternal(Object obj) {
+        return obj instanceof Context || obj instanceof Resources
+                || obj instanceof Resources.Theme || obj instanceof View
+                || obj instanceof ViewParent || obj instanceof Drawable
+                || obj instanceof Drawable.ConstantState || obj instanceof Class
+                || obj instanceof ClassLoader || obj instanceof Thread
+                || obj instanceof Looper || obj instanceof Handler;
+    }
+
+    /**
+     * @param declaredBy if not null, only fields declared by this class are counted
+     */
+    private static long shallowSize(Object obj, Class<?> declaredBy) {
+        final Class<?> type = obj.getClass();
+        if (type.isArray()) {
+            final Class<?> component = type.getComponentType();
+            return align(ARRAY_HEADER_SIZE + (long) Array.getLength(obj) * fieldSize(component));
+        }
+        long size = HEADER_SIZE;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            if (declaredBy != null && c != declaredBy) continue;
+            for (final Field field : c.getDeclaredFields()) {
+                if (!isCounted(field)) continue;
+                size += fieldSize(field.getType());
+            }
+        }
+        return align(size);
+    }
+
+    /**
+     * @return false for static fields and the shadow field Robolectric adds to framework
+     * classes, which doesn't exist on a device
+     */
+    private static boolean isCounted(Field field) {
+        return !Modifier.isStatic(field.getModifiers()) && !field.getName().startsWith("__robo");
+    }
+
+    private static int fieldSize(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        if (type == byte.class || type == boolean.class) return 1;
+        return REFERENCE_SIZE;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7;
+    }
+
+    private static Object readField(Object obj, String name) throws Exception {
+        final Field field = obj.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(obj);
+    }
+}
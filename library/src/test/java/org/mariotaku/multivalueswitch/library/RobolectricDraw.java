@@ -0,0 +1,23 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.graphics.Canvas;
+
+/**
+ * Robolectric's shadow of View.draw only draws the background, so onDraw never runs. Draws
+ * the rest the way View.draw does for views without fading edges, scroll bars or foreground.
+ */
+final class RobolectricDraw {
+
+    private RobolectricDraw() {
+    }
+
+    static void draw(MultiValueSwitch view, Canvas canvas) {
+        view.draw(canvas);
+        view.onDraw(canvas);
+    }
+
+    static void draw(MultiValueSwitchGroupView view, Canvas canvas) {
+        view.draw(canvas);
+        view.onDraw(canvas);
+    }
+}
@@ -0,0 +1,159 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeProviderCompat;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.view.accessibility.AccessibilityManager;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks the virtual node tree of {@link MultiValueSwitch} and throttling of selection
+ * events while dragging.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwitchAccessibilityHelperTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+        setAccessibilityEnabled(true);
+    }
+
+    @Test
+    public void hostReportsRangeAndChildren() {
+        final MultiValueSwitch view = createLaidOutSwitch(4);
+        view.setCheckedPosition(1, false);
+        final AccessibilityNodeInfoCompat node = getProvider(view).createAccessibilityNodeInfo(View.NO_ID);
+        assertEquals(SwitchAccessibilityHelper.CLASS_NAME, node.getClassName());
+        assertEquals(4, node.getChildCount());
+        assertEquals(1, node.getRangeInfo().getCurrent(), 0);
+        assertEquals(3, node.getRangeInfo().getMax(), 0);
+        final int actions = node.getActions();
+        assertTrue((actions & AccessibilityNodeInfoCompat.ACTION_SCROLL_FORWARD) != 0);
+        assertTrue((actions & AccessibilityNodeInfoCompat.ACTION_SCROLL_BACKWARD) != 0);
+    }
+
+    @Test
+    public void childNodesFollowCheckedPosition() {
+        final MultiValueSwitch view = createLaidOutSwitch(3);
+        final AccessibilityNodeProviderCompat provider = getProvider(view);
+        final AccessibilityNodeInfoCompat first = provider.createAccessibilityNodeInfo(2);
+        final AccessibilityNodeInfoCompat second = provider.createAccessibilityNodeInfo(2);
+        // Each query gets its own copy of the cached node
+        assertNotSame(first, second);
+        assertEquals(first.getText(), second.getText());
+        assertFalse(first.isChecked());
+
+        assertTrue(provider.performAction(2, AccessibilityNodeInfoCompat.ACTION_CLICK, null));
+        assertEquals(2, view.getCheckedPosition());
+        assertTrue(provider.createAccessibilityNodeInfo(2).isChecked());
+    }
+
+    @Test
+    public void dragSelectionEventsThrottled() {
+        final RecordingParent parent = new RecordingParent(mContext);
+        final MultiValueSwitch view = createLaidOutSwitch(10);
+        parent.addView(view);
+        final SwitchAccessibilityHelper helper = view.getAccessibilityHelper();
+        for (int i = 1; i < 10; i++) {
+            helper.onThumbDragged(i);
+        }
+        assertEquals(1, parent.countEvents(AccessibilityEvent.TYPE_VIEW_SELECTED));
+        ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+        // The latest position is sent once the interval has passed
+        assertEquals(2, parent.countEvents(AccessibilityEvent.TYPE_VIEW_SELECTED));
+    }
+
+    @Test
+    public void createdOnFirstQuery() {
+        setAccessibilityEnabled(false);
+        final MultiValueSwitch view = createLaidOutSwitch(3);
+        view.setCheckedPosition(1, false);
+        assertFalse(view.hasAccessibilityHelper());
+
+        // What the framework calls first
+        view.getAccessibilityNodeProvider();
+        assertTrue(view.hasAccessibilityHelper());
+        assertEquals(3, view.createAccessibilityNodeInfo().getChildCount());
+    }
+
+    @Test
+    public void createdWhenEnabled() {
+        setAccessibilityEnabled(false);
+        final RecordingParent parent = new RecordingParent(mContext);
+        final MultiValueSwitch view = createLaidOutSwitch(3);
+        parent.addView(view);
+        view.setCheckedPosition(1, false);
+        assertFalse(view.hasAccessibilityHelper());
+
+        setAccessibilityEnabled(true);
+        view.setCheckedPosition(2, false);
+        assertTrue(view.hasAccessibilityHelper());
+        assertEquals(1, parent.countEvents(AccessibilityEvent.TYPE_VIEW_SELECTED));
+    }
+
+    private void setAccessibilityEnabled(boolean enabled) {
+        final AccessibilityManager manager = (AccessibilityManager) RuntimeEnvironment.application
+                .getSystemService(Context.ACCESSIBILITY_SERVICE);
+        shadowOf(manager).setEnabled(enabled);
+    }
+
+    private MultiValueSwitch createLaidOutSwitch(int max) {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        view.setMax(max);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    private static AccessibilityNodeProviderCompat getProvider(MultiValueSwitch view) {
+        return view.getAccessibilityHelper().getAccessibilityNodeProvider(view);
+    }
+
+    private static class RecordingParent extends FrameLayout {
+        private final List<Integer> mEventTypes = new ArrayList<>();
+
+        RecordingParent(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean requestSendAccessibilityEvent(View child, AccessibilityEvent event) {
+            mEventTypes.add(event.getEventType());
+            return true;
+        }
+
+        int countEvents(int type) {
+            int count = 0;
+            for (final int eventType : mEventTypes) {
+                if (eventType == type) count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks what the debug overlay of {@link MultiValueSwitch} records and draws.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwitchDebugOverlayTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+    }
+
+    @Test
+    public void disabledByDefault() {
+        final MultiValueSwitch view = createLaidOutSwitch(3);
+        assertFalse(view.isDebugOverlayEnabled());
+        assertNull(view.getDebugOverlay());
+    }
+
+    @Test
+    public void recordsInvalidationsAndDispatches() {
+        final MultiValueSwitch view = createLaidOutSwitch(3);
+        view.setDebugOverlayEnabled(true);
+        view.setCheckedPosition(2, false);
+        final SwitchDebugOverlay overlay = view.getDebugOverlay();
+        // Switch area the thumb can cover, with the touch slop the overlay draws around it
+        final Rect expected = new Rect();
+        view.getSwitchBounds(expected);
+        final Rect thumbPadding = new Rect();
+        view.getThumbDrawable().getPadding(thumbPadding);
+        final int touchSlop = view.getStyle().touchSlop;
+        expected.set(expected.left - thumbPadding.left - touchSlop, expected.top - touchSlop,
+                expected.right + thumbPadding.right + touchSlop, expected.bottom + touchSlop);
+        assertEquals(expected, overlay.getInvalidated());
+
+        final RecordingCanvas canvas = new RecordingCanvas();
+        RobolectricDraw.draw(view, canvas);
+        assertEquals(1, overlay.getDispatchCount(0));
+        assertTrue(overlay.getDrawNanos(0) > 0);
+        RobolectricDraw.draw(view, canvas);
+        assertEquals(0, overlay.getDispatchCount(0));
+        assertEquals(1, overlay.getDispatchCount(1));
+    }
+
+    @Test
+    public void everyInvalidationRecorded() {
+        final MultiValueSwitch view = createLaidOutSwitch(3);
+        final SwitchMetrics metrics = new SwitchMetrics();
+        view.setMetrics(metrics);
+        view.setSplitTrack(true);
+        assertEquals(1, metrics.getInvalidations());
+        view.setMax(4);
+        assertEquals(2, metrics.getInvalidations());
+        view.setDebugOverlayEnabled(true);
+        assertEquals(3, metrics.getInvalidations());
+        final Rect whole = new Rect(0, 0, view.getWidth(), view.getHeight());
+        assertEquals(whole, view.getDebugOverlay().getInvalidated());
+
+        final ColorDrawable background = new ColorDrawable(Color.RED);
+        view.setBackgroundDrawable(background);
+        final long invalidations = metrics.getInvalidations();
+        assertTrue(invalidations > 3);
+        // Background invalidating itself
+        background.setBounds(0, 0, view.getWidth() / 2, view.getHeight());
+        background.setColor(Color.BLUE);
+        assertEquals(invalidations + 1, metrics.getInvalidations());
+        assertEquals(background.getBounds(), view.getDebugOverlay().getInvalidated());
+    }
+
+    @Test
+    public void drawsOverSwitch() {
+        final MultiValueSwitch view = createLaidOutSwitch(3);
+        final RecordingCanvas canvas = new RecordingCanvas();
+        RobolectricDraw.draw(view, canvas);
+        final int drawCount = canvas.getDrawCount();
+        view.setDebugOverlayEnabled(true);
+        canvas.reset();
+        RobolectricDraw.draw(view, canvas);
+        assertTrue(canvas.getDrawCount() > drawCount);
+        view.setDebugOverlayEnabled(false);
+        canvas.reset();
+        RobolectricDraw.draw(view, canvas);
+        assertEquals(drawCount, canvas.getDrawCount());
+    }
+
+    private MultiValueSwitch createLaidOutSwitch(int max) {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        view.setMax(max);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+}
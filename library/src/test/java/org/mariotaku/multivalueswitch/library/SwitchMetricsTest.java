@@ -0,0 +1,153 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.view.ContextThemeWrapper;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.animation.Animation;
+import android.view.animation.Transformation;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks {@link SwitchMetrics} histograms and what {@link MultiValueSwitch} records.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwitchMetricsTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+    }
+
+    @After
+    public void tearDown() {
+        MultiValueSwitch.setDefaultMetrics(null);
+    }
+
+    @Test
+    public void histogramBuckets() {
+        final SwitchMetrics.Histogram histogram = new SwitchMetrics().getDispatchTimeMicros();
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(3);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(1, histogram.getCount(0));
+        assertEquals(1, histogram.getCount(1));
+        assertEquals(1, histogram.getCount(2));
+        assertEquals(4, histogram.getUpperBound(2));
+        assertEquals(1, histogram.getCount(histogram.getBucketCount() - 1));
+        assertEquals(4, histogram.getTotalCount());
+        assertEquals(4, histogram.getPercentileUpperBound(0.75f));
+    }
+
+    @Test
+    public void defaultMetricsSharedByNewSwitches() {
+        assertNull(new MultiValueSwitch(mContext).getMetrics());
+        final SwitchMetrics metrics = new SwitchMetrics();
+        MultiValueSwitch.setDefaultMetrics(metrics);
+        createLaidOutSwitch(3);
+        createLaidOutSwitch(3);
+        assertEquals(2, metrics.getMeasures());
+        assertEquals(2, metrics.getLayouts());
+        assertSame(metrics, new MultiValueSwitch(mContext).getMetrics());
+    }
+
+    @Test
+    public void tapRecordsCommitLatency() {
+        final MultiValueSwitch view = createLaidOutSwitch(3);
+        final SwitchMetrics metrics = new SwitchMetrics();
+        view.setMetrics(metrics);
+        // Programmatic changes aren't input
+        view.setCheckedPosition(1, false);
+        assertEquals(1, metrics.getCheckedChanges());
+        assertEquals(0, metrics.getInputToCommitMillis().getTotalCount());
+
+        final float x = view.getWidth() - 1, y = view.getHeight() / 2;
+        final long downTime = SystemClock.uptimeMillis();
+        final MotionEvent down = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        final MotionEvent up = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_UP, x, y, 0);
+        view.setDragFromTrackEnabled(true);
+        view.onTouchEvent(down);
+        view.onTouchEvent(up);
+        down.recycle();
+        up.recycle();
+
+        assertEquals(2, view.getCheckedPosition());
+        assertEquals(2, metrics.getCheckedChanges());
+        assertEquals(2, metrics.getDispatchTimeMicros().getTotalCount());
+        assertEquals(1, metrics.getInputToCommitMillis().getTotalCount());
+    }
+
+    @Test
+    public void dragBackToStartRecordsNothing() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        final MultiValueSwitch view = new MultiValueSwitch(new ContextThemeWrapper(activity,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light));
+        view.setMax(3);
+        activity.setContentView(view, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        final SwitchMetrics metrics = new SwitchMetrics();
+        view.setMetrics(metrics);
+
+        // Drag the thumb away from the first stop and slowly back
+        final Rect bounds = new Rect();
+        view.getSwitchBounds(bounds);
+        final float x = bounds.left + view.getThumbWidth() / 2;
+        final long downTime = SystemClock.uptimeMillis();
+        touch(view, downTime, 0, MotionEvent.ACTION_DOWN, x);
+        touch(view, downTime, 50, MotionEvent.ACTION_MOVE, x + view.getStyle().touchSlop * 3);
+        touch(view, downTime, 1000, MotionEvent.ACTION_MOVE, x);
+        touch(view, downTime, 2000, MotionEvent.ACTION_UP, x);
+
+        // Thumb settles back where it started
+        final Animation animation = view.getAnimation();
+        assertNotNull(animation);
+        final Transformation transformation = new Transformation();
+        animation.getTransformation(0, transformation);
+        animation.getTransformation(animation.getDuration(), transformation);
+        assertEquals(0, view.getCheckedPosition());
+        assertEquals(0, metrics.getCheckedChanges());
+        assertEquals(0, metrics.getDispatchTimeMicros().getTotalCount());
+        assertEquals(0, metrics.getInputToCommitMillis().getTotalCount());
+    }
+
+    private static void touch(View view, long downTime, long offset, int action, float x) {
+        final MotionEvent event = MotionEvent.obtain(downTime, downTime + offset, action, x,
+                view.getHeight() / 2, 0);
+        view.onTouchEvent(event);
+        event.recycle();
+    }
+
+    private MultiValueSwitch createLaidOutSwitch(int max) {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        view.setMax(max);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+}
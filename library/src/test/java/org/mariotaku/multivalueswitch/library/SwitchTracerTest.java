@@ -0,0 +1,165 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.animation.Animation;
+import android.view.animation.Transformation;
+import android.widget.FrameLayout;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks trace sections {@link MultiValueSwitch} writes to a {@link SwitchTracer}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class SwitchTracerTest {
+
+    private Activity mActivity;
+    private Context mContext;
+    private RecordingTracer mTracer;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.setupActivity(Activity.class);
+        mContext = new ContextThemeWrapper(mActivity,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+        mTracer = new RecordingTracer();
+        MultiValueSwitch.setTracer(mTracer);
+    }
+
+    @After
+    public void tearDown() {
+        MultiValueSwitch.setTracer(null);
+    }
+
+    @Test
+    public void measureLayoutDrawSections() {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        mTracer.events.clear();
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        RobolectricDraw.draw(view, new Canvas(Bitmap.createBitmap(view.getWidth(),
+                view.getHeight(), Bitmap.Config.ARGB_8888)));
+        assertEquals(0, mTracer.depth);
+        assertTrue(mTracer.events.contains("B " + SwitchTracer.SECTION_MEASURE));
+        assertTrue(mTracer.events.contains("B " + SwitchTracer.SECTION_LAYOUT));
+        // Nested on a device, Robolectric's View.draw doesn't call onDraw
+        final int draw = mTracer.events.indexOf("B " + SwitchTracer.SECTION_DRAW);
+        final int onDraw = mTracer.events.indexOf("B " + SwitchTracer.SECTION_ON_DRAW);
+        assertTrue(draw >= 0 && onDraw > draw);
+    }
+
+    @Test
+    public void transitionTracedAsync() {
+        final MultiValueSwitch view = createAttachedSwitch(3);
+        mTracer.events.clear();
+        view.setCheckedPosition(2);
+        final String cookie = String.valueOf(System.identityHashCode(view));
+        assertEquals("AB " + SwitchTracer.ASYNC_SECTION_TRANSITION + " " + cookie,
+                mTracer.events.get(0));
+
+        final Animation animation = view.getAnimation();
+        final Transformation transformation = new Transformation();
+        long frameTime = 0;
+        while (animation.getTransformation(frameTime, transformation)) {
+            frameTime += 16;
+        }
+        assertEquals(2, view.getCheckedPosition());
+        assertEquals(0, mTracer.depth);
+        assertTrue(mTracer.events.contains("B " + SwitchTracer.SECTION_ANIMATION_FRAME));
+        assertTrue(mTracer.events.contains("B " + SwitchTracer.SECTION_DISPATCH_CHECKED_CHANGE));
+        assertEquals(1, mTracer.count("AE " + SwitchTracer.ASYNC_SECTION_TRANSITION + " " + cookie));
+    }
+
+    @Test
+    public void retargetEndsPreviousTransition() {
+        final MultiValueSwitch view = createAttachedSwitch(3);
+        mTracer.events.clear();
+        view.setCheckedPosition(2);
+        view.setCheckedPosition(0);
+        final String cookie = String.valueOf(System.identityHashCode(view));
+        assertEquals(2, mTracer.count("AB " + SwitchTracer.ASYNC_SECTION_TRANSITION + " " + cookie));
+        assertEquals(1, mTracer.count("AE " + SwitchTracer.ASYNC_SECTION_TRANSITION + " " + cookie));
+    }
+
+    @Test
+    public void detachEndsTransition() {
+        final MultiValueSwitch view = createAttachedSwitch(3);
+        mTracer.events.clear();
+        view.setCheckedPosition(2);
+        ((ViewGroup) view.getParent()).removeView(view);
+        final String cookie = String.valueOf(System.identityHashCode(view));
+        assertEquals(1, mTracer.count("AE " + SwitchTracer.ASYNC_SECTION_TRANSITION + " " + cookie));
+        // Settled at the target rather than left mid-way
+        assertNull(view.getAnimation());
+        assertEquals(2, view.getCheckedPosition());
+        assertEquals(2, view.getThumbPositionOffset(), 0);
+    }
+
+    private MultiValueSwitch createAttachedSwitch(int max) {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        view.setMax(max);
+        final FrameLayout container = new FrameLayout(mActivity);
+        container.addView(view);
+        mActivity.setContentView(container);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    private static class RecordingTracer extends SwitchTracer {
+        final List<String> events = new ArrayList<>();
+        int depth;
+
+        @Override
+        public void beginSection(String name) {
+            events.add("B " + name);
+            depth++;
+        }
+
+        @Override
+        public void endSection() {
+            events.add("E");
+            depth--;
+        }
+
+        @Override
+        public void beginAsyncSection(String name, int cookie) {
+            events.add("AB " + name + " " + cookie);
+        }
+
+        @Override
+        public void endAsyncSection(String name, int cookie) {
+            events.add("AE " + name + " " + cookie);
+        }
+
+        int count(String event) {
+            int count = 0;
+            for (final String e : events) {
+                if (e.equals(event)) count++;
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.app.Activity;
+import android.view.ContextThemeWrapper;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class ThumbPositionThrottleTest {
+
+    private FrameLayout mContainer;
+    private MultiValueSwitch mView;
+    private ThumbPositionThrottle mThrottle;
+    private final List<Float> mDelivered = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        mView = new MultiValueSwitch(new ContextThemeWrapper(activity,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light));
+        mContainer = new FrameLayout(activity);
+        mContainer.addView(mView);
+        activity.setContentView(mContainer);
+        mView.addOnThumbPositionChangeListener(new MultiValueSwitch.OnThumbPositionChangeListener() {
+            @Override
+            public void onThumbPositionChange(float positionOffset) {
+                mDelivered.add(positionOffset);
+            }
+        });
+        mThrottle = mView.obtainThumbPositionThrottle();
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @Test
+    public void conflatedPerFrame() {
+        mThrottle.conflatePerFrame = true;
+        mThrottle.update(0.1f, false);
+        mThrottle.update(0.2f, false);
+        mThrottle.update(0.3f, false);
+        assertDelivered();
+        ShadowLooper.idleMainLooper(20);
+        assertDelivered(0.3f);
+    }
+
+    @Test
+    public void smallMovesDropped() {
+        mThrottle.minDelta = 0.5f;
+        mThrottle.update(0.1f, false);
+        mThrottle.update(0.3f, false);
+        mThrottle.update(0.7f, false);
+        ShadowLooper.idleMainLooper(1000);
+        assertDelivered(0.1f, 0.7f);
+    }
+
+    @Test
+    public void trailingDeliveryAfterInterval() {
+        mThrottle.minInterval = 100;
+        mThrottle.update(0.1f, false);
+        ShadowLooper.idleMainLooper(10);
+        mThrottle.update(0.2f, false);
+        mThrottle.update(0.3f, false);
+        assertDelivered(0.1f);
+        ShadowLooper.idleMainLooper(50);
+        assertDelivered(0.1f);
+        ShadowLooper.idleMainLooper(50);
+        assertDelivered(0.1f, 0.3f);
+        ShadowLooper.idleMainLooper(1000);
+        assertDelivered(0.1f, 0.3f);
+    }
+
+    @Test
+    public void settledDeliveredAtOnce() {
+        mThrottle.minInterval = 100;
+        mThrottle.update(0.1f, false);
+        mThrottle.update(0.5f, false);
+        mThrottle.update(1f, true);
+        assertDelivered(0.1f, 1f);
+        // Pending trailing delivery replaced by the settled position
+        ShadowLooper.idleMainLooper(1000);
+        assertDelivered(0.1f, 1f);
+    }
+
+    @Test
+    public void cancelledOnDetach() {
+        mThrottle.minInterval = 100;
+        mThrottle.update(0.1f, false);
+        mThrottle.update(0.5f, false);
+        mContainer.removeView(mView);
+        ShadowLooper.idleMainLooper(1000);
+        assertDelivered(0.1f);
+    }
+
+    private void assertDelivered(Float... expected) {
+        assertEquals(Arrays.asList(expected), mDelivered);
+    }
+}
@@ -0,0 +1,157 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.PorterDuff;
+import android.graphics.drawable.Drawable;
+import android.view.ContextThemeWrapper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class TintedDrawableCacheTest {
+
+    private static final int TRACK =
+            android.support.v7.appcompat.R.drawable.abc_switch_track_mtrl_alpha;
+
+    private Context mLight;
+    private Context mDark;
+
+    @Before
+    public void setUp() {
+        TintedDrawableCache.clear();
+        mLight = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+        mDark = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat);
+    }
+
+    @After
+    public void tearDown() {
+        TintedDrawableCache.clear();
+    }
+
+    @Test
+    public void sameTintShared() {
+        final int hits = TintedDrawableCache.getHitCount();
+        final Drawable first = get(mLight, 0xFF3F51B5, null);
+        final Drawable second = get(mLight, 0xFF3F51B5, null);
+        assertNotNull(first);
+        assertNotSame(first, second);
+        assertSame(first.getConstantState(), second.getConstantState());
+        assertEquals(hits + 1, TintedDrawableCache.getHitCount());
+        assertEquals(1, TintedDrawableCache.getEntryCount());
+    }
+
+    @Test
+    public void keyedByTheme() {
+        // Only a mode set, appcompat's default tint from the theme still applies
+        get(mLight, 0, PorterDuff.Mode.SRC_OVER);
+        final int misses = TintedDrawableCache.getMissCount();
+        get(mDark, 0, PorterDuff.Mode.SRC_OVER);
+        assertEquals(misses + 1, TintedDrawableCache.getMissCount());
+        assertEquals(2, TintedDrawableCache.getEntryCount());
+    }
+
+    @Test
+    public void byteAccounting() {
+        final Drawable drawable = get(mLight, 0xFF3F51B5, null);
+        assertNotNull(drawable);
+        final long size = (long) drawable.getIntrinsicWidth() * drawable.getIntrinsicHeight() * 4;
+        assertTrue(size > 0);
+        assertEquals(size, TintedDrawableCache.getEstimatedByteCount());
+        get(mLight, 0xFFE91E63, null);
+        assertEquals(size * 2, TintedDrawableCache.getEstimatedByteCount());
+        // Hits add nothing
+        get(mLight, 0xFFE91E63, null);
+        assertEquals(size * 2, TintedDrawableCache.getEstimatedByteCount());
+        TintedDrawableCache.clear();
+        assertEquals(0, TintedDrawableCache.getEstimatedByteCount());
+    }
+
+    @Test
+    public void trimMemory() {
+        for (int i = 0; i < 8; i++) {
+            get(mLight, 0xFF000000 | i, null);
+        }
+        final long bytes = TintedDrawableCache.getEstimatedByteCount();
+        TintedDrawableCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(8, TintedDrawableCache.getEntryCount());
+
+        TintedDrawableCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(4, TintedDrawableCache.getEntryCount());
+        assertEquals(bytes / 2, TintedDrawableCache.getEstimatedByteCount());
+
+        TintedDrawableCache.trimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+        assertEquals(0, TintedDrawableCache.getEntryCount());
+        assertEquals(0, TintedDrawableCache.getEstimatedByteCount());
+    }
+
+    @Test
+    public void tintListThenModeStaysShared() {
+        final MultiValueSwitch first = createTintedSwitch();
+        final MultiValueSwitch second = createTintedSwitch();
+        assertSame(first.getTrackDrawable().getConstantState(),
+                second.getTrackDrawable().getConstantState());
+        final MultiValueSwitch combined = new MultiValueSwitch(mLight);
+        combined.setTrackTint(ColorStateList.valueOf(0xFF3F51B5), PorterDuff.Mode.MULTIPLY);
+        assertSame(first.getTrackDrawable().getConstantState(),
+                combined.getTrackDrawable().getConstantState());
+    }
+
+    @Test
+    public void nullTintClearsDefaultTint() {
+        // Appcompat tints the track from the theme
+        final MultiValueSwitch untinted = new MultiValueSwitch(mLight);
+        assertNotNull(getTintFilter(untinted.getTrackDrawable()));
+
+        final MultiValueSwitch modeOnly = new MultiValueSwitch(mLight);
+        modeOnly.setTrackTintMode(PorterDuff.Mode.SRC_IN);
+        assertNotNull(getTintFilter(modeOnly.getTrackDrawable()));
+
+        final MultiValueSwitch cleared = new MultiValueSwitch(mLight);
+        cleared.setTrackTintList(null);
+        assertNull(getTintFilter(cleared.getTrackDrawable()));
+        // Keyed apart from a tint list that isn't set
+        assertNotSame(modeOnly.getTrackDrawable().getConstantState(),
+                cleared.getTrackDrawable().getConstantState());
+
+        final MultiValueSwitch clearedAgain = new MultiValueSwitch(mLight);
+        clearedAgain.setTrackTintList(null);
+        assertSame(cleared.getTrackDrawable().getConstantState(),
+                clearedAgain.getTrackDrawable().getConstantState());
+        assertNull(getTintFilter(clearedAgain.getTrackDrawable()));
+    }
+
+    private MultiValueSwitch createTintedSwitch() {
+        final MultiValueSwitch view = new MultiValueSwitch(mLight);
+        view.setTrackTintList(ColorStateList.valueOf(0xFF3F51B5));
+        view.setTrackTintMode(PorterDuff.Mode.MULTIPLY);
+        return view;
+    }
+
+    private static Drawable get(Context context, int color, PorterDuff.Mode mode) {
+        return TintedDrawableCache.get(context, TRACK, color != 0,
+                color != 0 ? ColorStateList.valueOf(color) : null, mode != null, mode);
+    }
+
+    private static Object getTintFilter(Drawable drawable) {
+        return ReflectionHelpers.getField(drawable, "mTintFilter");
+    }
+}
@@ -0,0 +1,85 @@
+package org.mariotaku.multivalueswitch.library;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.ContextThemeWrapper;
+import android.view.MotionEvent;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that {@link MultiValueSwitch} only holds a VelocityTracker while a gesture is running.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class VelocityTrackerLifecycleTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = new ContextThemeWrapper(RuntimeEnvironment.application,
+                android.support.v7.appcompat.R.style.Theme_AppCompat_Light);
+    }
+
+    @Test
+    public void idleInstancesHoldNoTracker() {
+        for (int i = 0; i < 100; i++) {
+            final MultiValueSwitch view = createLaidOutSwitch();
+            assertFalse(view.hasVelocityTracker());
+        }
+    }
+
+    @Test
+    public void trackerReleasedAfterGesture() {
+        final MultiValueSwitch view = createLaidOutSwitch();
+        final float y = view.getHeight() / 2f;
+        dispatch(view, MotionEvent.ACTION_DOWN, 1, y);
+        assertTrue(view.hasVelocityTracker());
+        dispatch(view, MotionEvent.ACTION_MOVE, view.getWidth() / 2f, y);
+        assertTrue(view.hasVelocityTracker());
+        dispatch(view, MotionEvent.ACTION_UP, view.getWidth() / 2f, y);
+        assertFalse(view.hasVelocityTracker());
+    }
+
+    @Test
+    public void trackerReleasedOnCancel() {
+        final MultiValueSwitch view = createLaidOutSwitch();
+        dispatch(view, MotionEvent.ACTION_DOWN, 1, view.getHeight() / 2f);
+        dispatch(view, MotionEvent.ACTION_CANCEL, 1, view.getHeight() / 2f);
+        assertFalse(view.hasVelocityTracker());
+    }
+
+    @Test
+    public void trackerReleasedOnDetach() {
+        final MultiValueSwitch view = createLaidOutSwitch();
+        dispatch(view, MotionEvent.ACTION_DOWN, 1, view.getHeight() / 2f);
+        assertTrue(view.hasVelocityTracker());
+        view.onDetachedFromWindow();
+        assertFalse(view.hasVelocityTracker());
+    }
+
+    private MultiValueSwitch createLaidOutSwitch() {
+        final MultiValueSwitch view = new MultiValueSwitch(mContext);
+        final int spec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        view.measure(spec, spec);
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    private static void dispatch(View view, int action, float x, float y) {
+        final long time = SystemClock.uptimeMillis();
+        final MotionEvent event = MotionEvent.obtain(time, time, action, x, y, 0);
+        view.onTouchEvent(event);
+        event.recycle();
+    }
+}
@@ -1,5 +1,6 @@
 package org.mariotaku.multivalueswitch;
 
+import android.content.Intent;
 import android.content.res.ColorStateList;
 import android.graphics.Color;
 import android.os.Bundle;
@@ -28,6 +29,7 @@ public class MainActivity extends AppCompatActivity {
     private MultiValueSwitch mMultiValueSwitch;
     private MultiValueSwitch mMultiValueSwitchColored;
     private View mChangeButton;
+    private View mStressButton;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -88,6 +90,12 @@ public class MainActivity extends AppCompatActivity {
                 mMultiValueSwitchColored.setHighlightCheckedPositions(highlightCheckedPositions);
             }
         });
+        mStressButton.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                startActivity(new Intent(MainActivity.this, StressActivity.class));
+            }
+        });
     }
 
 
@@ -144,5 +152,6 @@ public class MainActivity extends AppCompatActivity {
         mMultiValueSwitch = ((MultiValueSwitch) findViewById(R.id.mvs));
         mMultiValueSwitchColored = ((MultiValueSwitch) findViewById(R.id.mvs_colored));
         mChangeButton = findViewById(R.id.change);
+        mStressButton = findViewById(R.id.stress);
     }
 }
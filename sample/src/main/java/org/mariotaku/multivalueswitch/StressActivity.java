@@ -0,0 +1,195 @@
+package org.mariotaku.multivalueswitch;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Color;
+import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.graphics.ColorUtils;
+import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.mariotaku.multivalueswitch.library.MultiValueSwitch;
+
+/**
+ * Thousands of rows of switches with varying max, tints and highlighted positions, to see how
+ * the library behaves in a long list.
+ */
+public class StressActivity extends AppCompatActivity {
+
+    static final int ROW_COUNT = 5000;
+
+    private RecyclerView mRecyclerView;
+    private StressAdapter mAdapter;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_stress);
+        mAdapter = new StressAdapter(this, ROW_COUNT);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        mRecyclerView.setAdapter(mAdapter);
+    }
+
+    @Override
+    public void onContentChanged() {
+        super.onContentChanged();
+        mRecyclerView = (RecyclerView) findViewById(R.id.recycler_view);
+    }
+
+    RecyclerView getRecyclerView() {
+        return mRecyclerView;
+    }
+
+    StressAdapter getAdapter() {
+        return mAdapter;
+    }
+
+    static class StressAdapter extends RecyclerView.Adapter<StressViewHolder> {
+
+        private static final int[] PRESET_COLORS = {R.color.material_red, R.color.material_pink,
+                R.color.material_purple, R.color.material_indigo, R.color.material_blue,
+                R.color.material_teal, R.color.material_green, R.color.material_amber,
+                R.color.material_deep_orange};
+        private static final int MAX_LIMIT = 10;
+
+        private final LayoutInflater mInflater;
+        // Created once, binding only picks from them
+        private final ColorStateList[] mThumbTints;
+        private final ColorStateList[] mTrackTints;
+        private final int[][] mHighlightPositions;
+        private final int[] mFirstPositions;
+        private final int[] mSecondPositions;
+
+        private long mBindCount;
+        private long mBindNanos;
+
+        StressAdapter(Context context, int rowCount) {
+            mInflater = LayoutInflater.from(context);
+            mThumbTints = new ColorStateList[PRESET_COLORS.length];
+            mTrackTints = new ColorStateList[PRESET_COLORS.length];
+            for (int i = 0; i < PRESET_COLORS.length; i++) {
+                final int color = ContextCompat.getColor(context, PRESET_COLORS[i]);
+                mThumbTints[i] = ColorStateList.valueOf(color);
+                mTrackTints[i] = ColorStateList.valueOf(ColorUtils.setAlphaComponent(color,
+                        Math.round(Color.alpha(color) * 0.3f)));
+            }
+            // Every position but the first is highlighted
+            mHighlightPositions = new int[MAX_LIMIT + 1][];
+            for (int max = 2; max <= MAX_LIMIT; max++) {
+                mHighlightPositions[max] = new int[max - 1];
+                for (int i = 0; i < max - 1; i++) {
+                    mHighlightPositions[max][i] = i + 1;
+                }
+            }
+            mFirstPositions = new int[rowCount];
+            mSecondPositions = new int[rowCount];
+        }
+
+        @Override
+        public StressViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new StressViewHolder(this, mInflater.inflate(R.layout.list_item_stress,
+                    parent, false));
+        }
+
+        @Override
+        public void onBindViewHolder(StressViewHolder holder, int position) {
+            final long start = System.nanoTime();
+            holder.binding = true;
+            holder.label.setText(String.valueOf(position));
+            bindSwitch(holder.first, position, getFirstMax(position), mFirstPositions[position]);
+            bindSwitch(holder.second, position + 1, getSecondMax(position),
+                    mSecondPositions[position]);
+            holder.binding = false;
+            mBindNanos += System.nanoTime() - start;
+            mBindCount++;
+        }
+
+        @Override
+        public int getItemCount() {
+            return mFirstPositions.length;
+        }
+
+        static int getFirstMax(int position) {
+            return 2 + position % 5;
+        }
+
+        static int getSecondMax(int position) {
+            return 2 + (position / 3) % (MAX_LIMIT - 1);
+        }
+
+        int getFirstPosition(int position) {
+            return mFirstPositions[position];
+        }
+
+        int getSecondPosition(int position) {
+            return mSecondPositions[position];
+        }
+
+        long getBindCount() {
+            return mBindCount;
+        }
+
+        long getBindNanos() {
+            return mBindNanos;
+        }
+
+        void onSwitchChanged(StressViewHolder holder, MultiValueSwitch view, int checkedPosition) {
+            final int position = holder.getAdapterPosition();
+            if (holder.binding || position == RecyclerView.NO_POSITION) return;
+            if (view == holder.first) {
+                mFirstPositions[position] = checkedPosition;
+            } else {
+                mSecondPositions[position] = checkedPosition;
+            }
+        }
+
+        private void bindSwitch(MultiValueSwitch view, int seed, int max, int checkedPosition) {
+            view.setMax(max);
+            // A third of the switches keep default colors
+            if (seed % 3 == 0) {
+                view.setThumbTintList(null);
+                view.setTrackTintList(null);
+            } else {
+                final int color = seed % PRESET_COLORS.length;
+                view.setThumbTintList(mThumbTints[color]);
+                view.setTrackTintList(mTrackTints[color]);
+            }
+            view.setHighlightCheckedPositions(seed % 2 == 0 ? mHighlightPositions[max] : null);
+            // Recycled, don't animate from the previous row's position
+            view.setCheckedPosition(checkedPosition, false);
+        }
+    }
+
+    static class StressViewHolder extends RecyclerView.ViewHolder {
+
+        final TextView label;
+        final MultiValueSwitch first;
+        final MultiValueSwitch second;
+        boolean binding;
+
+        StressViewHolder(final StressAdapter adapter, View itemView) {
+            super(itemView);
+            label = (TextView) itemView.findViewById(R.id.label);
+            first = (MultiValueSwitch) itemView.findViewById(R.id.first);
+            second = (MultiValueSwitch) itemView.findViewById(R.id.second);
+            first.setOnCheckedChangeListener(new MultiValueSwitch.OnCheckedChangeListener() {
+                @Override
+                public void onCheckedChange(int position) {
+                    adapter.onSwitchChanged(StressViewHolder.this, first, position);
+                }
+            });
+            second.setOnCheckedChangeListener(new MultiValueSwitch.OnCheckedChangeListener() {
+                @Override
+                public void onCheckedChange(int position) {
+                    adapter.onSwitchChanged(StressViewHolder.this, second, position);
+                }
+            });
+        }
+    }
+}
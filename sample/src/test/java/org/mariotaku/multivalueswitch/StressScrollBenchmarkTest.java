@@ -0,0 +1,185 @@
+package org.mariotaku.multivalueswitch;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.animation.Animation;
+import android.view.animation.Transformation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mariotaku.multivalueswitch.StressActivity.StressAdapter;
+import org.mariotaku.multivalueswitch.StressActivity.StressViewHolder;
+import org.mariotaku.multivalueswitch.library.MultiValueSwitch;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scripted scrolling, rebinding and tapping through {@link StressActivity}, reporting bind,
+ * layout and draw time and allocations. Run with
+ * {@code ./gradlew :sample:testDebugUnitTest --tests *StressScrollBenchmarkTest -i} to see
+ * the numbers.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class StressScrollBenchmarkTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int STEPS = 300;
+    private static final int REBIND_INTERVAL = 10;
+
+    private StressActivity mActivity;
+    private RecyclerView mRecyclerView;
+    private StressAdapter mAdapter;
+
+    @Before
+    public void setUp() {
+        mActivity = Robolectric.setupActivity(StressActivity.class);
+        mRecyclerView = mActivity.getRecyclerView();
+        mAdapter = mActivity.getAdapter();
+        layout();
+    }
+
+    @Test
+    public void scrollRebindAndTap() {
+        final Random random = new Random(42);
+        final Canvas canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT,
+                Bitmap.Config.ARGB_8888));
+        final long startAllocated = getAllocatedBytes();
+        final long startBindCount = mAdapter.getBindCount();
+        final long startBindNanos = mAdapter.getBindNanos();
+        long scrollNanos = 0, layoutNanos = 0, drawNanos = 0;
+        int taps = 0;
+
+        for (int step = 0; step < STEPS; step++) {
+            // Mostly forward with occasional flicks back
+            final int dy = random.nextInt(10) == 0 ? -random.nextInt(HEIGHT)
+                    : random.nextInt(HEIGHT / 2);
+            long start = System.nanoTime();
+            mRecyclerView.scrollBy(0, dy);
+            scrollNanos += System.nanoTime() - start;
+
+            if (step % REBIND_INTERVAL == 0) {
+                final LinearLayoutManager layoutManager =
+                        (LinearLayoutManager) mRecyclerView.getLayoutManager();
+                final int first = layoutManager.findFirstVisibleItemPosition();
+                final int last = layoutManager.findLastVisibleItemPosition();
+                mAdapter.notifyItemRangeChanged(first, last - first + 1);
+                start = System.nanoTime();
+                layout();
+                layoutNanos += System.nanoTime() - start;
+            }
+
+            if (tapRandomSwitch(random)) {
+                taps++;
+            }
+
+            start = System.nanoTime();
+            mRecyclerView.draw(canvas);
+            drawNanos += System.nanoTime() - start;
+        }
+
+        final long bindCount = mAdapter.getBindCount() - startBindCount;
+        final long bindNanos = mAdapter.getBindNanos() - startBindNanos;
+        assertTrue(bindCount > 0);
+        System.out.println("Stress list: " + STEPS + " steps, " + taps + " taps, " + bindCount
+                + " binds, " + bindNanos / bindCount + " ns/bind");
+        System.out.println("Stress list: scroll " + scrollNanos / STEPS
+                + " ns/step, rebind layout " + layoutNanos / (STEPS / REBIND_INTERVAL)
+                + " ns/pass, draw " + drawNanos / STEPS + " ns/frame");
+        if (startAllocated >= 0) {
+            final long allocated = getAllocatedBytes() - startAllocated;
+            System.out.println("Stress list: " + allocated / STEPS + " bytes allocated/step");
+        }
+
+        // Taps committed, so the rebind below has changed positions to show
+        int changed = 0;
+        for (int i = 0, j = mAdapter.getItemCount(); i < j; i++) {
+            if (mAdapter.getFirstPosition(i) != 0 || mAdapter.getSecondPosition(i) != 0) {
+                changed++;
+            }
+        }
+        System.out.println("Stress list: " + changed + " rows changed by taps");
+        assertTrue(changed > 0);
+        // Rows on screen agree with what their taps stored, before anything is rebound
+        assertShowsStoredPositions();
+
+        // Rebinding shows stored positions, whatever animations were running
+        mAdapter.notifyDataSetChanged();
+        layout();
+        assertShowsStoredPositions();
+    }
+
+    private void assertShowsStoredPositions() {
+        for (int i = 0, j = mRecyclerView.getChildCount(); i < j; i++) {
+            final StressViewHolder holder = (StressViewHolder) mRecyclerView.getChildViewHolder(
+                    mRecyclerView.getChildAt(i));
+            final int position = holder.getAdapterPosition();
+            assertEquals(StressAdapter.getFirstMax(position), holder.first.getMax());
+            assertEquals(mAdapter.getFirstPosition(position), holder.first.getCheckedPosition());
+            assertEquals(StressAdapter.getSecondMax(position), holder.second.getMax());
+            assertEquals(mAdapter.getSecondPosition(position), holder.second.getCheckedPosition());
+        }
+    }
+
+    private boolean tapRandomSwitch(Random random) {
+        final int childCount = mRecyclerView.getChildCount();
+        if (childCount == 0) return false;
+        final StressViewHolder holder = (StressViewHolder) mRecyclerView.getChildViewHolder(
+                mRecyclerView.getChildAt(random.nextInt(childCount)));
+        final MultiValueSwitch view = random.nextBoolean() ? holder.first : holder.second;
+        final Rect bounds = new Rect(0, 0, view.getWidth(), view.getHeight());
+        mRecyclerView.offsetDescendantRectToMyCoords(view, bounds);
+        if (bounds.isEmpty() || !bounds.intersect(0, 0, WIDTH, HEIGHT)) return false;
+        final float x = bounds.left + random.nextInt(bounds.width());
+        final float y = bounds.centerY();
+        final long downTime = SystemClock.uptimeMillis();
+        final MotionEvent down = MotionEvent.obtain(downTime, downTime,
+                MotionEvent.ACTION_DOWN, x, y, 0);
+        final MotionEvent up = MotionEvent.obtain(downTime, downTime + 50,
+                MotionEvent.ACTION_UP, x, y, 0);
+        mRecyclerView.dispatchTouchEvent(down);
+        mRecyclerView.dispatchTouchEvent(up);
+        down.recycle();
+        up.recycle();
+        // Clock doesn't move by itself here, run the thumb animation to its end to commit
+        final Animation animation = view.getAnimation();
+        if (animation != null) {
+            final Transformation transformation = new Transformation();
+            animation.getTransformation(0, transformation);
+            animation.getTransformation(animation.getDuration(), transformation);
+        }
+        return true;
+    }
+
+    private void layout() {
+        mRecyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mRecyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * @return bytes allocated by this thread, or -1 if the JVM can't tell
+     */
+    private static long getAllocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(
+                Thread.currentThread().getId());
+    }
+}